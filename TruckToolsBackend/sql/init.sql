@@ -340,6 +340,9 @@ CREATE TABLE IF NOT EXISTS `t_product` (
     `xk_no` VARCHAR(50) NOT NULL COMMENT '内部编号',
     `oe_no` VARCHAR(100) NOT NULL COMMENT 'OE编号',
     `image_path` VARCHAR(500) DEFAULT NULL COMMENT '图片路径',
+    `image_master_path` VARCHAR(500) DEFAULT NULL COMMENT '标准格式(JPEG/PNG)原图路径',
+    `image_thumb_path` VARCHAR(500) DEFAULT NULL COMMENT '列表缩略图路径',
+    `image_cell_path` VARCHAR(500) DEFAULT NULL COMMENT 'Excel单元格图路径',
     `price_min` DECIMAL(10,2) DEFAULT NULL COMMENT '最低价(RMB)',
     `price_max` DECIMAL(10,2) DEFAULT NULL COMMENT '最高价(RMB)',
     `price_avg` DECIMAL(10,2) DEFAULT NULL COMMENT '平均价(RMB)',
@@ -347,14 +350,59 @@ CREATE TABLE IF NOT EXISTS `t_product` (
     `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     `deleted` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除: 0=否, 1=是',
+    `oe_no_active` VARCHAR(100) GENERATED ALWAYS AS (IF(`deleted` = 0, `oe_no`, NULL)) STORED COMMENT '未删除产品的OE编号(唯一键用)',
+    `image_pending` TINYINT GENERATED ALWAYS AS (IF(`deleted` = 0 AND `image_path` <> '' AND `image_thumb_path` IS NULL, 1, NULL)) STORED COMMENT '待生成衍生图标记(补生成任务用)',
     PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_user_oe_active` (`user_id`, `oe_no_active`),
     KEY `idx_user_id` (`user_id`),
     KEY `idx_oe_no` (`oe_no`),
     KEY `idx_brand_code` (`brand_code`),
+    KEY `idx_user_brand` (`user_id`, `brand_code`),
     KEY `idx_xk_no` (`xk_no`),
-    KEY `idx_created_at` (`created_at`)
+    KEY `idx_created_at` (`created_at`),
+    KEY `idx_image_pending` (`image_pending`, `id`)
 ) ENGINE=InnoDB COMMENT='产品表';
 
+-- 产品品牌统计表（品牌列表直接读取，新增产品时累加，修改/删除后按品牌重新汇总，定时校准）
+CREATE TABLE IF NOT EXISTS `t_product_brand_stat` (
+    `user_id` BIGINT NOT NULL COMMENT '所属用户ID',
+    `brand_code` VARCHAR(20) NOT NULL DEFAULT '' COMMENT '品牌缩写',
+    `brand_name` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '品牌全称',
+    `product_count` INT NOT NULL DEFAULT 0 COMMENT '产品数量',
+    `image_count` INT NOT NULL DEFAULT 0 COMMENT '有图片的产品数量',
+    `price_min` DECIMAL(10,2) DEFAULT NULL COMMENT '最低价(RMB)',
+    `price_max` DECIMAL(10,2) DEFAULT NULL COMMENT '最高价(RMB)',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `brand_code`, `brand_name`)
+) ENGINE=InnoDB COMMENT='产品品牌统计表';
+
+-- 产品图片内容块表（按内容SHA-256去重存储，ref_count为引用的产品数）
+CREATE TABLE IF NOT EXISTS `t_image_blob` (
+    `sha256` CHAR(64) NOT NULL COMMENT '内容SHA-256',
+    `file_path` VARCHAR(500) NOT NULL COMMENT '访问路径',
+    `file_size` BIGINT NOT NULL DEFAULT 0 COMMENT '文件大小(字节)',
+    `ref_count` INT NOT NULL DEFAULT 0 COMMENT '引用次数',
+    `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`sha256`),
+    KEY `idx_ref_count_updated_at` (`ref_count`, `updated_at`)
+) ENGINE=InnoDB COMMENT='产品图片内容块表';
+
+-- 利润率阶梯规则表（未配置规则的用户使用系统默认阶梯）
+CREATE TABLE IF NOT EXISTS `t_profit_tier_rule` (
+    `id` BIGINT NOT NULL COMMENT '规则ID',
+    `user_id` BIGINT NOT NULL COMMENT '所属用户ID',
+    `brand_code` VARCHAR(20) DEFAULT NULL COMMENT '适用品牌缩写，为空表示所有品牌',
+    `customer_priority` TINYINT DEFAULT NULL COMMENT '适用客户优先级: 1=高, 2=中, 3=低，为空表示所有客户',
+    `min_quantity` INT NOT NULL COMMENT '起始数量（含）',
+    `profit_rate` DECIMAL(7,2) NOT NULL COMMENT '利润率(%)',
+    `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `deleted` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除: 0=否, 1=是',
+    PRIMARY KEY (`id`),
+    KEY `idx_user_id` (`user_id`)
+) ENGINE=InnoDB COMMENT='利润率阶梯规则表';
+
 -- 产品导入记录表
 CREATE TABLE IF NOT EXISTS `t_product_import` (
     `id` BIGINT NOT NULL COMMENT '导入ID',
@@ -362,12 +410,17 @@ CREATE TABLE IF NOT EXISTS `t_product_import` (
     `file_name` VARCHAR(200) NOT NULL COMMENT '文件名',
     `file_path` VARCHAR(500) NOT NULL COMMENT '文件路径',
     `file_size` BIGINT DEFAULT NULL COMMENT '文件大小(字节)',
+    `mode` TINYINT NOT NULL DEFAULT 0 COMMENT '导入方式: 0=仅新增, 1=新增并更新',
     `total_rows` INT DEFAULT 0 COMMENT '总行数',
     `success_count` INT DEFAULT 0 COMMENT '成功数量',
+    `updated_count` INT DEFAULT 0 COMMENT '更新数量',
+    `unchanged_count` INT DEFAULT 0 COMMENT '未变化数量',
     `failed_count` INT DEFAULT 0 COMMENT '失败数量',
     `skipped_count` INT DEFAULT 0 COMMENT '跳过数量(重复)',
+    `rows_per_second` INT DEFAULT NULL COMMENT '处理速度(行/秒)',
     `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态: 0=待处理, 1=处理中, 2=已完成, 3=失败',
     `error_message` TEXT COMMENT '错误信息',
+    `checkpoint` JSON DEFAULT NULL COMMENT '断点(各Sheet已提交的行号及计数)',
     `started_at` DATETIME DEFAULT NULL COMMENT '开始处理时间',
     `completed_at` DATETIME DEFAULT NULL COMMENT '完成时间',
     `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -0,0 +1,19 @@
+-- =====================================================
+-- 迁移脚本：添加产品图片内容块表
+-- 执行时间：2026-10-17
+-- 功能：产品图片按内容SHA-256去重存储，产品引用计数，无引用的图片定时清理
+-- =====================================================
+
+USE `truckTools`;
+
+-- 已有按日期目录保存的图片保持不变，不参与引用计数
+CREATE TABLE IF NOT EXISTS `t_image_blob` (
+    `sha256` CHAR(64) NOT NULL COMMENT '内容SHA-256',
+    `file_path` VARCHAR(500) NOT NULL COMMENT '访问路径',
+    `file_size` BIGINT NOT NULL DEFAULT 0 COMMENT '文件大小(字节)',
+    `ref_count` INT NOT NULL DEFAULT 0 COMMENT '引用次数',
+    `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`sha256`),
+    KEY `idx_ref_count_updated_at` (`ref_count`, `updated_at`)
+) ENGINE=InnoDB COMMENT='产品图片内容块表';
@@ -0,0 +1,10 @@
+-- =====================================================
+-- 迁移脚本：产品导入记录添加处理速度
+-- 执行时间：2026-10-17
+-- 功能：产品导入改为分批写入、每批提交，记录处理速度(行/秒)
+-- =====================================================
+
+USE `truckTools`;
+
+ALTER TABLE `t_product_import`
+    ADD COLUMN `rows_per_second` INT DEFAULT NULL COMMENT '处理速度(行/秒)' AFTER `skipped_count`;
@@ -0,0 +1,35 @@
+-- =====================================================
+-- 迁移脚本：添加产品品牌统计表
+-- 执行时间：2026-10-17
+-- 功能：品牌列表改为读取统计表，替代每次请求对用户全部产品 GROUP BY
+-- =====================================================
+
+USE `truckTools`;
+
+-- 1. 产品表添加用户+品牌索引（按品牌重新汇总统计时使用）
+ALTER TABLE `t_product` ADD KEY `idx_user_brand` (`user_id`, `brand_code`);
+
+-- 2. 创建品牌统计表（品牌缩写/全称为NULL时保存为空字符串）
+CREATE TABLE IF NOT EXISTS `t_product_brand_stat` (
+    `user_id` BIGINT NOT NULL COMMENT '所属用户ID',
+    `brand_code` VARCHAR(20) NOT NULL DEFAULT '' COMMENT '品牌缩写',
+    `brand_name` VARCHAR(100) NOT NULL DEFAULT '' COMMENT '品牌全称',
+    `product_count` INT NOT NULL DEFAULT 0 COMMENT '产品数量',
+    `image_count` INT NOT NULL DEFAULT 0 COMMENT '有图片的产品数量',
+    `price_min` DECIMAL(10,2) DEFAULT NULL COMMENT '最低价(RMB)',
+    `price_max` DECIMAL(10,2) DEFAULT NULL COMMENT '最高价(RMB)',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `brand_code`, `brand_name`)
+) ENGINE=InnoDB COMMENT='产品品牌统计表';
+
+-- 3. 回填现有产品的统计
+INSERT INTO `t_product_brand_stat` (`user_id`, `brand_code`, `brand_name`, `product_count`, `image_count`,
+                                    `price_min`, `price_max`)
+SELECT `user_id`, IFNULL(`brand_code`, ''), IFNULL(`brand_name`, ''), COUNT(*),
+       SUM(IF(`image_path` IS NULL OR `image_path` = '', 0, 1)), MIN(`price_min`), MAX(`price_max`)
+FROM `t_product`
+WHERE `deleted` = 0
+GROUP BY `user_id`, IFNULL(`brand_code`, ''), IFNULL(`brand_name`, '')
+ON DUPLICATE KEY UPDATE
+    `product_count` = VALUES(`product_count`), `image_count` = VALUES(`image_count`),
+    `price_min` = VALUES(`price_min`), `price_max` = VALUES(`price_max`);
@@ -0,0 +1,13 @@
+-- =====================================================
+-- 迁移脚本：产品表添加图片衍生图路径
+-- 执行时间：2026-10-17
+-- 功能：图片写入后异步生成标准格式原图、列表缩略图和Excel单元格图，列表和导出不再使用原图/实时转换
+-- =====================================================
+
+USE `truckTools`;
+
+-- 现有产品的衍生图由服务启动后的补生成任务生成
+ALTER TABLE `t_product`
+    ADD COLUMN `image_master_path` VARCHAR(500) DEFAULT NULL COMMENT '标准格式(JPEG/PNG)原图路径' AFTER `image_path`,
+    ADD COLUMN `image_thumb_path` VARCHAR(500) DEFAULT NULL COMMENT '列表缩略图路径' AFTER `image_master_path`,
+    ADD COLUMN `image_cell_path` VARCHAR(500) DEFAULT NULL COMMENT 'Excel单元格图路径' AFTER `image_thumb_path`;
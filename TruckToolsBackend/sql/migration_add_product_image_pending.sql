@@ -0,0 +1,14 @@
+-- =====================================================
+-- 迁移脚本：产品表添加待生成衍生图标记
+-- 执行时间：2026-10-17
+-- 功能：补生成衍生图的定时任务按标记索引分页查询，不再扫描全部产品
+-- =====================================================
+
+USE `truckTools`;
+
+-- 未删除、有图片且尚未生成缩略图的产品为1，其余为NULL
+ALTER TABLE `t_product`
+    ADD COLUMN `image_pending` TINYINT GENERATED ALWAYS AS
+        (IF(`deleted` = 0 AND `image_path` <> '' AND `image_thumb_path` IS NULL, 1, NULL)) STORED
+        COMMENT '待生成衍生图标记(补生成任务用)' AFTER `oe_no_active`,
+    ADD KEY `idx_image_pending` (`image_pending`, `id`);
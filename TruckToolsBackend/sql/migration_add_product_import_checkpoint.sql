@@ -0,0 +1,10 @@
+-- =====================================================
+-- 迁移脚本：产品导入记录添加断点
+-- 执行时间：2026-10-17
+-- 功能：每批产品提交时同时记录各Sheet已提交的行号及计数，服务重启后从断点继续导入
+-- =====================================================
+
+USE `truckTools`;
+
+ALTER TABLE `t_product_import`
+    ADD COLUMN `checkpoint` JSON DEFAULT NULL COMMENT '断点(各Sheet已提交的行号及计数)' AFTER `error_message`;
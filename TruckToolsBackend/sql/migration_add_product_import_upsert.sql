@@ -0,0 +1,51 @@
+-- =====================================================
+-- 迁移脚本：产品导入支持更新已有产品
+-- 执行时间：2026-10-17
+-- 功能：按(用户, OE号)唯一匹配未删除的产品，导入时可批量更新价格/备注/图片，
+--      导入记录增加导入方式及更新/未变化数量
+-- =====================================================
+
+USE `truckTools`;
+
+-- 1. 添加唯一键前去重：同一用户相同OE号的未删除产品只保留ID最小的一条，其余逻辑删除
+-- 去重步骤可重复执行，没有重复时不做任何修改；执行前可用以下语句查看重复的OE号：
+-- SELECT user_id, oe_no, COUNT(*) FROM t_product WHERE deleted = 0 GROUP BY user_id, oe_no HAVING COUNT(*) > 1;
+CREATE TEMPORARY TABLE `tmp_product_oe_duplicate` AS
+SELECT p.`id`, p.`image_path`
+FROM `t_product` p
+JOIN (
+    SELECT `user_id`, `oe_no`, MIN(`id`) AS `keep_id`
+    FROM `t_product`
+    WHERE `deleted` = 0
+    GROUP BY `user_id`, `oe_no`
+    HAVING COUNT(*) > 1
+) d ON d.`user_id` = p.`user_id` AND d.`oe_no` = p.`oe_no`
+WHERE p.`deleted` = 0 AND p.`id` <> d.`keep_id`;
+
+UPDATE `t_product` p
+JOIN `tmp_product_oe_duplicate` t ON t.`id` = p.`id`
+SET p.`deleted` = 1;
+
+-- 被删除产品引用的图片减少引用次数（无引用后由定时任务清理）
+UPDATE `t_image_blob` b
+JOIN (
+    SELECT `image_path`, COUNT(*) AS `refs`
+    FROM `tmp_product_oe_duplicate`
+    WHERE `image_path` IS NOT NULL
+    GROUP BY `image_path`
+) r ON r.`image_path` = b.`file_path`
+SET b.`ref_count` = GREATEST(b.`ref_count` - r.`refs`, 0);
+
+DROP TEMPORARY TABLE `tmp_product_oe_duplicate`;
+
+-- 2. 添加唯一键：已删除的产品生成列为NULL，不参与唯一约束
+ALTER TABLE `t_product`
+    ADD COLUMN `oe_no_active` VARCHAR(100) GENERATED ALWAYS AS (IF(`deleted` = 0, `oe_no`, NULL)) STORED
+        COMMENT '未删除产品的OE编号(唯一键用)' AFTER `deleted`,
+    ADD UNIQUE KEY `uk_user_oe_active` (`user_id`, `oe_no_active`);
+
+-- 3. 导入记录增加导入方式及更新/未变化数量
+ALTER TABLE `t_product_import`
+    ADD COLUMN `mode` TINYINT NOT NULL DEFAULT 0 COMMENT '导入方式: 0=仅新增, 1=新增并更新' AFTER `file_size`,
+    ADD COLUMN `updated_count` INT DEFAULT 0 COMMENT '更新数量' AFTER `success_count`,
+    ADD COLUMN `unchanged_count` INT DEFAULT 0 COMMENT '未变化数量' AFTER `updated_count`;
@@ -0,0 +1,22 @@
+-- =====================================================
+-- 迁移脚本：添加利润率阶梯规则表
+-- 执行时间：2026-10-17
+-- 功能：报价推荐利润率按用户配置阶梯（可按品牌、客户优先级区分），替代硬编码阶梯
+-- =====================================================
+
+USE `truckTools`;
+
+-- 未配置规则的用户继续使用系统默认阶梯：1-99件10%，100-199件6%，200-499件3%，500件以上0%
+CREATE TABLE IF NOT EXISTS `t_profit_tier_rule` (
+    `id` BIGINT NOT NULL COMMENT '规则ID',
+    `user_id` BIGINT NOT NULL COMMENT '所属用户ID',
+    `brand_code` VARCHAR(20) DEFAULT NULL COMMENT '适用品牌缩写，为空表示所有品牌',
+    `customer_priority` TINYINT DEFAULT NULL COMMENT '适用客户优先级: 1=高, 2=中, 3=低，为空表示所有客户',
+    `min_quantity` INT NOT NULL COMMENT '起始数量（含）',
+    `profit_rate` DECIMAL(7,2) NOT NULL COMMENT '利润率(%)',
+    `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `deleted` TINYINT NOT NULL DEFAULT 0 COMMENT '是否删除: 0=否, 1=是',
+    PRIMARY KEY (`id`),
+    KEY `idx_user_id` (`user_id`)
+) ENGINE=InnoDB COMMENT='利润率阶梯规则表';
@@ -0,0 +1,9 @@
+-- =====================================================
+-- 迁移脚本：删除产品OE号令牌表
+-- 执行时间：2026-10-17
+-- 功能：OE号匹配和编号搜索都由内存索引完成，令牌表已无查询，不再随产品写入维护
+-- =====================================================
+
+USE `truckTools`;
+
+DROP TABLE IF EXISTS `t_product_oe_token`;
@@ -1,28 +0,0 @@
-package com.trucktools.common.config;
-
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-/**
- * Web MVC 配置
- */
-@Configuration
-public class WebMvcConfig implements WebMvcConfigurer {
-
-    @Value("${app.upload.path:./uploads}")
-    private String uploadPath;
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // 配置上传文件的静态资源访问
-        // 将 /uploads/** 映射到实际的上传目录
-        String uploadLocation = "file:" + uploadPath.replace("\\", "/") + "/";
-        
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations(uploadLocation);
-    }
-
-}
-
@@ -0,0 +1,126 @@
+package com.trucktools.common.upload;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.trucktools.common.utils.FileTransferUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 上传文件访问（/uploads/**）
+ * ETag取文件内容哈希（内容寻址的文件直接取文件名中的SHA-256）；文件名含UUID/哈希的文件内容不会变化，
+ * 浏览器长期缓存且不再验证，其他文件每次按ETag验证。支持Range请求，经Tomcat sendfile零拷贝发送；
+ * 图片可通过 ?w= 获取按宽度缩放的版本
+ */
+@RestController
+@RequiredArgsConstructor
+public class UploadFileController {
+
+    /** 上传目录下的缓存目录，不对外访问 */
+    static final String CACHE_DIR = ".cache";
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "public, no-cache";
+    // 文件名中的UUID（去掉连字符）或内容哈希
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile("[0-9a-fA-F]{32,}");
+    private static final Pattern SHA256_NAME = Pattern.compile("[0-9a-f]{64}");
+    private static final int ETAG_CACHE_SIZE = 10000;
+
+    private final UploadImageResizer uploadImageResizer;
+
+    @Value("${app.upload.path:./uploads}")
+    private String uploadPath;
+
+    // 文件路径 -> 内容哈希（按大小和修改时间判断是否过期）
+    private final Map<String, FileHash> hashes = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FileHash> eldest) {
+                    return size() > ETAG_CACHE_SIZE;
+                }
+            });
+
+    @GetMapping("/uploads/**")
+    public void serve(@RequestParam(value = "w", required = false) Integer width,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = resolve(request);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String cacheControl = IMMUTABLE_NAME.matcher(stem.replace("-", "")).find() ? IMMUTABLE : REVALIDATE;
+        String etag = etagOf(file, stem);
+
+        if (width != null && width > 0) {
+            int bucket = UploadImageResizer.widthBucket(width);
+            Path resized = uploadImageResizer.resize(file, etag, bucket);
+            if (resized != null) {
+                file = resized;
+                name = resized.getFileName().toString();
+                etag = etag + "-w" + bucket;
+            }
+        }
+
+        String contentType = MediaTypeFactory.getMediaType(name)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        FileTransferUtils.sendResource(request, response, file, contentType, etag, cacheControl);
+    }
+
+    /**
+     * 请求路径对应的上传文件，不在上传目录内、位于隐藏目录或不存在时返回null
+     */
+    private Path resolve(HttpServletRequest request) {
+        String lookupPath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String relative = new AntPathMatcher().extractPathWithinPattern("/uploads/**", lookupPath);
+        if (relative.isEmpty() || relative.startsWith(".") || relative.contains("/.")) {
+            return null;
+        }
+        Path root = Paths.get(uploadPath).toAbsolutePath().normalize();
+        Path file = root.resolve(relative).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return file;
+    }
+
+    private String etagOf(Path file, String stem) throws IOException {
+        if (SHA256_NAME.matcher(stem).matches()) {
+            return stem;
+        }
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        String key = file.toString();
+        FileHash cached = hashes.get(key);
+        if (cached != null && cached.size == size && cached.modified == modified) {
+            return cached.hash;
+        }
+        String hash = DigestUtil.sha256Hex(file.toFile()).substring(0, 32);
+        hashes.put(key, new FileHash(size, modified, hash));
+        return hash;
+    }
+
+    private record FileHash(long size, long modified, String hash) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.trucktools.common.upload;
+
+import com.trucktools.common.utils.ImageUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 上传图片按宽度缩放（/uploads/...?w=）
+ * 请求宽度向上取到固定档位，缩放结果按 {原图ETag}-w{宽度} 保存在磁盘缓存目录，内容变化后自然换用新文件；
+ * 缓存超过上限时按最后访问时间删除最旧的文件，缩放并发数有上限，超出时返回原图
+ */
+@Slf4j
+@Component
+public class UploadImageResizer {
+
+    private static final int[] WIDTHS = {64, 128, 200, 320, 480, 640, 960, 1280};
+    private static final float JPEG_QUALITY = 0.85f;
+    // 缓存命中时最多每天刷新一次访问时间
+    private static final long TOUCH_INTERVAL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final Set<String> RESIZABLE = Set.of("jpg", "jpeg", "png", "gif", "bmp", "tif", "tiff");
+
+    @Value("${app.upload.path:./uploads}")
+    private String uploadPath;
+
+    @Value("${app.upload.resize-cache-max-mb:512}")
+    private long cacheMaxMb;
+
+    @Value("${app.upload.resize-threads:2}")
+    private int resizeThreads;
+
+    private Path cacheDir;
+    private Semaphore permits;
+    private final AtomicLong cacheBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cacheDir = Paths.get(uploadPath, UploadFileController.CACHE_DIR, "resized");
+        permits = new Semaphore(resizeThreads);
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.forEach(file -> cacheBytes.addAndGet(file.toFile().length()));
+            }
+        } catch (IOException e) {
+            log.warn("初始化图片缩放缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 请求宽度对应的档位（超过最大档位时取最大档位）
+     */
+    public static int widthBucket(int width) {
+        for (int bucket : WIDTHS) {
+            if (width <= bucket) {
+                return bucket;
+            }
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+
+    /**
+     * 获取缩放后的图片文件
+     * @param etag 原图ETag，作为缓存文件名
+     * @param width 宽度档位
+     * @return 缓存文件；不是图片、原图不比档位宽或缩放繁忙时返回null（返回原图）
+     */
+    public Path resize(Path source, String etag, int width) throws IOException {
+        String name = source.getFileName().toString();
+        String ext = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        if (!RESIZABLE.contains(ext)) {
+            return null;
+        }
+        boolean png = "png".equals(ext) || "gif".equals(ext);
+        Path cached = cacheDir.resolve(etag + "-w" + width + (png ? ".png" : ".jpg"));
+        if (Files.exists(cached)) {
+            touch(cached);
+            return cached;
+        }
+
+        Dimension size = ImageUtils.readSize(source);
+        if (size == null || size.width <= width) {
+            return null;
+        }
+        try {
+            if (!permits.tryAcquire(5, TimeUnit.SECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            if (Files.exists(cached)) {
+                return cached;
+            }
+            BufferedImage image = ImageIO.read(source.toFile());
+            if (image == null) {
+                return null;
+            }
+            BufferedImage scaled = ImageUtils.scaleDown(image, width, Integer.MAX_VALUE, png);
+            Path temp = Files.createTempFile(cacheDir, "resize-", ".tmp");
+            try {
+                if (png) {
+                    ImageIO.write(scaled, "png", temp.toFile());
+                } else {
+                    ImageUtils.writeJpeg(scaled, temp, JPEG_QUALITY);
+                }
+                long bytes = Files.size(temp);
+                Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                if (cacheBytes.addAndGet(bytes) > cacheMaxMb * 1024 * 1024) {
+                    evict();
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return cached;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void touch(Path cached) {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - Files.getLastModifiedTime(cached).toMillis() > TOUCH_INTERVAL_MILLIS) {
+                Files.setLastModifiedTime(cached, FileTime.fromMillis(now));
+            }
+        } catch (IOException ignored) {
+            // 文件可能刚被清理
+        }
+    }
+
+    /**
+     * 按最后访问时间删除最旧的缓存文件，直到缓存降到上限的80%
+     */
+    private synchronized void evict() {
+        long limit = cacheMaxMb * 1024 * 1024;
+        if (cacheBytes.get() <= limit) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            stream.filter(file -> !file.getFileName().toString().endsWith(".tmp")).forEach(files::add);
+        } catch (IOException e) {
+            log.warn("清理图片缩放缓存失败: {}", e.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        long total = files.stream().mapToLong(file -> file.toFile().length()).sum();
+        int removed = 0;
+        for (Path file : files) {
+            if (total <= limit * 0.8) {
+                break;
+            }
+            long size = file.toFile().length();
+            try {
+                Files.deleteIfExists(file);
+                total -= size;
+                removed++;
+            } catch (IOException e) {
+                log.warn("删除缩放缓存失败: {}", file);
+            }
+        }
+        cacheBytes.set(total);
+        log.info("清理图片缩放缓存: 删除 {} 个, 剩余 {} MB", removed, total / 1024 / 1024);
+    }
+}
@@ -0,0 +1,204 @@
+package com.trucktools.common.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件传输工具
+ * 优先使用Tomcat sendfile（内核态零拷贝），不支持时使用 FileChannel.transferTo 写出；
+ * 支持条件请求（ETag/Last-Modified）和单个区间的Range请求，多区间请求按整个文件返回
+ */
+public class FileTransferUtils {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileTransferUtils() {
+    }
+
+    /**
+     * 以附件形式下载文件（支持断点续传）
+     * @param downloadName 下载文件名
+     */
+    public static void sendAttachment(HttpServletRequest request, HttpServletResponse response, Path file,
+                                      String contentType, String downloadName) throws IOException {
+        String fileName = URLEncoder.encode(downloadName, StandardCharsets.UTF_8);
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+        sendResource(request, response, file, contentType, null, null);
+    }
+
+    /**
+     * 按请求头写出文件：未修改时返回304，Range请求返回206（区间无效时416），HEAD请求只写响应头
+     * @param etag 强ETag（不含引号），为空时只按Last-Modified判断
+     * @param cacheControl Cache-Control响应头，为空时不设置
+     */
+    public static void sendResource(HttpServletRequest request, HttpServletResponse response, Path file,
+                                    String contentType, String etag, String cacheControl) throws IOException {
+        long length = Files.size(file);
+        // HTTP日期精确到秒
+        long lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000;
+        String quotedEtag = etag != null ? "\"" + etag + "\"" : null;
+        if (quotedEtag != null) {
+            response.setHeader("ETag", quotedEtag);
+        }
+        response.setDateHeader("Last-Modified", lastModified);
+        if (cacheControl != null) {
+            response.setHeader("Cache-Control", cacheControl);
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+
+        if (notModified(request, quotedEtag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length;
+        String range = request.getHeader("Range");
+        if (range != null && ifRangeMatches(request, quotedEtag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        if ("HEAD".equals(request.getMethod())) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(end - start);
+            return;
+        }
+        sendFile(request, response, file, contentType, start, end);
+    }
+
+    /**
+     * 写出文件的指定区间 [start, end)
+     */
+    public static void sendFile(HttpServletRequest request, HttpServletResponse response, Path file,
+                                String contentType, long start, long end) throws IOException {
+        response.setContentType(contentType);
+        response.setContentLengthLong(end - start);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 由Tomcat在请求结束后直接从文件发送到socket
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * If-None-Match优先，没有时按If-Modified-Since判断
+     */
+    private static boolean notModified(HttpServletRequest request, String quotedEtag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (quotedEtag == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || tag.equals(quotedEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, "If-Modified-Since");
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range与当前文件一致（或没有If-Range）时才按区间返回
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String quotedEtag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(quotedEtag);
+        }
+        return dateHeader(request, "If-Range") == lastModified;
+    }
+
+    /**
+     * 解析单个区间 bytes=a-b / bytes=a- / bytes=-n
+     * @return [start, end)；格式无效或多区间时返回null（按整个文件返回），区间超出文件时返回空数组
+     */
+    private static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return new long[0];
+                }
+                return new long[]{Math.max(0, length - suffix), length};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= length) {
+                return new long[0];
+            }
+            return new long[]{start, Math.min(end, length - 1) + 1};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
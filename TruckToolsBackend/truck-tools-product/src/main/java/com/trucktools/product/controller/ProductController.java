@@ -6,12 +6,17 @@ import com.trucktools.common.utils.SecurityUtils;
 import com.trucktools.product.dto.*;
 import com.trucktools.product.service.ProductService;
 import com.trucktools.product.service.ExcelImportService;
+import com.trucktools.product.service.ProfitTierService;
+import com.trucktools.product.service.QuoteExportJobService;
 import com.trucktools.product.service.QuoteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -30,6 +35,8 @@ public class ProductController {
     private final ProductService productService;
     private final ExcelImportService excelImportService;
     private final QuoteService quoteService;
+    private final QuoteExportJobService quoteExportJobService;
+    private final ProfitTierService profitTierService;
 
     @Operation(summary = "获取产品列表")
     @GetMapping
@@ -96,6 +103,13 @@ public class ProductController {
         return Result.success(products);
     }
 
+    @Operation(summary = "批量查找产品", description = "返回每个输入编号的匹配方式(oe/xk/fuzzy/none)及产品")
+    @PostMapping("/lookup")
+    public void lookup(@RequestBody ProductLookupRequest request, HttpServletResponse response) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        productService.lookup(userId, request, response);
+    }
+
     @Operation(summary = "上传产品图片")
     @PostMapping("/{id}/image")
     public Result<Map<String, String>> uploadImage(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
@@ -120,11 +134,21 @@ public class ProductController {
         return Result.success(result);
     }
 
-    @Operation(summary = "执行导入")
+    @Operation(summary = "上传CSV+图片压缩包并解析预览", description = "CSV表头: brand,xk_no,oe_no,price,remark,image_file")
+    @PostMapping("/import/upload-bundle")
+    public Result<ImportResultDTO> uploadImportBundle(@RequestParam("file") MultipartFile file,
+                                                      @RequestParam(value = "images", required = false) MultipartFile images) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        ImportResultDTO result = excelImportService.uploadBundle(userId, file, images);
+        return Result.success(result);
+    }
+
+    @Operation(summary = "执行导入", description = "mode: insert=仅新增, upsert=新增并更新已有产品")
     @PostMapping("/import/{importId}/execute")
-    public Result<ImportStatusDTO> executeImport(@PathVariable String importId) {
+    public Result<ImportStatusDTO> executeImport(@PathVariable String importId,
+                                                 @RequestParam(defaultValue = "insert") String mode) {
         Long userId = SecurityUtils.getCurrentUserId();
-        ImportStatusDTO status = excelImportService.executeImport(userId, importId);
+        ImportStatusDTO status = excelImportService.executeImport(userId, importId, mode);
         return Result.success(status);
     }
 
@@ -136,6 +160,14 @@ public class ProductController {
         return Result.success(status);
     }
 
+    @Operation(summary = "下载导入变更明细")
+    @GetMapping("/import/{importId}/diff")
+    public void downloadImportDiff(@PathVariable String importId, HttpServletRequest request,
+                                   HttpServletResponse response) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        excelImportService.downloadDiff(userId, importId, request, response);
+    }
+
     // ===================== 报价计算 =====================
 
     @Operation(summary = "计算报价")
@@ -146,20 +178,67 @@ public class ProductController {
         return Result.success(result);
     }
 
-    @Operation(summary = "导出报价单")
+    @Operation(summary = "导出报价单", description = "行数超过阈值时自动转为后台任务，返回202及任务信息")
     @PostMapping("/quote/export")
-    public void exportQuote(@RequestBody QuoteRequestDTO request, HttpServletResponse response) {
+    public ResponseEntity<Result<ExportJobDTO>> exportQuote(@RequestBody QuoteRequestDTO request,
+                                                            HttpServletResponse response) {
         Long userId = SecurityUtils.getCurrentUserId();
+        if (request.getItems() != null && quoteExportJobService.shouldRunAsJob(request.getItems().size())) {
+            ExportJobDTO job = quoteExportJobService.submitQuoteExport(userId, request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Result.success(job));
+        }
         quoteService.exportQuote(userId, request, response);
+        // 文件已直接写入响应
+        return null;
+    }
+
+    @Operation(summary = "提交报价单导出任务")
+    @PostMapping("/quote/export/jobs")
+    public Result<ExportJobDTO> submitQuoteExport(@RequestBody QuoteRequestDTO request) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        return Result.success(quoteExportJobService.submitQuoteExport(userId, request));
+    }
+
+    @Operation(summary = "获取导出任务状态")
+    @GetMapping("/quote/export/jobs/{jobId}")
+    public Result<ExportJobDTO> getExportJob(@PathVariable String jobId) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        return Result.success(quoteExportJobService.getJob(userId, jobId));
+    }
+
+    @Operation(summary = "下载导出文件")
+    @GetMapping("/quote/export/jobs/{jobId}/download")
+    public void downloadExportJob(@PathVariable String jobId, HttpServletRequest request,
+                                  HttpServletResponse response) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        quoteExportJobService.download(userId, jobId, request, response);
     }
 
     @Operation(summary = "获取推荐利润率")
     @GetMapping("/quote/profit-rate")
-    public Result<Map<String, Object>> getProfitRate(@RequestParam(defaultValue = "1") Integer quantity) {
-        java.math.BigDecimal rate = quoteService.getRecommendedProfitRate(quantity);
+    public Result<Map<String, Object>> getProfitRate(@RequestParam(defaultValue = "1") Integer quantity,
+                                                     @RequestParam(required = false) String brandCode,
+                                                     @RequestParam(required = false) Integer customerPriority) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        java.math.BigDecimal rate = quoteService.getRecommendedProfitRate(userId, quantity, brandCode, customerPriority);
         return Result.success(Map.of("quantity", quantity, "profitRate", rate));
     }
 
+    @Operation(summary = "获取利润率阶梯规则")
+    @GetMapping("/quote/profit-tiers")
+    public Result<List<ProfitTierRuleDTO>> getProfitTiers() {
+        Long userId = SecurityUtils.getCurrentUserId();
+        return Result.success(profitTierService.listRules(userId));
+    }
+
+    @Operation(summary = "保存利润率阶梯规则", description = "整体替换，传空列表恢复系统默认阶梯")
+    @PutMapping("/quote/profit-tiers")
+    public Result<Void> saveProfitTiers(@RequestBody List<ProfitTierRuleDTO> rules) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        profitTierService.saveRules(userId, rules);
+        return Result.success();
+    }
+
     // ===================== 报价导入 =====================
 
     @Operation(summary = "上传报价Excel并解析匹配")
@@ -171,7 +250,8 @@ public class ProductController {
             @RequestParam(value = "defaultProfitRate", defaultValue = "10") java.math.BigDecimal defaultProfitRate,
             @RequestParam(value = "includeTax", defaultValue = "false") Boolean includeTax,
             @RequestParam(value = "isFob", defaultValue = "false") Boolean isFob,
-            @RequestParam(value = "customerCurrency", defaultValue = "USD") String customerCurrency) {
+            @RequestParam(value = "customerCurrency", defaultValue = "USD") String customerCurrency,
+            @RequestParam(value = "customerPriority", required = false) Integer customerPriority) {
         Long userId = SecurityUtils.getCurrentUserId();
         
         QuoteImportRequestDTO request = new QuoteImportRequestDTO();
@@ -181,6 +261,7 @@ public class ProductController {
         request.setIncludeTax(includeTax);
         request.setIsFob(isFob);
         request.setCustomerCurrency(customerCurrency);
+        request.setCustomerPriority(customerPriority);
         
         QuoteImportResultDTO result = quoteService.parseQuoteExcel(userId, file, request);
         return Result.success(result);
@@ -194,11 +275,52 @@ public class ProductController {
         return Result.success(result);
     }
 
-    @Operation(summary = "导出报价对比Excel")
+    @Operation(summary = "基于导入会话重新计算", description = "只需传入变化的参数和调整的行，返回有变化的行及新的汇总")
+    @PostMapping("/quote/import/{importId}/recalculate")
+    public Result<QuoteImportResultDTO> recalculateQuoteImportSession(@PathVariable String importId,
+                                                                      @RequestBody QuoteImportRecalcRequestDTO request) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        QuoteImportResultDTO result = quoteService.recalculateQuoteImport(userId, importId, request);
+        return Result.success(result);
+    }
+
+    @Operation(summary = "基于导入会话导出报价对比Excel", description = "行数超过阈值时自动转为后台任务，返回202及任务信息")
+    @PostMapping("/quote/import/{importId}/export")
+    public ResponseEntity<Result<ExportJobDTO>> exportQuoteCompareSession(@PathVariable String importId,
+                                                                          HttpServletResponse response) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        QuoteImportRequestDTO request = quoteService.getQuoteImportSnapshot(userId, importId);
+        return exportQuoteCompare(request, response);
+    }
+
+    @Operation(summary = "基于导入会话导出简洁格式报价单", description = "只导出已匹配的行，行数超过阈值时自动转为后台任务，返回202及任务信息")
+    @PostMapping("/quote/import/{importId}/export-quote")
+    public ResponseEntity<Result<ExportJobDTO>> exportQuoteSession(@PathVariable String importId,
+                                                                   HttpServletResponse response) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        QuoteRequestDTO request = quoteService.getQuoteImportQuoteRequest(userId, importId);
+        return exportQuote(request, response);
+    }
+
+    @Operation(summary = "导出报价对比Excel", description = "行数超过阈值时自动转为后台任务，返回202及任务信息")
     @PostMapping("/quote/import/export")
-    public void exportQuoteCompare(@RequestBody QuoteImportRequestDTO request, HttpServletResponse response) {
+    public ResponseEntity<Result<ExportJobDTO>> exportQuoteCompare(@RequestBody QuoteImportRequestDTO request,
+                                                                   HttpServletResponse response) {
         Long userId = SecurityUtils.getCurrentUserId();
+        if (request.getItems() != null && quoteExportJobService.shouldRunAsJob(request.getItems().size())) {
+            ExportJobDTO job = quoteExportJobService.submitQuoteCompareExport(userId, request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Result.success(job));
+        }
         quoteService.exportQuoteCompare(userId, request, response);
+        // 文件已直接写入响应
+        return null;
+    }
+
+    @Operation(summary = "提交报价对比导出任务")
+    @PostMapping("/quote/import/export/jobs")
+    public Result<ExportJobDTO> submitQuoteCompareExport(@RequestBody QuoteImportRequestDTO request) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        return Result.success(quoteExportJobService.submitQuoteCompareExport(userId, request));
     }
 }
 
@@ -3,6 +3,8 @@ package com.trucktools.product.dto;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 /**
  * 品牌VO
  */
@@ -18,5 +20,14 @@ public class BrandVO {
 
     @Schema(description = "产品数量")
     private Integer productCount;
+
+    @Schema(description = "有图片的产品数量")
+    private Integer imageCount;
+
+    @Schema(description = "最低价(RMB)")
+    private BigDecimal priceMin;
+
+    @Schema(description = "最高价(RMB)")
+    private BigDecimal priceMax;
 }
 
@@ -0,0 +1,41 @@
+package com.trucktools.product.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 导出任务DTO
+ */
+@Data
+@Schema(description = "导出任务")
+public class ExportJobDTO {
+
+    @Schema(description = "任务ID")
+    private String jobId;
+
+    @Schema(description = "状态: pending/processing/completed/failed")
+    private String status;
+
+    @Schema(description = "总行数")
+    private Integer totalRows;
+
+    @Schema(description = "已完成行数")
+    private Integer rowsDone;
+
+    @Schema(description = "进度(0-100)")
+    private Integer progress;
+
+    @Schema(description = "文件名")
+    private String fileName;
+
+    @Schema(description = "创建时间")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "完成时间")
+    private LocalDateTime completedAt;
+
+    @Schema(description = "错误信息")
+    private String errorMessage;
+}
@@ -18,18 +18,30 @@ public class ImportStatusDTO {
     @Schema(description = "状态: pending/processing/completed/failed")
     private String status;
 
+    @Schema(description = "导入方式: insert=仅新增, upsert=新增并更新")
+    private String mode;
+
     @Schema(description = "总行数")
     private Integer totalRows;
 
-    @Schema(description = "成功数量")
+    @Schema(description = "成功(新增)数量")
     private Integer successCount;
 
+    @Schema(description = "更新数量")
+    private Integer updatedCount;
+
+    @Schema(description = "未变化数量")
+    private Integer unchangedCount;
+
     @Schema(description = "失败数量")
     private Integer failedCount;
 
     @Schema(description = "跳过数量")
     private Integer skippedCount;
 
+    @Schema(description = "处理速度(行/秒)")
+    private Integer rowsPerSecond;
+
     @Schema(description = "进度(0-100)")
     private Integer progress;
 
@@ -41,5 +53,8 @@ public class ImportStatusDTO {
 
     @Schema(description = "错误信息")
     private String errorMessage;
+
+    @Schema(description = "是否可下载变更明细")
+    private Boolean diffAvailable;
 }
 
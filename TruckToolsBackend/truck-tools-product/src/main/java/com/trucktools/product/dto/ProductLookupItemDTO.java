@@ -0,0 +1,23 @@
+package com.trucktools.product.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 产品批量查找结果（单个输入编号）
+ */
+@Data
+@Schema(description = "产品批量查找结果")
+public class ProductLookupItemDTO {
+
+    @Schema(description = "输入的编号")
+    private String key;
+
+    @Schema(description = "匹配方式: oe=OE号精确匹配, xk=XK号精确匹配, fuzzy=编号包含输入, none=未匹配")
+    private String matchType;
+
+    @Schema(description = "匹配的产品")
+    private List<ProductVO> products;
+}
@@ -0,0 +1,20 @@
+package com.trucktools.product.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 产品批量查找请求
+ */
+@Data
+@Schema(description = "产品批量查找请求")
+public class ProductLookupRequest {
+
+    @Schema(description = "OE号/XK号列表")
+    private List<String> keys;
+
+    @Schema(description = "粘贴的文本(逗号、分号或换行分隔)，与keys合并")
+    private String text;
+}
@@ -34,6 +34,9 @@ public class ProductVO {
     @Schema(description = "图片完整URL")
     private String imageUrl;
 
+    @Schema(description = "列表缩略图URL")
+    private String thumbnailUrl;
+
     @Schema(description = "最低价(RMB)")
     private BigDecimal priceMin;
 
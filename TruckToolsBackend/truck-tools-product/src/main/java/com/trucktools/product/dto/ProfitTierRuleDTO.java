@@ -0,0 +1,26 @@
+package com.trucktools.product.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 利润率阶梯规则DTO
+ */
+@Data
+@Schema(description = "利润率阶梯规则")
+public class ProfitTierRuleDTO {
+
+    @Schema(description = "品牌缩写，为空表示所有品牌")
+    private String brandCode;
+
+    @Schema(description = "客户优先级: 1=高, 2=中, 3=低，为空表示所有客户")
+    private Integer customerPriority;
+
+    @Schema(description = "起始数量（含），到下一阶梯起始数量为止")
+    private Integer minQuantity;
+
+    @Schema(description = "利润率(%)")
+    private BigDecimal profitRate;
+}
@@ -0,0 +1,46 @@
+package com.trucktools.product.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 报价导入会话重新计算请求DTO
+ * 只需传入变化的全局参数和调整的行，为空的参数保持不变
+ */
+@Data
+@Schema(description = "报价导入会话重新计算请求")
+public class QuoteImportRecalcRequestDTO {
+
+    @Schema(description = "价格模式: min/avg/max")
+    private String priceMode;
+
+    @Schema(description = "汇率(RMB/USD)")
+    private BigDecimal exchangeRate;
+
+    @Schema(description = "默认利润率(%)")
+    private BigDecimal defaultProfitRate;
+
+    @Schema(description = "是否将默认利润率应用到所有行")
+    private Boolean resetProfitRate;
+
+    @Schema(description = "税率(%)")
+    private BigDecimal taxRate;
+
+    @Schema(description = "FOB费率(%)")
+    private BigDecimal fobRate;
+
+    @Schema(description = "全局含税")
+    private Boolean includeTax;
+
+    @Schema(description = "全局FOB")
+    private Boolean isFob;
+
+    @Schema(description = "客户优先级: 1=高, 2=中, 3=低")
+    private Integer customerPriority;
+
+    @Schema(description = "单行调整")
+    private List<QuoteImportRowOverrideDTO> overrides;
+}
@@ -39,5 +39,8 @@ public class QuoteImportRequestDTO {
 
     @Schema(description = "客户报价币种: USD/RMB")
     private String customerCurrency = "USD";
+
+    @Schema(description = "客户优先级: 1=高, 2=中, 3=低，用于匹配利润率阶梯")
+    private Integer customerPriority;
 }
 
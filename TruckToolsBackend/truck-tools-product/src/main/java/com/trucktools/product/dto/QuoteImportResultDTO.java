@@ -13,6 +13,9 @@ import java.util.List;
 @Schema(description = "报价导入结果")
 public class QuoteImportResultDTO {
 
+    @Schema(description = "导入会话ID（用于重新计算和导出）")
+    private String importId;
+
     @Schema(description = "总行数")
     private Integer totalRows;
 
@@ -37,7 +40,7 @@ public class QuoteImportResultDTO {
     @Schema(description = "价格模式")
     private String priceMode;
 
-    @Schema(description = "详细列表")
+    @Schema(description = "详细列表（会话重新计算时只包含有变化的行）")
     private List<QuoteImportItemDTO> items;
 }
 
@@ -0,0 +1,29 @@
+package com.trucktools.product.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 报价导入单行调整DTO
+ */
+@Data
+@Schema(description = "报价导入单行调整（为空的字段不修改）")
+public class QuoteImportRowOverrideDTO {
+
+    @Schema(description = "行号")
+    private Integer rowIndex;
+
+    @Schema(description = "数量")
+    private Integer quantity;
+
+    @Schema(description = "利润率(%)")
+    private BigDecimal profitRate;
+
+    @Schema(description = "是否含税")
+    private Boolean includeTax;
+
+    @Schema(description = "是否FOB")
+    private Boolean isFob;
+}
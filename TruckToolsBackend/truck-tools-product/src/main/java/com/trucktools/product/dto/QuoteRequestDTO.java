@@ -36,5 +36,8 @@ public class QuoteRequestDTO {
 
     @Schema(description = "全局FOB")
     private Boolean isFob = false;
+
+    @Schema(description = "客户优先级: 1=高, 2=中, 3=低，用于匹配利润率阶梯")
+    private Integer customerPriority;
 }
 
@@ -0,0 +1,24 @@
+package com.trucktools.product.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 图片内容块（按SHA-256内容寻址存储）
+ */
+@Data
+@Schema(description = "图片内容块")
+public class ImageBlob {
+
+    @Schema(description = "内容SHA-256")
+    private String sha256;
+
+    @Schema(description = "访问路径")
+    private String filePath;
+
+    @Schema(description = "文件大小(字节)")
+    private Long fileSize;
+
+    @Schema(description = "引用次数")
+    private Integer refCount;
+}
@@ -35,6 +35,15 @@ public class Product extends BaseEntity {
     @Schema(description = "图片路径")
     private String imagePath;
 
+    @Schema(description = "标准格式(JPEG/PNG)原图路径")
+    private String imageMasterPath;
+
+    @Schema(description = "列表缩略图路径")
+    private String imageThumbPath;
+
+    @Schema(description = "Excel单元格图路径")
+    private String imageCellPath;
+
     @Schema(description = "最低价(RMB)")
     private BigDecimal priceMin;
 
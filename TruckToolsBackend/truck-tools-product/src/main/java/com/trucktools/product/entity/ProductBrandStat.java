@@ -0,0 +1,35 @@
+package com.trucktools.product.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 产品品牌统计（品牌缩写/全称为空时保存为空字符串）
+ */
+@Data
+@Schema(description = "产品品牌统计")
+public class ProductBrandStat {
+
+    @Schema(description = "所属用户ID")
+    private Long userId;
+
+    @Schema(description = "品牌缩写")
+    private String brandCode;
+
+    @Schema(description = "品牌全称")
+    private String brandName;
+
+    @Schema(description = "产品数量")
+    private Integer productCount;
+
+    @Schema(description = "有图片的产品数量")
+    private Integer imageCount;
+
+    @Schema(description = "最低价(RMB)")
+    private BigDecimal priceMin;
+
+    @Schema(description = "最高价(RMB)")
+    private BigDecimal priceMax;
+}
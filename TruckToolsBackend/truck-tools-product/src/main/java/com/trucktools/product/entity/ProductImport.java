@@ -1,6 +1,8 @@
 package com.trucktools.product.entity;
 
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
 import com.trucktools.common.core.domain.BaseEntity;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
@@ -13,7 +15,7 @@ import java.time.LocalDateTime;
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
-@TableName("t_product_import")
+@TableName(value = "t_product_import", autoResultMap = true)
 @Schema(description = "产品导入记录")
 public class ProductImport extends BaseEntity {
 
@@ -29,24 +31,40 @@ public class ProductImport extends BaseEntity {
     @Schema(description = "文件大小(字节)")
     private Long fileSize;
 
+    @Schema(description = "导入方式: 0=仅新增, 1=新增并更新")
+    private Integer mode;
+
     @Schema(description = "总行数")
     private Integer totalRows;
 
     @Schema(description = "成功数量")
     private Integer successCount;
 
+    @Schema(description = "更新数量")
+    private Integer updatedCount;
+
+    @Schema(description = "未变化数量")
+    private Integer unchangedCount;
+
     @Schema(description = "失败数量")
     private Integer failedCount;
 
     @Schema(description = "跳过数量")
     private Integer skippedCount;
 
+    @Schema(description = "处理速度(行/秒)")
+    private Integer rowsPerSecond;
+
     @Schema(description = "状态: 0=待处理, 1=处理中, 2=已完成, 3=失败")
     private Integer status;
 
     @Schema(description = "错误信息")
     private String errorMessage;
 
+    @Schema(description = "断点(各Sheet已提交的行号及计数)")
+    @TableField(typeHandler = JacksonTypeHandler.class)
+    private ProductImportCheckpoint checkpoint;
+
     @Schema(description = "开始处理时间")
     private LocalDateTime startedAt;
 
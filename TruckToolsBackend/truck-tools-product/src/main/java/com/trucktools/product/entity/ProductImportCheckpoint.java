@@ -0,0 +1,52 @@
+package com.trucktools.product.entity;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 产品导入断点
+ * 与每批产品在同一事务中写入导入记录，记录各Sheet已提交到的行号及截至该行的计数，
+ * 服务重启后从断点继续导入
+ */
+@Data
+public class ProductImportCheckpoint {
+
+    /** Sheet名称 -> 断点 */
+    private Map<String, SheetCheckpoint> sheets = new LinkedHashMap<>();
+
+    /**
+     * 复制断点（提交成功后才替换当前断点）
+     */
+    public ProductImportCheckpoint copy() {
+        ProductImportCheckpoint copy = new ProductImportCheckpoint();
+        sheets.forEach((name, sheet) -> copy.sheets.put(name, sheet.copy()));
+        return copy;
+    }
+
+    @Data
+    public static class SheetCheckpoint {
+        /** 下一个待处理的行号（从0开始），该行之前的行已处理完并提交 */
+        private int nextRow;
+        /** Sheet是否已全部处理 */
+        private boolean done;
+        private int successCount;
+        private int updatedCount;
+        private int unchangedCount;
+        private int skippedCount;
+        private int failedCount;
+
+        public SheetCheckpoint copy() {
+            SheetCheckpoint copy = new SheetCheckpoint();
+            copy.nextRow = nextRow;
+            copy.done = done;
+            copy.successCount = successCount;
+            copy.updatedCount = updatedCount;
+            copy.unchangedCount = unchangedCount;
+            copy.skippedCount = skippedCount;
+            copy.failedCount = failedCount;
+            return copy;
+        }
+    }
+}
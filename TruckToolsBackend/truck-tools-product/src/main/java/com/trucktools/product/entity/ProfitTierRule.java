@@ -0,0 +1,34 @@
+package com.trucktools.product.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.trucktools.common.core.domain.BaseEntity;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+
+/**
+ * 利润率阶梯规则实体
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("t_profit_tier_rule")
+@Schema(description = "利润率阶梯规则")
+public class ProfitTierRule extends BaseEntity {
+
+    @Schema(description = "所属用户ID")
+    private Long userId;
+
+    @Schema(description = "适用品牌缩写，为空表示所有品牌")
+    private String brandCode;
+
+    @Schema(description = "适用客户优先级: 1=高, 2=中, 3=低，为空表示所有客户")
+    private Integer customerPriority;
+
+    @Schema(description = "起始数量（含）")
+    private Integer minQuantity;
+
+    @Schema(description = "利润率(%)")
+    private BigDecimal profitRate;
+}
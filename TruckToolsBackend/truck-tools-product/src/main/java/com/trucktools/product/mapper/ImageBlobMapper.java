@@ -0,0 +1,48 @@
+package com.trucktools.product.mapper;
+
+import com.trucktools.product.entity.ImageBlob;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片内容块Mapper
+ */
+@Mapper
+public interface ImageBlobMapper {
+
+    /**
+     * 登记内容块，已存在时只刷新更新时间（防止被清理）
+     */
+    @Insert("INSERT INTO t_image_blob (sha256, file_path, file_size, ref_count) " +
+            "VALUES (#{sha256}, #{filePath}, #{fileSize}, 0) " +
+            "ON DUPLICATE KEY UPDATE updated_at = NOW()")
+    int touch(@Param("sha256") String sha256, @Param("filePath") String filePath, @Param("fileSize") long fileSize);
+
+    /**
+     * 查询内容块的访问路径
+     */
+    @Select("SELECT file_path FROM t_image_blob WHERE sha256 = #{sha256}")
+    String selectFilePath(@Param("sha256") String sha256);
+
+    /**
+     * 批量调整引用次数
+     * @param deltas SHA-256 -> 增减数量
+     */
+    int adjustRefCounts(@Param("deltas") Map<String, Integer> deltas);
+
+    /**
+     * 查询超过保留时间且无引用的内容块
+     */
+    @Select("SELECT sha256, file_path, file_size, ref_count FROM t_image_blob " +
+            "WHERE ref_count = 0 AND updated_at < #{before} LIMIT #{limit}")
+    List<ImageBlob> selectUnreferenced(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 删除无引用的内容块（期间被重新引用或登记时不删除）
+     */
+    @Delete("DELETE FROM t_image_blob WHERE sha256 = #{sha256} AND ref_count = 0 AND updated_at < #{before}")
+    int deleteUnreferenced(@Param("sha256") String sha256, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,50 @@
+package com.trucktools.product.mapper;
+
+import com.trucktools.product.dto.BrandVO;
+import com.trucktools.product.entity.ProductBrandStat;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 产品品牌统计Mapper
+ */
+@Mapper
+public interface ProductBrandStatMapper {
+
+    /**
+     * 获取品牌列表（按产品数量降序排序）
+     */
+    @Select("SELECT NULLIF(brand_code, '') as brandCode, NULLIF(brand_name, '') as brandName, " +
+            "product_count as productCount, image_count as imageCount, price_min as priceMin, price_max as priceMax " +
+            "FROM t_product_brand_stat WHERE user_id = #{userId} AND product_count > 0 " +
+            "ORDER BY product_count DESC")
+    List<BrandVO> selectBrandList(@Param("userId") Long userId);
+
+    /**
+     * 累加新增产品的统计
+     */
+    int incrementBatch(@Param("stats") Collection<ProductBrandStat> stats);
+
+    /**
+     * 删除品牌统计
+     * @param brandCodes 品牌缩写，为空时删除用户的全部统计
+     */
+    int deleteByBrandCodes(@Param("userId") Long userId, @Param("brandCodes") Collection<String> brandCodes);
+
+    /**
+     * 从产品表重新汇总品牌统计（需先删除对应统计）
+     * @param brandCodes 品牌缩写，为空时汇总用户的全部产品
+     */
+    int insertFromProducts(@Param("userId") Long userId, @Param("brandCodes") Collection<String> brandCodes);
+
+    /**
+     * 有产品或品牌统计的用户
+     */
+    @Select("SELECT DISTINCT user_id FROM t_product WHERE deleted = 0 " +
+            "UNION SELECT DISTINCT user_id FROM t_product_brand_stat")
+    List<Long> selectUserIds();
+}
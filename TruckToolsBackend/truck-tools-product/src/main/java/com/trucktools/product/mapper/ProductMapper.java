@@ -1,12 +1,12 @@
 package com.trucktools.product.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
-import com.trucktools.product.dto.BrandVO;
 import com.trucktools.product.entity.Product;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -15,14 +15,6 @@ import java.util.List;
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
 
-    /**
-     * 获取品牌列表及产品数量（按产品数量降序排序）
-     */
-    @Select("SELECT brand_code as brandCode, brand_name as brandName, COUNT(*) as productCount " +
-            "FROM t_product WHERE user_id = #{userId} AND deleted = 0 " +
-            "GROUP BY brand_code, brand_name ORDER BY productCount DESC")
-    List<BrandVO> selectBrandList(@Param("userId") Long userId);
-
     /**
      * 根据OE号查询产品（精确匹配）
      */
@@ -30,22 +22,53 @@ public interface ProductMapper extends BaseMapper<Product> {
     Product selectByOeNo(@Param("userId") Long userId, @Param("oeNo") String oeNo);
 
     /**
-     * 根据OE号模糊查询产品（支持/分隔的多个OE号）
-     * 匹配规则：
-     * 1. 清除OE号中的连字符后进行匹配
-     * 2. 产品的oe_no字段可能包含多个值（用/分隔），只要有一个匹配即可
+     * 查询用户全部产品的ID和OE号（用于构建OE号索引）
+     */
+    @Select("SELECT id, oe_no FROM t_product WHERE user_id = #{userId} AND deleted = 0")
+    List<Product> selectOeNoList(@Param("userId") Long userId);
+
+    /**
+     * 查询用户全部产品的ID、OE号、XK号和品牌缩写（用于构建编号搜索索引）
+     */
+    @Select("SELECT id, oe_no, xk_no, brand_code FROM t_product WHERE user_id = #{userId} AND deleted = 0")
+    List<Product> selectSearchKeyList(@Param("userId") Long userId);
+
+    /**
+     * 按XK号精确查询产品（调用方分批传入）
+     */
+    List<Product> selectByXkNos(@Param("userId") Long userId, @Param("xkNos") Collection<String> xkNos);
+
+    /**
+     * 多行批量写入产品（调用方预先分配ID）
+     */
+    int insertBatch(@Param("products") List<Product> products);
+
+    /**
+     * 按OE号精确查询未删除的产品（只查询ID、OE号、图片、价格和备注）
+     */
+    List<Product> selectByOeNoList(@Param("userId") Long userId, @Param("oeNos") Collection<String> oeNos);
+
+    /**
+     * 多行批量写入产品，(用户, OE号)已存在时更新价格、备注和图片，更换图片时清空衍生图（调用方预先分配ID）
+     */
+    int upsertBatch(@Param("products") List<Product> products);
+
+    /**
+     * 按OE号加锁查询未删除的产品（事务内使用，查询字段同selectByOeNoList）
+     */
+    List<Product> selectByOeNoListForUpdate(@Param("userId") Long userId, @Param("oeNos") Collection<String> oeNos);
+
+    /**
+     * 写回衍生图路径，只更新图片仍为imagePath的产品
      */
-    @Select("SELECT * FROM t_product WHERE user_id = #{userId} AND deleted = 0 " +
-            "AND (REPLACE(oe_no, '-', '') = #{oeNo} " +
-            "OR REPLACE(oe_no, '-', '') LIKE CONCAT('%/', #{oeNo}, '/%') " +
-            "OR REPLACE(oe_no, '-', '') LIKE CONCAT(#{oeNo}, '/%') " +
-            "OR REPLACE(oe_no, '-', '') LIKE CONCAT('%/', #{oeNo})) " +
-            "LIMIT 1")
-    Product selectByOeNoFuzzy(@Param("userId") Long userId, @Param("oeNo") String oeNo);
+    int updateImageDerivatives(@Param("productIds") Collection<Long> productIds, @Param("imagePath") String imagePath,
+                               @Param("masterPath") String masterPath, @Param("thumbPath") String thumbPath,
+                               @Param("cellPath") String cellPath);
 
     /**
-     * 根据多个OE号查询产品
+     * 按ID顺序查询有图片但尚未生成衍生图的产品（只含id、image_path，走idx_image_pending）
      */
-    List<Product> selectByOeNos(@Param("userId") Long userId, @Param("oeNos") List<String> oeNos);
+    @Select("SELECT id, image_path FROM t_product WHERE image_pending = 1 AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Product> selectImagePending(@Param("afterId") long afterId, @Param("limit") int limit);
 }
 
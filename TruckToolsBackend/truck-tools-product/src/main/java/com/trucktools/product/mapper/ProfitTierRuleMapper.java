@@ -0,0 +1,20 @@
+package com.trucktools.product.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.trucktools.product.entity.ProfitTierRule;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 利润率阶梯规则Mapper
+ */
+@Mapper
+public interface ProfitTierRuleMapper extends BaseMapper<ProfitTierRule> {
+
+    /**
+     * 物理删除用户的全部规则（规则整体替换，不保留逻辑删除的记录）
+     */
+    @Delete("DELETE FROM t_profit_tier_rule WHERE user_id = #{userId}")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -2,6 +2,7 @@ package com.trucktools.product.service;
 
 import com.trucktools.product.dto.ImportResultDTO;
 import com.trucktools.product.dto.ImportStatusDTO;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -18,13 +19,23 @@ public interface ExcelImportService {
      */
     ImportResultDTO uploadAndParse(Long userId, MultipartFile file);
 
+    /**
+     * 上传并解析CSV+图片压缩包
+     * @param userId 用户ID
+     * @param file 产品数据CSV(UTF-8，表头: brand,xk_no,oe_no,price,remark,image_file)
+     * @param images 图片压缩包(可选，按image_file文件名匹配)
+     * @return 解析结果(预览)
+     */
+    ImportResultDTO uploadBundle(Long userId, MultipartFile file, MultipartFile images);
+
     /**
      * 执行导入
      * @param userId 用户ID
      * @param importId 导入ID
+     * @param mode 导入方式: insert=仅新增(已有OE号跳过), upsert=新增并更新已有产品的价格/备注/图片
      * @return 导入状态
      */
-    ImportStatusDTO executeImport(Long userId, String importId);
+    ImportStatusDTO executeImport(Long userId, String importId, String mode);
 
     /**
      * 获取导入状态
@@ -34,6 +45,13 @@ public interface ExcelImportService {
      */
     ImportStatusDTO getImportStatus(Long userId, String importId);
 
+    /**
+     * 下载导入变更明细(CSV)
+     * @param userId 用户ID
+     * @param importId 导入ID
+     */
+    void downloadDiff(Long userId, String importId, HttpServletRequest request, HttpServletResponse response);
+
     /**
      * 下载产品导入模板
      * @param response HTTP响应
@@ -2,6 +2,7 @@ package com.trucktools.product.service;
 
 import com.trucktools.common.core.domain.PageResult;
 import com.trucktools.product.dto.*;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -51,6 +52,11 @@ public interface ProductService {
      */
     List<ProductVO> searchByOeNo(Long userId, String oeNos);
 
+    /**
+     * 批量查找产品：按输入编号分批解析，以JSON流输出每个编号的匹配方式和产品
+     */
+    void lookup(Long userId, ProductLookupRequest request, HttpServletResponse response);
+
     /**
      * 上传产品图片
      */
@@ -0,0 +1,32 @@
+package com.trucktools.product.service;
+
+import com.trucktools.product.dto.ProfitTierRuleDTO;
+import com.trucktools.product.support.ProfitTierTable;
+
+import java.util.List;
+
+/**
+ * 利润率阶梯规则服务接口
+ */
+public interface ProfitTierService {
+
+    /**
+     * 获取用户的阶梯规则
+     * @param userId 用户ID
+     * @return 规则列表（按品牌、优先级、起始数量排序）
+     */
+    List<ProfitTierRuleDTO> listRules(Long userId);
+
+    /**
+     * 保存用户的阶梯规则（整体替换）
+     * @param userId 用户ID
+     * @param rules 规则列表，为空表示恢复系统默认阶梯
+     */
+    void saveRules(Long userId, List<ProfitTierRuleDTO> rules);
+
+    /**
+     * 获取用户编译后的阶梯表（缓存）
+     * @param userId 用户ID
+     */
+    ProfitTierTable getTable(Long userId);
+}
@@ -0,0 +1,50 @@
+package com.trucktools.product.service;
+
+import com.trucktools.product.dto.ExportJobDTO;
+import com.trucktools.product.dto.QuoteImportRequestDTO;
+import com.trucktools.product.dto.QuoteRequestDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 报价导出任务服务接口
+ */
+public interface QuoteExportJobService {
+
+    /**
+     * 是否应使用后台任务导出
+     * @param rows 导出行数
+     */
+    boolean shouldRunAsJob(int rows);
+
+    /**
+     * 提交报价单导出任务
+     * @param userId 用户ID
+     * @param request 报价请求
+     * @return 任务状态
+     */
+    ExportJobDTO submitQuoteExport(Long userId, QuoteRequestDTO request);
+
+    /**
+     * 提交报价对比导出任务
+     * @param userId 用户ID
+     * @param request 报价导入请求
+     * @return 任务状态
+     */
+    ExportJobDTO submitQuoteCompareExport(Long userId, QuoteImportRequestDTO request);
+
+    /**
+     * 获取任务状态
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     * @return 任务状态
+     */
+    ExportJobDTO getJob(Long userId, String jobId);
+
+    /**
+     * 下载导出文件
+     * @param userId 用户ID
+     * @param jobId 任务ID
+     */
+    void download(Long userId, String jobId, HttpServletRequest request, HttpServletResponse response);
+}
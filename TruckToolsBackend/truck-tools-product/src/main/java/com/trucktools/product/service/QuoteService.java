@@ -26,11 +26,14 @@ public interface QuoteService {
     void exportQuote(Long userId, QuoteRequestDTO request, HttpServletResponse response);
 
     /**
-     * 根据数量获取推荐利润率
+     * 根据用户的利润率阶梯获取推荐利润率
+     * @param userId 用户ID
      * @param quantity 数量
+     * @param brandCode 品牌缩写，可为空
+     * @param customerPriority 客户优先级，可为空
      * @return 利润率(百分比)
      */
-    java.math.BigDecimal getRecommendedProfitRate(Integer quantity);
+    java.math.BigDecimal getRecommendedProfitRate(Long userId, Integer quantity, String brandCode, Integer customerPriority);
 
     /**
      * 解析报价Excel并匹配产品
@@ -49,6 +52,31 @@ public interface QuoteService {
      */
     QuoteImportResultDTO recalculateQuoteImport(Long userId, QuoteImportRequestDTO request);
 
+    /**
+     * 基于导入会话重新计算，只需传入变化的参数和调整的行
+     * @param userId 用户ID
+     * @param importId 导入会话ID
+     * @param request 变化的参数
+     * @return 计算结果（只包含有变化的行）
+     */
+    QuoteImportResultDTO recalculateQuoteImport(Long userId, String importId, QuoteImportRecalcRequestDTO request);
+
+    /**
+     * 获取导入会话的完整数据（副本）
+     * @param userId 用户ID
+     * @param importId 导入会话ID
+     * @return 计算参数及所有行
+     */
+    QuoteImportRequestDTO getQuoteImportSnapshot(Long userId, String importId);
+
+    /**
+     * 将导入会话中已匹配的行转换为简洁格式报价单请求
+     * @param userId 用户ID
+     * @param importId 导入会话ID
+     * @return 计算参数及已匹配的报价项
+     */
+    QuoteRequestDTO getQuoteImportQuoteRequest(Long userId, String importId);
+
     /**
      * 导出报价对比Excel
      * @param userId 用户ID
@@ -1,23 +1,49 @@
 package com.trucktools.product.service.impl;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.trucktools.common.exception.BusinessException;
+import com.trucktools.common.utils.FileTransferUtils;
 import com.trucktools.product.dto.ImportResultDTO;
 import com.trucktools.product.dto.ImportStatusDTO;
 import com.trucktools.product.entity.Product;
 import com.trucktools.product.entity.ProductImport;
+import com.trucktools.product.entity.ProductImportCheckpoint;
 import com.trucktools.product.mapper.ProductImportMapper;
 import com.trucktools.product.mapper.ProductMapper;
 import com.trucktools.product.service.ExcelImportService;
+import com.trucktools.product.support.ImageBlobStore;
+import com.trucktools.product.support.ImportDiffWriter;
+import com.trucktools.product.support.ImportImageSource;
+import com.trucktools.product.support.ImportMetrics;
+import com.trucktools.product.support.ImportRowFile;
+import com.trucktools.product.support.ProductBrandStats;
+import com.trucktools.product.support.ProductCsvReader;
+import com.trucktools.product.support.ProductImageProcessor;
+import com.trucktools.product.support.ProductIndexMaintainer;
+import com.trucktools.product.support.ProductSheetReader;
+import com.trucktools.product.support.XlsxImageExtractor;
+import com.trucktools.product.support.ZipImageSource;
+import com.trucktools.product.utils.OeNoUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.*;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
@@ -29,11 +55,18 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Excel导入服务实现
+ * 导入由独立的有界线程池在请求外执行，进度随批次及每隔一定行数写回导入记录；
+ * 各Sheet的读取和图片提取由共用的Sheet线程池并行执行（上传预览使用单独的线程池），写入仍由导入线程单线程分批完成；
+ * 每批提交时在同一事务中记录各Sheet的断点，服务重启后从断点继续
  */
 @Slf4j
 @Service
@@ -42,14 +75,63 @@ public class ExcelImportServiceImpl implements ExcelImportService {
 
     private final ProductMapper productMapper;
     private final ProductImportMapper productImportMapper;
+    private final ProductIndexMaintainer productIndexMaintainer;
+    private final ProductBrandStats productBrandStats;
+    private final ProductImageProcessor productImageProcessor;
+    private final ImageBlobStore imageBlobStore;
+    private final ImportMetrics importMetrics;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${app.upload.path:./uploads}")
     private String uploadPath;
 
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.progress-interval:200}")
+    private int progressInterval;
+
+    @Value("${app.import.threads:2}")
+    private int importThreads;
+
+    @Value("${app.import.queue-capacity:20}")
+    private int importQueueCapacity;
+
+    @Value("${app.import.sheet-threads:4}")
+    private int sheetThreads;
+
+    @Value("${app.import.preview-threads:4}")
+    private int previewThreads;
+
+    private ThreadPoolExecutor executor;
+
+    // 执行导入的Sheet读取任务，写入队列已满时会阻塞等待
+    private ThreadPoolExecutor sheetExecutor;
+
+    // 上传预览的Sheet解析任务，请求线程同步等待，不与导入共用线程
+    private ThreadPoolExecutor previewExecutor;
+
+    private volatile boolean stopping;
+
     // 价格解析正则
     private static final Pattern PRICE_RANGE_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)[\\-~—](\\d+(?:\\.\\d+)?)");
     private static final Pattern PRICE_SINGLE_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)");
 
+    // 图片所在列（D列）
+    private static final int IMAGE_COLUMN = 3;
+
+    // 导入方式：新增并更新
+    private static final String MODE_UPSERT = "upsert";
+
+    // CSV+图片压缩包格式的数据文件后缀
+    private static final String CSV_SUFFIX = ".csv";
+
+    // 逐行重试时非数据错误的最多尝试次数
+    private static final int ROW_RETRY_TIMES = 3;
+
+    // 继续未完成的导入时导入队列已满的重试间隔（毫秒）
+    private static final long RESUME_RETRY_MILLIS = 1000L;
+
     @Override
     public ImportResultDTO uploadAndParse(Long userId, MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -61,28 +143,64 @@ public class ExcelImportServiceImpl implements ExcelImportService {
             throw new BusinessException("仅支持.xlsx格式的Excel文件");
         }
 
+        return saveAndParse(userId, file, null, ".xlsx");
+    }
+
+    @Override
+    public ImportResultDTO uploadBundle(Long userId, MultipartFile file, MultipartFile images) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("请选择CSV文件");
+        }
+
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || !originalFilename.toLowerCase().endsWith(CSV_SUFFIX)) {
+            throw new BusinessException("产品数据仅支持.csv格式的文件");
+        }
+        if (images != null && images.isEmpty()) {
+            images = null;
+        }
+        if (images != null && (images.getOriginalFilename() == null
+                || !images.getOriginalFilename().toLowerCase().endsWith(".zip"))) {
+            throw new BusinessException("产品图片仅支持.zip格式的压缩包");
+        }
+
+        return saveAndParse(userId, file, images, CSV_SUFFIX);
+    }
+
+    /**
+     * 保存上传文件（图片压缩包保存在数据文件旁），创建导入记录并解析预览
+     */
+    private ImportResultDTO saveAndParse(Long userId, MultipartFile file, MultipartFile images, String suffix) {
         try {
             // 保存上传文件
             String dateDir = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-            String savedFileName = IdUtil.fastSimpleUUID() + ".xlsx";
+            String savedFileName = IdUtil.fastSimpleUUID() + suffix;
             Path uploadDir = Paths.get(uploadPath, "imports", dateDir);
             Files.createDirectories(uploadDir);
             Path filePath = uploadDir.resolve(savedFileName);
             file.transferTo(filePath.toFile());
+            long fileSize = file.getSize();
+            if (images != null) {
+                images.transferTo(ZipImageSource.pathFor(filePath.toString()).toFile());
+                fileSize += images.getSize();
+            }
 
             // 创建导入记录
             ProductImport importRecord = new ProductImport();
             importRecord.setUserId(userId);
-            importRecord.setFileName(originalFilename);
+            importRecord.setFileName(file.getOriginalFilename());
             importRecord.setFilePath(filePath.toString());
-            importRecord.setFileSize(file.getSize());
+            importRecord.setFileSize(fileSize);
             importRecord.setStatus(0);
             productImportMapper.insert(importRecord);
 
-            // 解析Excel
-            ImportResultDTO result = parseExcel(filePath.toFile(), userId);
+            // 解析文件
+            long parseStart = System.nanoTime();
+            ImportResultDTO result = parseUpload(filePath.toFile());
+            importMetrics.recordPreview(formatOf(filePath.toString()), result.getTotalProducts(),
+                    System.nanoTime() - parseStart);
             result.setImportId(String.valueOf(importRecord.getId()));
-            result.setFileName(originalFilename);
+            result.setFileName(file.getOriginalFilename());
 
             // 更新导入记录
             importRecord.setTotalRows(result.getTotalProducts());
@@ -91,197 +209,651 @@ public class ExcelImportServiceImpl implements ExcelImportService {
             return result;
 
         } catch (IOException e) {
-            log.error("Excel文件处理失败", e);
+            log.error("导入文件处理失败", e);
             throw new BusinessException("文件处理失败: " + e.getMessage());
         }
     }
 
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(importThreads, importThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(importQueueCapacity), new CustomizableThreadFactory("product-import-"));
+        // Sheet任务数受导入并发数及工作簿Sheet数限制，排队不设上限，避免导入线程提交时被拒绝
+        sheetExecutor = new ThreadPoolExecutor(sheetThreads, sheetThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("product-import-sheet-"));
+        previewExecutor = new ThreadPoolExecutor(previewThreads, previewThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("product-import-preview-"));
+    }
+
+    /**
+     * 停止时正在执行的导入在当前批次提交后退出，保持处理中状态，下次启动时继续
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("产品导入线程未在30秒内结束");
+            executor.shutdownNow();
+        }
+        sheetExecutor.shutdownNow();
+        previewExecutor.shutdownNow();
+    }
+
+    /**
+     * 启动后在后台线程中重新提交上次停止时未完成的导入（未完成的记录可能多于导入队列容量）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedImports() {
+        List<ProductImport> interrupted = productImportMapper.selectList(new LambdaQueryWrapper<ProductImport>()
+                .eq(ProductImport::getStatus, 1)
+                .orderByAsc(ProductImport::getStartedAt));
+        if (interrupted.isEmpty()) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-import-resume-");
+        threadFactory.setDaemon(true);
+        threadFactory.newThread(() -> resume(interrupted)).start();
+    }
+
+    /**
+     * 按开始时间依次提交，导入队列已满时等待后重试，不丢弃记录；服务停止时剩余记录保持处理中，下次启动时继续
+     */
+    private void resume(List<ProductImport> interrupted) {
+        for (ProductImport importRecord : interrupted) {
+            while (true) {
+                if (stopping) {
+                    return;
+                }
+                try {
+                    executor.execute(() -> doImport(importRecord));
+                    log.info("继续未完成的产品导入: importId={}", importRecord.getId());
+                    break;
+                } catch (RejectedExecutionException e) {
+                    try {
+                        Thread.sleep(RESUME_RETRY_MILLIS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public ImportStatusDTO executeImport(Long userId, String importId) {
+    public ImportStatusDTO executeImport(Long userId, String importId, String mode) {
         ProductImport importRecord = productImportMapper.selectById(Long.parseLong(importId));
         if (importRecord == null || !importRecord.getUserId().equals(userId)) {
             throw new BusinessException("导入记录不存在");
         }
-
-        if (importRecord.getStatus() != 0) {
+        int importMode = MODE_UPSERT.equals(mode) ? 1 : 0;
+
+        // 条件更新认领任务：只有待处理的记录能转为处理中，重复提交时更新行数为0
+        LocalDateTime startedAt = LocalDateTime.now();
+        int claimed = productImportMapper.update(null, new LambdaUpdateWrapper<ProductImport>()
+                .set(ProductImport::getStatus, 1)
+                .set(ProductImport::getMode, importMode)
+                .set(ProductImport::getStartedAt, startedAt)
+                .eq(ProductImport::getId, importRecord.getId())
+                .eq(ProductImport::getStatus, 0));
+        if (claimed == 0) {
             throw new BusinessException("该导入任务已处理");
         }
-
-        // 更新状态为处理中
         importRecord.setStatus(1);
-        importRecord.setStartedAt(LocalDateTime.now());
-        productImportMapper.updateById(importRecord);
+        importRecord.setMode(importMode);
+        importRecord.setStartedAt(startedAt);
 
-        // 执行导入
-        doImport(importRecord);
+        try {
+            executor.execute(() -> doImport(importRecord));
+        } catch (RejectedExecutionException e) {
+            productImportMapper.update(null, new LambdaUpdateWrapper<ProductImport>()
+                    .set(ProductImport::getStatus, 0)
+                    .set(ProductImport::getStartedAt, null)
+                    .eq(ProductImport::getId, importRecord.getId()));
+            throw new BusinessException("导入任务较多，请稍后再试");
+        }
 
         return getImportStatus(userId, importId);
     }
 
-    @Async
-    protected void doImport(ProductImport importRecord) {
+    /**
+     * 执行导入：读取预览时生成的行文件，不再重新解析xlsx或CSV；各Sheet分段在Sheet线程池中并行读取并保存图片，
+     * 产品经有界队列交给当前线程按批多行写入，每批独立提交；跳过和失败的行每隔一定行数写回一次进度。
+     * 仅新增时已有OE号一次性预取到共享的并发集合并跳过；新增并更新时按批查询已有产品，只写入有变化的行。
+     * 有断点时（服务停止后继续）恢复各Sheet计数，已完成的Sheet不再读取，其余Sheet从断点行继续
+     */
+    private void doImport(ProductImport importRecord) {
+        long start = System.currentTimeMillis();
+        ImportProgress progress = new ImportProgress(importRecord);
+        boolean upsert = importRecord.getMode() != null && importRecord.getMode() == 1;
+        ImportRun run = new ImportRun(importRecord.getUserId(), upsert, ImportRowFile.pathFor(importRecord.getFilePath()),
+                importMetrics.start());
         try {
             File file = new File(importRecord.getFilePath());
-            Long userId = importRecord.getUserId();
-
-            int successCount = 0;
-            int failedCount = 0;
-            int skippedCount = 0;
-
-            String dateDir = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
 
-            try (FileInputStream fis = new FileInputStream(file);
-                 XSSFWorkbook workbook = new XSSFWorkbook(fis)) {
+            // 行文件缺失时（如升级前上传的文件）重新解析生成
+            if (!Files.exists(run.rowFile)) {
+                parseUpload(file);
+            }
+            List<ImportRowFile.SheetSegment> segments = ImportRowFile.readIndex(run.rowFile);
+            seedCheckpointRows(run, segments, progress.checkpoint);
 
-                for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
-                    XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
-                    String sheetName = sheet.getSheetName();
+            // 仅新增时预取已有OE号，与本次导入已读取的OE号共用一个集合，保证跨Sheet去重
+            if (!run.upsert) {
+                for (Product product : productMapper.selectOeNoList(run.userId)) {
+                    run.seenOeNos.add(OeNoUtils.dedupeKey(product.getOeNo()));
+                }
+            }
 
-                    // 跳过空Sheet
-                    if (sheet.getPhysicalNumberOfRows() < 3) {
+            List<Future<?>> futures = new ArrayList<>();
+            try (ImportImageSource imageSource = openImageSource(file);
+                 ImportDiffWriter diff = ImportDiffWriter.open(ImportDiffWriter.pathFor(importRecord.getFilePath()))) {
+                for (ImportRowFile.SheetSegment segment : segments) {
+                    SheetStats sheet = new SheetStats(segment.getSheetName());
+                    ProductImportCheckpoint.SheetCheckpoint sheetCheckpoint =
+                            progress.checkpoint.getSheets().get(segment.getSheetName());
+                    if (sheetCheckpoint != null) {
+                        sheet.restore(sheetCheckpoint);
+                    }
+                    progress.sheets.add(sheet);
+                    if (sheetCheckpoint != null && sheetCheckpoint.isDone()) {
                         continue;
                     }
-
-                    // 提取当前Sheet的图片，按行号索引
-                    Map<Integer, String> rowImageMap = extractSheetImages(sheet, dateDir);
-
-                    // 第一行获取品牌缩写
-                    Row brandRow = sheet.getRow(0);
-                    String brandCode = getCellStringValue(brandRow.getCell(0));
-
-                    // 品牌全称从Sheet名称解析
-                    String brandName = sheetName;
-
-                    // 从第3行开始读取数据
-                    for (int rowIndex = 2; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-                        Row row = sheet.getRow(rowIndex);
-                        if (row == null) continue;
-
+                    int startRow = sheetCheckpoint != null ? sheetCheckpoint.getNextRow() : 0;
+                    futures.add(sheetExecutor.submit(run.probe.wrap(() -> {
+                        readSheet(run, segment, imageSource, sheet, startRow);
+                        return null;
+                    })));
+                }
+                progress.markBaseline();
+
+                try {
+                    writeProducts(run, futures, progress, diff, start);
+                } finally {
+                    // 写入结束（含出错）后通知仍在读取的Sheet退出，并等待其释放文件
+                    run.aborted.set(true);
+                    for (Future<?> future : futures) {
                         try {
-                            // 读取数据
-                            String xkNo = getCellStringValue(row.getCell(1));    // B列: XK NO.
-                            String oeNo = getCellStringValue(row.getCell(2));    // C列: OE NO.
-                            String priceStr = getCellStringValue(row.getCell(4)); // E列: 售价
-                            String remark = getCellStringValue(row.getCell(5));  // F列: 备注
-
-                            // 跳过空行
-                            if (StrUtil.isBlank(xkNo) && StrUtil.isBlank(oeNo)) {
-                                continue;
-                            }
-
-                            // 检查是否已存在
-                            Product existing = productMapper.selectByOeNo(userId, oeNo);
-                            if (existing != null) {
-                                skippedCount++;
-                                continue;
-                            }
-
-                            // 解析价格
-                            BigDecimal[] prices = parsePrice(priceStr);
-
-                            // 获取该行对应的图片路径
-                            String imagePath = rowImageMap.get(rowIndex);
-
-                            // 创建产品
-                            Product product = new Product();
-                            product.setUserId(userId);
-                            product.setBrandCode(brandCode);
-                            product.setBrandName(brandName);
-                            product.setXkNo(xkNo);
-                            product.setOeNo(oeNo);
-                            product.setImagePath(imagePath);
-                            product.setPriceMin(prices[0]);
-                            product.setPriceMax(prices[1]);
-                            product.setPriceAvg(prices[2]);
-                            product.setRemark(remark);
-
-                            productMapper.insert(product);
-                            successCount++;
-
-                        } catch (Exception e) {
-                            log.warn("导入第{}行失败: {}", rowIndex + 1, e.getMessage());
-                            failedCount++;
+                            future.get();
+                        } catch (ExecutionException | CancellationException ignored) {
+                            // 错误已由写入循环处理
                         }
                     }
                 }
             }
+            refreshBrandStats(run);
+
+            for (SheetStats sheet : progress.sheets) {
+                if (sheet.processed() > 0) {
+                    log.info("Sheet [{}] 导入: success={}, updated={}, unchanged={}, skipped={}, failed={}",
+                            sheet.sheetName, sheet.successCount.get(), sheet.updatedCount.get(),
+                            sheet.unchangedCount.get(), sheet.skippedCount.get(), sheet.failedCount.get());
+                }
+            }
+
+            if (stopping) {
+                // 保持处理中状态，下次启动时从断点继续
+                progress.apply(start, List.of());
+                productImportMapper.updateById(importRecord);
+                recordImportMetrics(run, progress);
+                log.info("服务停止，产品导入中断: importId={}", importRecord.getId());
+                return;
+            }
 
             // 更新导入记录
-            importRecord.setSuccessCount(successCount);
-            importRecord.setFailedCount(failedCount);
-            importRecord.setSkippedCount(skippedCount);
+            progress.apply(start, List.of());
             importRecord.setStatus(2);
             importRecord.setCompletedAt(LocalDateTime.now());
             productImportMapper.updateById(importRecord);
+            deleteRowFile(importRecord);
+            recordImportMetrics(run, progress);
+            log.info("产品导入完成: importId={}, success={}, updated={}, unchanged={}, skipped={}, failed={}, {}行/秒",
+                    importRecord.getId(), importRecord.getSuccessCount(), importRecord.getUpdatedCount(),
+                    importRecord.getUnchangedCount(), importRecord.getSkippedCount(),
+                    importRecord.getFailedCount(), importRecord.getRowsPerSecond());
 
         } catch (Exception e) {
+            refreshBrandStats(run);
+            if (stopping) {
+                // 服务停止时写入出错：保持处理中状态，下次启动时从断点继续
+                log.warn("服务停止，产品导入中断: importId={}, error={}", importRecord.getId(), e.getMessage());
+                progress.apply(start, List.of());
+                productImportMapper.updateById(importRecord);
+                return;
+            }
             log.error("导入失败", e);
+            progress.apply(start, List.of());
             importRecord.setStatus(3);
             importRecord.setErrorMessage(e.getMessage());
             importRecord.setCompletedAt(LocalDateTime.now());
             productImportMapper.updateById(importRecord);
+            deleteRowFile(importRecord);
         }
     }
 
     /**
-     * 提取Sheet中的图片，返回行号->图片路径的映射
+     * 重新汇总本次导入更新过的品牌（新增的产品已在写入时累加），失败时由定时校准修正
      */
-    private Map<Integer, String> extractSheetImages(XSSFSheet sheet, String dateDir) {
-        Map<Integer, String> rowImageMap = new HashMap<>();
+    private void refreshBrandStats(ImportRun run) {
+        try {
+            productBrandStats.refresh(run.userId, run.updatedBrandCodes);
+        } catch (Exception e) {
+            log.warn("更新品牌统计失败: userId={}, {}", run.userId, e.getMessage());
+        }
+    }
+
+    private void recordImportMetrics(ImportRun run, ImportProgress progress) {
+        importMetrics.recordImport(formatOf(progress.importRecord.getFilePath()), run.upsert ? MODE_UPSERT : "insert",
+                progress.rowsThisRun(), run.probe);
+    }
 
+    /**
+     * 导入结束后删除行文件（服务停止中断时保留，供继续导入使用）
+     */
+    private void deleteRowFile(ProductImport importRecord) {
         try {
-            XSSFDrawing drawing = sheet.getDrawingPatriarch();
-            if (drawing == null) {
-                return rowImageMap;
+            Files.deleteIfExists(ImportRowFile.pathFor(importRecord.getFilePath()));
+        } catch (IOException e) {
+            log.warn("删除导入行文件失败: importId={}, error={}", importRecord.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 继续导入前，把已提交断点之前的行的OE号加入共享集合，使跨Sheet及文件内的去重结果与中断前一致。
+     * OE号的认领与放入写入队列在同一把锁内完成，因重复跳过的行被断点越过时，认领该OE号的行已提交或已判定为无效
+     */
+    private void seedCheckpointRows(ImportRun run, List<ImportRowFile.SheetSegment> segments,
+                                    ProductImportCheckpoint checkpoint) throws IOException {
+        for (ImportRowFile.SheetSegment segment : segments) {
+            ProductImportCheckpoint.SheetCheckpoint sheetCheckpoint = checkpoint.getSheets().get(segment.getSheetName());
+            if (sheetCheckpoint == null) {
+                continue;
             }
+            ImportRowFile.read(run.rowFile, segment, row -> {
+                if (sheetCheckpoint.isDone() || row.getRowIndex() < sheetCheckpoint.getNextRow()) {
+                    run.seenOeNos.add(OeNoUtils.dedupeKey(row.getOeNo()));
+                }
+            });
+        }
+    }
+
+    /**
+     * 读取单个Sheet分段（在Sheet线程池中执行）：从断点行起逐行生成产品放入写入队列，读取完成后放入完成标记；
+     * 只为需要写入的行保存图片，同一Sheet内相同的图片条目只保存一次
+     */
+    private void readSheet(ImportRun run, ImportRowFile.SheetSegment segment, ImportImageSource imageSource,
+                           SheetStats sheet, int startRow) throws IOException {
+        Map<String, String> savedMedia = new HashMap<>();
+        List<ImportRowFile.ImportRow> chunk = new ArrayList<>();
+
+        ImportRowFile.read(run.rowFile, segment, row -> {
+            run.checkAborted();
+            if (row.getRowIndex() < startRow) {
+                return;
+            }
+            if (run.upsert) {
+                chunk.add(row);
+                if (chunk.size() >= batchSize) {
+                    matchChunk(run, segment, imageSource, sheet, chunk, savedMedia);
+                    chunk.clear();
+                }
+                return;
+            }
+
+            // 检查是否已存在（已有的直接跳过，不保存图片）
+            String key = OeNoUtils.dedupeKey(row.getOeNo());
+            if (run.seenOeNos.contains(key)) {
+                sheet.skippedCount.incrementAndGet();
+                return;
+            }
+            Product product = newProduct(run.userId, segment, row);
+            product.setImagePath(saveImage(imageSource, row.getMediaPath(), savedMedia));
+            if (!run.claim(key, () -> new SheetProduct(sheet, row.getRowIndex(), product, null))) {
+                sheet.skippedCount.incrementAndGet();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            matchChunk(run, segment, imageSource, sheet, chunk, savedMedia);
+        }
+        run.enqueue(SheetProduct.sheetDone(sheet));
+    }
 
-            for (XSSFShape shape : drawing.getShapes()) {
-                if (shape instanceof XSSFPicture) {
-                    XSSFPicture picture = (XSSFPicture) shape;
-                    XSSFClientAnchor anchor = picture.getClientAnchor();
-                    if (anchor == null) continue;
+    /**
+     * 新增并更新：按批查询已有产品并逐行比较价格、备注和图片，只把新增和有变化的行放入写入队列；
+     * 文件内重复的OE号按行顺序跳过，文件中没有图片时保留原图片，图片内容与原图片相同时不重新保存
+     */
+    private void matchChunk(ImportRun run, ImportRowFile.SheetSegment segment, ImportImageSource imageSource,
+                            SheetStats sheet, List<ImportRowFile.ImportRow> chunk, Map<String, String> savedMedia) {
+        Set<String> oeNos = new HashSet<>();
+        for (ImportRowFile.ImportRow row : chunk) {
+            oeNos.add(row.getOeNo());
+        }
+        Map<String, Product> existing = new HashMap<>();
+        for (Product product : productMapper.selectByOeNoList(run.userId, oeNos)) {
+            existing.put(OeNoUtils.dedupeKey(product.getOeNo()), product);
+        }
 
-                    int row1 = anchor.getRow1();
-                    int col1 = anchor.getCol1();
+        for (ImportRowFile.ImportRow row : chunk) {
+            String key = OeNoUtils.dedupeKey(row.getOeNo());
+            if (run.seenOeNos.contains(key)) {
+                sheet.skippedCount.incrementAndGet();
+                continue;
+            }
+            Product current = existing.get(key);
+            Product product = newProduct(run.userId, segment, row);
+            if (current == null) {
+                product.setImagePath(saveImage(imageSource, row.getMediaPath(), savedMedia));
+            } else {
+                String imagePath = current.getImagePath();
+                if (row.getMediaPath() != null && !sameImage(imageSource, current.getImagePath(), row.getMediaPath())) {
+                    String saved = saveImage(imageSource, row.getMediaPath(), savedMedia);
+                    imagePath = saved != null ? saved : imagePath;
+                }
+                product.setImagePath(imagePath);
+            }
 
-                    // 只处理D列(第3列，索引为3)的图片
-                    if (col1 == 3) {
-                        try {
-                            XSSFPictureData pictureData = picture.getPictureData();
-                            if (pictureData == null) continue;
-
-                            byte[] data = pictureData.getData();
-                            String ext = pictureData.suggestFileExtension();
-                            if (StrUtil.isBlank(ext)) {
-                                ext = "jpg";
-                            }
-
-                            // 保存图片
-                            String savedFileName = IdUtil.fastSimpleUUID() + "." + ext;
-                            Path saveDir = Paths.get(uploadPath, "products", dateDir);
-                            Files.createDirectories(saveDir);
-                            Path savePath = saveDir.resolve(savedFileName);
-                            Files.write(savePath, data);
-
-                            String relativePath = "/uploads/products/" + dateDir + "/" + savedFileName;
-                            rowImageMap.put(row1, relativePath);
-                            
-                            log.debug("提取图片: Sheet={}, Row={}, Col={}, Path={}", 
-                                    sheet.getSheetName(), row1, col1, relativePath);
-
-                        } catch (Exception e) {
-                            log.warn("保存图片失败: Row={}, Error={}", row1, e.getMessage());
-                        }
-                    }
+            boolean unchanged = current != null && isUnchanged(current, product);
+            boolean claimed = run.claim(key, () -> {
+                if (unchanged) {
+                    sheet.unchangedCount.incrementAndGet();
+                    return null;
+                }
+                return new SheetProduct(sheet, row.getRowIndex(), product, current);
+            });
+            if (!claimed) {
+                sheet.skippedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 创建产品（品牌缩写取第一行，品牌全称取Sheet名称），价格按数据库精度保留两位小数
+     */
+    private Product newProduct(Long userId, ImportRowFile.SheetSegment segment, ImportRowFile.ImportRow row) {
+        Product product = new Product();
+        product.setId(IdWorker.getId());
+        product.setUserId(userId);
+        product.setBrandCode(segment.getBrandCode());
+        product.setBrandName(segment.getSheetName());
+        product.setXkNo(row.getXkNo());
+        product.setOeNo(row.getOeNo());
+        product.setPriceMin(scalePrice(row.getPriceMin()));
+        product.setPriceMax(scalePrice(row.getPriceMax()));
+        product.setPriceAvg(scalePrice(row.getPriceAvg()));
+        product.setRemark(row.getRemark());
+        return product;
+    }
+
+    private BigDecimal scalePrice(BigDecimal price) {
+        return price != null ? price.setScale(2, RoundingMode.HALF_UP) : null;
+    }
+
+    /**
+     * 价格、备注和图片都与已有产品相同（备注空值与空字符串视为相同）
+     */
+    private boolean isUnchanged(Product current, Product product) {
+        return samePrice(current.getPriceMin(), product.getPriceMin())
+                && samePrice(current.getPriceMax(), product.getPriceMax())
+                && samePrice(current.getPriceAvg(), product.getPriceAvg())
+                && StrUtil.nullToEmpty(current.getRemark()).equals(StrUtil.nullToEmpty(product.getRemark()))
+                && Objects.equals(current.getImagePath(), product.getImagePath());
+    }
+
+    private boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    /**
+     * 图片条目内容是否与已有图片相同，只比较SHA-256，不保存文件
+     */
+    private boolean sameImage(ImportImageSource extractor, String imagePath, String mediaPath) {
+        if (!imageBlobStore.isBlobPath(imagePath)) {
+            return false;
+        }
+        try (InputStream in = extractor.openMedia(mediaPath)) {
+            return imageBlobStore.sameContent(imagePath, in);
+        } catch (IOException e) {
+            log.warn("比较图片失败: {}, Error={}", mediaPath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 单线程消费写入队列：凑满一批即写入；所有Sheet读取完成且队列清空后结束，任一Sheet读取出错时抛出
+     */
+    private void writeProducts(ImportRun run, List<Future<?>> futures, ImportProgress progress,
+                               ImportDiffWriter diff, long start) throws Exception {
+        List<SheetProduct> batch = new ArrayList<>(batchSize);
+        while (!stopping) {
+            SheetProduct item = run.queue.poll(200, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                batch.add(item);
+                run.queue.drainTo(batch, batchSize - batch.size());
+                if (batch.size() >= batchSize) {
+                    flushBatch(run, batch, progress, diff, start);
+                }
+                continue;
+            }
+
+            boolean allDone = true;
+            for (Future<?> future : futures) {
+                if (!future.isDone()) {
+                    allDone = false;
+                } else {
+                    checkSheetFailure(future);
                 }
             }
+            if (allDone && run.queue.isEmpty()) {
+                break;
+            }
+            if (progress.rowsSinceFlush() >= progressInterval) {
+                progress.apply(start, List.of());
+                productImportMapper.updateById(progress.importRecord);
+            }
+        }
+        flushBatch(run, batch, progress, diff, start);
+    }
+
+    private void checkSheetFailure(Future<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException && stopping) {
+                return;
+            }
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * 在独立事务中写入一批产品及其OE令牌，并同步更新导入进度和断点；
+     * 整批写入失败时逐行重试，只有数据无效的行计为失败。成功数在提交后才计入各Sheet，并写入变更明细
+     */
+    private void flushBatch(ImportRun run, List<SheetProduct> batch, ImportProgress progress, ImportDiffWriter diff,
+                            long start) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long batchStart = System.nanoTime();
+        List<SheetProduct> products = new ArrayList<>(batch.size());
+        for (SheetProduct item : batch) {
+            if (item.product != null) {
+                products.add(item);
+            }
+        }
+
+        boolean committed = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!products.isEmpty()) {
+                    persist(run, products);
+                }
+                progress.apply(start, products);
+                progress.stageCheckpoint(batch);
+                productImportMapper.updateById(progress.importRecord);
+            });
+            committed = true;
         } catch (Exception e) {
-            log.warn("提取Sheet图片失败: {}", e.getMessage());
+            progress.rollbackCheckpoint();
+            log.warn("批量写入{}条产品失败，改为逐行写入: {}", products.size(), e.getMessage());
+        }
+
+        if (committed) {
+            progress.commitCheckpoint();
+            for (SheetProduct item : products) {
+                item.committed(diff);
+            }
+        } else {
+            for (SheetProduct item : batch) {
+                if (item.product != null) {
+                    Exception rowError = persistRow(run, item, progress);
+                    if (rowError == null) {
+                        item.committed(diff);
+                        continue;
+                    }
+                    log.warn("导入产品失败: oeNo={}, error={}", item.product.getOeNo(), rowError.getMessage());
+                    item.failed = true;
+                    item.sheet.failedCount.incrementAndGet();
+                    diff.failed(item.sheet.sheetName, item.product, rowError.getMessage());
+                }
+                // 数据无效的行和Sheet完成标记直接推进断点
+                progress.stageCheckpoint(List.of(item));
+                productImportMapper.updateById(progress.importRecord);
+                progress.commitCheckpoint();
+            }
+            progress.apply(start, List.of());
+            productImportMapper.updateById(progress.importRecord);
+        }
+        diff.flush();
+        run.probe.sampleHeap();
+        importMetrics.recordBatch(products.size(), System.nanoTime() - batchStart);
+        batch.clear();
+    }
+
+    /**
+     * 逐行重试时单独提交一行，同时推进断点
+     * 数据本身无效（如超长、违反约束）时返回错误，由调用方计为失败并推进断点；其他错误（锁等待超时、连接中断等）
+     * 间隔重试，仍失败时抛出并结束本次导入，断点停在该行之前
+     * @return 数据无效时的错误，写入成功时返回null
+     */
+    private Exception persistRow(ImportRun run, SheetProduct item, ImportProgress progress) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    persist(run, List.of(item));
+                    progress.stageCheckpoint(List.of(item));
+                    productImportMapper.updateById(progress.importRecord);
+                });
+                progress.commitCheckpoint();
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                progress.rollbackCheckpoint();
+                return e;
+            } catch (RuntimeException e) {
+                progress.rollbackCheckpoint();
+                if (attempt >= ROW_RETRY_TIMES || stopping) {
+                    throw e;
+                }
+                log.warn("写入产品失败，{}秒后重试: oeNo={}, error={}", attempt, item.product.getOeNo(), e.getMessage());
+                try {
+                    Thread.sleep(attempt * 1000L);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入产品：新增的产品同步OE令牌并增加图片引用，更新的产品OE号不变，只在换图时调整图片引用；
+     * 有新图片的产品在提交后生成衍生图
+     */
+    private void persist(ImportRun run, List<SheetProduct> items) {
+        if (run.upsert) {
+            lockCreated(run, items);
+        }
+        List<Product> products = new ArrayList<>(items.size());
+        List<Product> created = new ArrayList<>();
+        List<String> retained = new ArrayList<>();
+        List<String> released = new ArrayList<>();
+        Map<Long, String> images = new HashMap<>();
+        for (SheetProduct item : items) {
+            products.add(item.product);
+            if (item.existing == null) {
+                created.add(item.product);
+                retained.add(item.product.getImagePath());
+                images.put(item.product.getId(), item.product.getImagePath());
+            } else {
+                run.updatedBrandCodes.add(Objects.toString(item.existing.getBrandCode(), ""));
+                if (!Objects.equals(item.existing.getImagePath(), item.product.getImagePath())) {
+                    retained.add(item.product.getImagePath());
+                    released.add(item.existing.getImagePath());
+                    // 按唯一键更新，已有产品的ID不变
+                    images.put(item.existing.getId(), item.product.getImagePath());
+                }
+            }
         }
+        if (run.upsert) {
+            productMapper.upsertBatch(products);
+        } else {
+            productMapper.insertBatch(products);
+        }
+        productIndexMaintainer.afterInsert(run.userId, created);
+        productBrandStats.onInserted(run.userId, created);
+        imageBlobStore.retain(retained);
+        imageBlobStore.release(released);
+        productImageProcessor.submit(images);
+    }
 
-        log.info("Sheet [{}] 提取到 {} 张图片", sheet.getSheetName(), rowImageMap.size());
-        return rowImageMap;
+    /**
+     * 新增并更新：预读之后其他请求可能已新增相同OE号的产品，写入前加锁重新读取待新增的行，
+     * 已存在的改为更新该产品（按唯一键更新，不使用预分配的ID），图片引用计数、品牌统计和变更明细都按更新处理
+     */
+    private void lockCreated(ImportRun run, List<SheetProduct> items) {
+        Map<String, SheetProduct> pending = new HashMap<>();
+        for (SheetProduct item : items) {
+            if (item.existing == null) {
+                pending.put(OeNoUtils.dedupeKey(item.product.getOeNo()), item);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> oeNos = pending.values().stream().map(item -> item.product.getOeNo()).toList();
+        for (Product current : productMapper.selectByOeNoListForUpdate(run.userId, oeNos)) {
+            SheetProduct item = pending.get(OeNoUtils.dedupeKey(current.getOeNo()));
+            if (item != null) {
+                item.existing = current;
+            }
+        }
+    }
+
+    /**
+     * 保存行对应的图片，返回图片路径
+     * 图片从xlsx压缩包直接流式写入内容寻址存储，内容相同的图片复用已有文件；保存失败时产品不带图片
+     */
+    private String saveImage(ImportImageSource extractor, String mediaPath, Map<String, String> savedMedia) {
+        if (mediaPath == null) {
+            return null;
+        }
+        String relativePath = savedMedia.get(mediaPath);
+        if (relativePath != null) {
+            return relativePath;
+        }
+        String ext = FileUtil.extName(mediaPath).toLowerCase();
+        if (StrUtil.isBlank(ext)) {
+            ext = "jpg";
+        }
+        try (InputStream in = extractor.openMedia(mediaPath)) {
+            relativePath = imageBlobStore.save(in, ext);
+        } catch (Exception e) {
+            log.warn("保存图片失败: {}, Error={}", mediaPath, e.getMessage());
+            return null;
+        }
+        savedMedia.put(mediaPath, relativePath);
+        return relativePath;
     }
 
     @Override
@@ -293,13 +865,19 @@ public class ExcelImportServiceImpl implements ExcelImportService {
 
         ImportStatusDTO status = new ImportStatusDTO();
         status.setImportId(importId);
+        status.setMode(Integer.valueOf(1).equals(importRecord.getMode()) ? MODE_UPSERT : "insert");
         status.setTotalRows(importRecord.getTotalRows());
         status.setSuccessCount(importRecord.getSuccessCount());
+        status.setUpdatedCount(importRecord.getUpdatedCount());
+        status.setUnchangedCount(importRecord.getUnchangedCount());
         status.setFailedCount(importRecord.getFailedCount());
         status.setSkippedCount(importRecord.getSkippedCount());
+        status.setRowsPerSecond(importRecord.getRowsPerSecond());
         status.setStartedAt(importRecord.getStartedAt());
         status.setCompletedAt(importRecord.getCompletedAt());
         status.setErrorMessage(importRecord.getErrorMessage());
+        status.setDiffAvailable(importRecord.getStatus() >= 2
+                && Files.exists(ImportDiffWriter.pathFor(importRecord.getFilePath())));
 
         switch (importRecord.getStatus()) {
             case 0 -> status.setStatus("pending");
@@ -311,6 +889,8 @@ public class ExcelImportServiceImpl implements ExcelImportService {
         // 计算进度
         if (importRecord.getTotalRows() != null && importRecord.getTotalRows() > 0) {
             int processed = (importRecord.getSuccessCount() != null ? importRecord.getSuccessCount() : 0)
+                    + (importRecord.getUpdatedCount() != null ? importRecord.getUpdatedCount() : 0)
+                    + (importRecord.getUnchangedCount() != null ? importRecord.getUnchangedCount() : 0)
                     + (importRecord.getFailedCount() != null ? importRecord.getFailedCount() : 0)
                     + (importRecord.getSkippedCount() != null ? importRecord.getSkippedCount() : 0);
             status.setProgress((int) (processed * 100.0 / importRecord.getTotalRows()));
@@ -321,73 +901,218 @@ public class ExcelImportServiceImpl implements ExcelImportService {
         return status;
     }
 
+    @Override
+    public void downloadDiff(Long userId, String importId, HttpServletRequest request, HttpServletResponse response) {
+        ProductImport importRecord = productImportMapper.selectById(Long.parseLong(importId));
+        if (importRecord == null || !importRecord.getUserId().equals(userId)) {
+            throw new BusinessException("导入记录不存在");
+        }
+        Path diffFile = ImportDiffWriter.pathFor(importRecord.getFilePath());
+        if (importRecord.getStatus() < 2 || !Files.exists(diffFile)) {
+            throw new BusinessException("变更明细尚未生成");
+        }
+        String baseName = FileUtil.mainName(importRecord.getFileName());
+        try {
+            FileTransferUtils.sendAttachment(request, response, diffFile, "text/csv;charset=UTF-8",
+                    baseName + "_变更明细.csv");
+        } catch (IOException e) {
+            log.error("下载变更明细失败: importId={}", importId, e);
+            throw new BusinessException("下载失败: " + e.getMessage());
+        }
+    }
+
     /**
-     * 解析Excel预览
+     * 解析上传文件预览并生成行文件：.csv为CSV+图片压缩包，其余为xlsx
      */
-    private ImportResultDTO parseExcel(File file, Long userId) throws IOException {
-        ImportResultDTO result = new ImportResultDTO();
-        List<ImportResultDTO.BrandSheetInfo> brandSheets = new ArrayList<>();
+    private ImportResultDTO parseUpload(File file) throws IOException {
+        return isBundle(file.getPath()) ? parseBundle(file) : parseExcel(file);
+    }
+
+    private boolean isBundle(String filePath) {
+        return filePath.toLowerCase().endsWith(CSV_SUFFIX);
+    }
+
+    private String formatOf(String filePath) {
+        return isBundle(filePath) ? "csv" : "xlsx";
+    }
+
+    /**
+     * 打开执行导入时的图片来源：CSV对应上传的图片压缩包，xlsx为其内嵌图片
+     */
+    private ImportImageSource openImageSource(File file) throws IOException {
+        if (isBundle(file.getPath())) {
+            return ZipImageSource.open(ZipImageSource.pathFor(file.getPath()).toFile());
+        }
+        return XlsxImageExtractor.open(file);
+    }
+
+    /**
+     * 解析CSV+图片压缩包预览：流式读取CSV，按品牌分段写入行文件（同一品牌的行保持文件中的顺序），
+     * 图片文件名解析为压缩包中的条目路径，压缩包中找不到的图片不导入；执行导入与xlsx共用同一写入流程
+     */
+    private ImportResultDTO parseBundle(File file) throws IOException {
+        Path rowFile = ImportRowFile.pathFor(file.getPath());
+        Map<String, SheetPreview> brands = new LinkedHashMap<>();
         List<Map<String, Object>> previewData = new ArrayList<>();
-        int totalProducts = 0;
-        int totalImages = 0;
 
-        try (FileInputStream fis = new FileInputStream(file);
-             XSSFWorkbook workbook = new XSSFWorkbook(fis)) {
+        try (ZipImageSource images = ZipImageSource.open(ZipImageSource.pathFor(file.getPath()).toFile())) {
+            ProductCsvReader.read(file, row -> {
+                SheetPreview brand = brands.get(row.getBrand());
+                if (brand == null) {
+                    brand = newBundleBrand(rowFile, brands.size(), row);
+                    brands.put(row.getBrand(), brand);
+                }
 
-            for (int sheetIndex = 0; sheetIndex < workbook.getNumberOfSheets(); sheetIndex++) {
-                XSSFSheet sheet = workbook.getSheetAt(sheetIndex);
-                String sheetName = sheet.getSheetName();
+                if (previewData.size() < 5) {
+                    Map<String, Object> preview = new HashMap<>();
+                    preview.put("brandCode", brand.sheetInfo.getBrandCode());
+                    preview.put("xkNo", row.getXkNo());
+                    preview.put("oeNo", row.getOeNo());
+                    preview.put("price", row.getPriceRaw());
+                    preview.put("remark", row.getRemark());
+                    previewData.add(preview);
+                }
 
-                if (sheet.getPhysicalNumberOfRows() < 3) {
-                    continue;
+                // 解析价格
+                BigDecimal[] prices = parsePrice(row.getPriceRaw());
+                ImportRowFile.ImportRow importRow = new ImportRowFile.ImportRow();
+                importRow.setRowIndex(row.getRowIndex());
+                importRow.setXkNo(row.getXkNo());
+                importRow.setOeNo(row.getOeNo());
+                importRow.setPriceMin(prices[0]);
+                importRow.setPriceMax(prices[1]);
+                importRow.setPriceAvg(prices[2]);
+                importRow.setRemark(row.getRemark());
+                importRow.setMediaPath(images.resolve(row.getImageFile()));
+                if (importRow.getMediaPath() != null) {
+                    brand.sheetInfo.setImageCount(brand.sheetInfo.getImageCount() + 1);
                 }
+                try {
+                    brand.segment.write(importRow);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            for (SheetPreview brand : brands.values()) {
+                brand.segment.close();
+            }
+        } catch (UncheckedIOException e) {
+            discardSegments(brands.values());
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            discardSegments(brands.values());
+            throw e;
+        }
 
-                ImportResultDTO.BrandSheetInfo sheetInfo = new ImportResultDTO.BrandSheetInfo();
-                sheetInfo.setSheetName(sheetName);
+        List<ImportRowFile.SegmentWriter> segments = new ArrayList<>();
+        List<ImportResultDTO.BrandSheetInfo> brandSheets = new ArrayList<>();
+        int totalProducts = 0;
+        int totalImages = 0;
+        for (SheetPreview brand : brands.values()) {
+            segments.add(brand.segment);
+            brand.sheetInfo.setProductCount(brand.segment.getRowCount());
+            brandSheets.add(brand.sheetInfo);
+            totalProducts += brand.sheetInfo.getProductCount();
+            totalImages += brand.sheetInfo.getImageCount();
+        }
+        ImportRowFile.merge(rowFile, segments);
 
-                // 第一行获取品牌缩写
-                Row brandRow = sheet.getRow(0);
-                String brandCode = getCellStringValue(brandRow.getCell(0));
-                sheetInfo.setBrandCode(brandCode);
-                sheetInfo.setBrandName(sheetName);
+        ImportResultDTO result = new ImportResultDTO();
+        result.setBrandSheets(brandSheets);
+        result.setTotalProducts(totalProducts);
+        result.setTotalImages(totalImages);
+        result.setPreviewData(previewData);
+        return result;
+    }
 
-                int productCount = 0;
-                
-                // 统计图片数量
-                int imageCount = countSheetImages(sheet);
+    /**
+     * CSV中的品牌按首次出现的顺序作为一个分段，品牌缩写取brand_code列，没有时取品牌全称（截取到字段长度）
+     */
+    private SheetPreview newBundleBrand(Path rowFile, int index, ProductCsvReader.ProductCsvRow row) {
+        String brandCode = StrUtil.isNotBlank(row.getBrandCode()) ? row.getBrandCode() : row.getBrand();
+        brandCode = StrUtil.subPre(brandCode, 20);
+
+        SheetPreview brand = new SheetPreview();
+        brand.sheetInfo = new ImportResultDTO.BrandSheetInfo();
+        brand.sheetInfo.setSheetName(row.getBrand());
+        brand.sheetInfo.setBrandName(row.getBrand());
+        brand.sheetInfo.setBrandCode(brandCode);
+        brand.sheetInfo.setImageCount(0);
+        try {
+            brand.segment = ImportRowFile.createSegment(rowFile, index, row.getBrand());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        brand.segment.setBrandCode(brandCode);
+        return brand;
+    }
 
-                // 统计数据行数
-                for (int rowIndex = 2; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-                    Row row = sheet.getRow(rowIndex);
-                    if (row == null) continue;
+    private void discardSegments(Collection<SheetPreview> previews) throws IOException {
+        for (SheetPreview preview : previews) {
+            preview.segment.discard();
+        }
+    }
 
-                    String xkNo = getCellStringValue(row.getCell(1));
-                    String oeNo = getCellStringValue(row.getCell(2));
+    /**
+     * 解析Excel预览：各Sheet在预览线程池中并行统计，结果按Sheet顺序合并；
+     * 同时把解析后的行写入上传文件旁的行文件，执行导入时直接读取
+     */
+    private ImportResultDTO parseExcel(File file) throws IOException {
+        ImportResultDTO result = new ImportResultDTO();
+        List<ImportResultDTO.BrandSheetInfo> brandSheets = new ArrayList<>();
+        List<Map<String, Object>> previewData = new ArrayList<>();
+        int totalProducts = 0;
+        int totalImages = 0;
 
-                    if (StrUtil.isNotBlank(xkNo) || StrUtil.isNotBlank(oeNo)) {
-                        productCount++;
+        Path rowFile = ImportRowFile.pathFor(file.getPath());
+        List<SheetPreview> sheetPreviews = new ArrayList<>();
+        try (XlsxImageExtractor imageExtractor = XlsxImageExtractor.open(file)) {
+            List<String> sheetNames = imageExtractor.getSheetNames();
+            List<Future<SheetPreview>> futures = new ArrayList<>();
+            for (int sheetIndex = 0; sheetIndex < sheetNames.size(); sheetIndex++) {
+                int sheetNo = sheetIndex;
+                String sheetName = sheetNames.get(sheetIndex);
+                futures.add(previewExecutor.submit(() -> previewSheet(file, rowFile, imageExtractor, sheetNo, sheetName)));
+            }
 
-                        // 取前5条作为预览
-                        if (previewData.size() < 5) {
-                            Map<String, Object> preview = new HashMap<>();
-                            preview.put("brandCode", brandCode);
-                            preview.put("xkNo", xkNo);
-                            preview.put("oeNo", oeNo);
-                            preview.put("price", getCellStringValue(row.getCell(4)));
-                            preview.put("remark", getCellStringValue(row.getCell(5)));
-                            previewData.add(preview);
-                        }
-                    }
+            // 等待全部Sheet结束后再处理错误，确保所有分段都能清理
+            IOException error = null;
+            for (Future<SheetPreview> future : futures) {
+                try {
+                    sheetPreviews.add(awaitSheet(future));
+                } catch (IOException e) {
+                    error = error != null ? error : e;
+                }
+            }
+            if (error != null) {
+                for (SheetPreview sheetPreview : sheetPreviews) {
+                    sheetPreview.segment.discard();
                 }
+                throw error;
+            }
+        }
 
-                sheetInfo.setProductCount(productCount);
-                sheetInfo.setImageCount(imageCount);
-                brandSheets.add(sheetInfo);
+        List<ImportRowFile.SegmentWriter> segments = new ArrayList<>();
+        for (SheetPreview sheetPreview : sheetPreviews) {
+            // 跳过空Sheet
+            if (sheetPreview.rowCount < 3) {
+                sheetPreview.segment.discard();
+                continue;
+            }
+            segments.add(sheetPreview.segment);
 
-                totalProducts += productCount;
-                totalImages += imageCount;
+            // 取前5条作为预览
+            for (Map<String, Object> preview : sheetPreview.previewRows) {
+                if (previewData.size() < 5) {
+                    previewData.add(preview);
+                }
             }
+
+            brandSheets.add(sheetPreview.sheetInfo);
+            totalProducts += sheetPreview.sheetInfo.getProductCount();
+            totalImages += sheetPreview.sheetInfo.getImageCount();
         }
+        ImportRowFile.merge(rowFile, segments);
 
         result.setBrandSheets(brandSheets);
         result.setTotalProducts(totalProducts);
@@ -398,26 +1123,95 @@ public class ExcelImportServiceImpl implements ExcelImportService {
     }
 
     /**
-     * 统计Sheet中的图片数量
+     * 解析单个Sheet（在预览线程池中执行）：统计产品数、图片数及前5条预览，并写入该Sheet的行文件分段
      */
-    private int countSheetImages(XSSFSheet sheet) {
+    private SheetPreview previewSheet(File file, Path rowFile, XlsxImageExtractor imageExtractor, int sheetNo,
+                                      String sheetName) throws IOException {
+        SheetPreview sheetPreview = new SheetPreview();
+        ImportResultDTO.BrandSheetInfo sheetInfo = new ImportResultDTO.BrandSheetInfo();
+        sheetInfo.setSheetName(sheetName);
+        sheetInfo.setBrandName(sheetName);
+
+        // D列图片按行号索引（只记录条目路径，执行导入时才保存）
+        Map<Integer, String> rowMediaMap = new HashMap<>();
+        for (XlsxImageExtractor.ImageAnchor anchor : imageExtractor.getAnchors(sheetName)) {
+            if (anchor.getCol() == IMAGE_COLUMN) {
+                rowMediaMap.put(anchor.getRow(), anchor.getMediaPath());
+            }
+        }
+
+        ImportRowFile.SegmentWriter segment = ImportRowFile.createSegment(rowFile, sheetNo, sheetName);
+        ProductSheetReader reader;
         try {
-            XSSFDrawing drawing = sheet.getDrawingPatriarch();
-            if (drawing == null) {
-                return 0;
-            }
-            int count = 0;
-            for (XSSFShape shape : drawing.getShapes()) {
-                if (shape instanceof XSSFPicture) {
-                    XSSFPicture picture = (XSSFPicture) shape;
-                    XSSFClientAnchor anchor = picture.getClientAnchor();
-                    // 只统计D列(第3列)的图片
-                    if (anchor != null && anchor.getCol1() == 3) {
-                        count++;
-                    }
+            reader = ProductSheetReader.read(file, sheetNo, row -> {
+                if (sheetPreview.previewRows.size() < 5) {
+                    Map<String, Object> preview = new HashMap<>();
+                    preview.put("brandCode", row.getBrandCode());
+                    preview.put("xkNo", row.getXkNo());
+                    preview.put("oeNo", row.getOeNo());
+                    preview.put("price", row.getPriceRaw());
+                    preview.put("remark", row.getRemark());
+                    sheetPreview.previewRows.add(preview);
+                }
+
+                // 解析价格
+                BigDecimal[] prices = parsePrice(row.getPriceRaw());
+                ImportRowFile.ImportRow importRow = new ImportRowFile.ImportRow();
+                importRow.setRowIndex(row.getRowIndex());
+                importRow.setXkNo(row.getXkNo());
+                importRow.setOeNo(row.getOeNo());
+                importRow.setPriceMin(prices[0]);
+                importRow.setPriceMax(prices[1]);
+                importRow.setPriceAvg(prices[2]);
+                importRow.setRemark(row.getRemark());
+                importRow.setMediaPath(rowMediaMap.get(row.getRowIndex()));
+                try {
+                    segment.write(importRow);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            });
+            segment.setBrandCode(reader.getBrandCode());
+            segment.close();
+        } catch (UncheckedIOException e) {
+            segment.discard();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            segment.discard();
+            throw e;
+        }
+
+        sheetPreview.segment = segment;
+        sheetPreview.rowCount = reader.getRowCount();
+        sheetInfo.setBrandCode(reader.getBrandCode());
+        sheetInfo.setProductCount(segment.getRowCount());
+        // 统计图片数量
+        sheetInfo.setImageCount(sheetPreview.rowCount < 3 ? 0 : countSheetImages(imageExtractor, sheetName));
+        sheetPreview.sheetInfo = sheetInfo;
+        return sheetPreview;
+    }
+
+    private <T> T awaitSheet(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("解析被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
             }
-            return count;
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 统计Sheet中的图片数量
+     */
+    private int countSheetImages(XlsxImageExtractor extractor, String sheetName) {
+        try {
+            // 只统计D列(第3列)的图片
+            return extractor.countImages(sheetName, IMAGE_COLUMN);
         } catch (Exception e) {
             log.warn("统计图片数量失败: {}", e.getMessage());
             return 0;
@@ -460,34 +1254,8 @@ public class ExcelImportServiceImpl implements ExcelImportService {
         return result;
     }
 
-    /**
-     * 获取单元格字符串值
-     */
-    private String getCellStringValue(Cell cell) {
-        if (cell == null) {
-            return "";
-        }
-        try {
-            return switch (cell.getCellType()) {
-                case STRING -> cell.getStringCellValue().trim();
-                case NUMERIC -> {
-                    double value = cell.getNumericCellValue();
-                    if (value == Math.floor(value)) {
-                        yield String.valueOf((long) value);
-                    }
-                    yield String.valueOf(value);
-                }
-                case FORMULA -> cell.getCellFormula();
-                case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-                default -> "";
-            };
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
     @Override
-    public void downloadTemplate(jakarta.servlet.http.HttpServletResponse response) {
+    public void downloadTemplate(HttpServletResponse response) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
             // 创建样式
             CellStyle headerStyle = createHeaderStyle(workbook);
@@ -783,5 +1551,263 @@ public class ExcelImportServiceImpl implements ExcelImportService {
         
         return style;
     }
-}
 
+    /**
+     * 单次导入执行的共享状态（Sheet读取线程与写入线程共用）
+     */
+    private class ImportRun {
+        private final Long userId;
+        private final boolean upsert;
+        private final Path rowFile;
+        private final BlockingQueue<SheetProduct> queue = new ArrayBlockingQueue<>(batchSize * 2);
+        // 已读取的OE号去重键（仅新增时含已有产品的OE号）
+        private final Set<String> seenOeNos = ConcurrentHashMap.newKeySet();
+        private final Object claimLock = new Object();
+        // 写入结束或出错后通知Sheet读取退出
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final ImportMetrics.ImportProbe probe;
+        // 更新了已有产品的品牌，导入结束后重新汇总品牌统计
+        private final Set<String> updatedBrandCodes = ConcurrentHashMap.newKeySet();
+
+        ImportRun(Long userId, boolean upsert, Path rowFile, ImportMetrics.ImportProbe probe) {
+            this.userId = userId;
+            this.upsert = upsert;
+            this.rowFile = rowFile;
+            this.probe = probe;
+        }
+
+        /**
+         * 认领OE号并把产品放入写入队列，两步在同一把锁内完成：认领成功的行排在之后放入队列的所有行之前，
+         * 按队列顺序提交，因此其他Sheet因该OE号跳过的行不会在它提交前被断点越过
+         * @param item 认领成功后生成待写入的产品，返回null时不放入队列（如未变化的行）
+         * @return OE号已被认领时返回false
+         */
+        boolean claim(String key, Supplier<SheetProduct> item) {
+            synchronized (claimLock) {
+                if (!seenOeNos.add(key)) {
+                    return false;
+                }
+                SheetProduct product = item.get();
+                if (product != null) {
+                    enqueue(product);
+                }
+                return true;
+            }
+        }
+
+        void checkAborted() {
+            if (stopping || aborted.get()) {
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * 放入写入队列，队列已满时等待写入线程消费
+         */
+        void enqueue(SheetProduct item) {
+            try {
+                while (!queue.offer(item, 200, TimeUnit.MILLISECONDS)) {
+                    checkAborted();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+    }
+
+    /**
+     * 导入进度计数，按Sheet汇总；断点只由写入线程维护
+     */
+    private static class ImportProgress {
+        private final ProductImport importRecord;
+        private final List<SheetStats> sheets = new ArrayList<>();
+        private int flushedRows;
+        // 继续导入前已处理的行数，不计入本次处理速度
+        private int baselineRows;
+        // 已提交的断点
+        private ProductImportCheckpoint checkpoint;
+
+        ImportProgress(ProductImport importRecord) {
+            this.importRecord = importRecord;
+            this.checkpoint = importRecord.getCheckpoint() != null
+                    ? importRecord.getCheckpoint() : new ProductImportCheckpoint();
+        }
+
+        /**
+         * 本次执行已处理的行数（最近一次写回时）
+         */
+        int rowsThisRun() {
+            return flushedRows - baselineRows;
+        }
+
+        void markBaseline() {
+            int processed = 0;
+            for (SheetStats sheet : sheets) {
+                processed += sheet.processed();
+            }
+            baselineRows = processed;
+            flushedRows = processed;
+        }
+
+        /**
+         * 按本批已写入的行推进断点，放到导入记录上随本批事务一起提交
+         */
+        void stageCheckpoint(List<SheetProduct> items) {
+            ProductImportCheckpoint next = checkpoint.copy();
+            for (SheetProduct item : items) {
+                ProductImportCheckpoint.SheetCheckpoint sheet = next.getSheets()
+                        .computeIfAbsent(item.sheet.sheetName, name -> new ProductImportCheckpoint.SheetCheckpoint());
+                if (item.product == null) {
+                    sheet.setDone(true);
+                } else {
+                    // 逐行重试时失败的行可能在已提交的行之后推进，取较大值
+                    sheet.setNextRow(Math.max(sheet.getNextRow(), item.rowIndex + 1));
+                    if (!item.failed && item.existing == null) {
+                        sheet.setSuccessCount(sheet.getSuccessCount() + 1);
+                    } else if (!item.failed) {
+                        sheet.setUpdatedCount(sheet.getUpdatedCount() + 1);
+                    }
+                }
+                sheet.setSkippedCount(Math.max(sheet.getSkippedCount(), item.skippedCount));
+                sheet.setUnchangedCount(Math.max(sheet.getUnchangedCount(), item.unchangedCount));
+                sheet.setFailedCount(item.sheet.failedCount.get());
+            }
+            importRecord.setCheckpoint(next);
+        }
+
+        void commitCheckpoint() {
+            checkpoint = importRecord.getCheckpoint();
+        }
+
+        void rollbackCheckpoint() {
+            importRecord.setCheckpoint(checkpoint);
+        }
+
+        int rowsSinceFlush() {
+            int processed = 0;
+            for (SheetStats sheet : sheets) {
+                processed += sheet.processed();
+            }
+            return processed - flushedRows;
+        }
+
+        /**
+         * 写回导入记录，并计算处理速度
+         * @param pending 当前事务中写入、尚未计入各Sheet的产品
+         */
+        void apply(long start, List<SheetProduct> pending) {
+            int successCount = 0;
+            int updatedCount = 0;
+            for (SheetProduct item : pending) {
+                if (item.existing == null) {
+                    successCount++;
+                } else {
+                    updatedCount++;
+                }
+            }
+            int unchangedCount = 0;
+            int failedCount = 0;
+            int skippedCount = 0;
+            for (SheetStats sheet : sheets) {
+                successCount += sheet.successCount.get();
+                updatedCount += sheet.updatedCount.get();
+                unchangedCount += sheet.unchangedCount.get();
+                failedCount += sheet.failedCount.get();
+                skippedCount += sheet.skippedCount.get();
+            }
+            flushedRows = successCount + updatedCount + unchangedCount + failedCount + skippedCount;
+            importRecord.setSuccessCount(successCount);
+            importRecord.setUpdatedCount(updatedCount);
+            importRecord.setUnchangedCount(unchangedCount);
+            importRecord.setFailedCount(failedCount);
+            importRecord.setSkippedCount(skippedCount);
+            long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+            importRecord.setRowsPerSecond((int) ((flushedRows - baselineRows) * 1000L / elapsed));
+        }
+    }
+
+    /**
+     * 单个Sheet的导入计数（读取线程累加跳过/未变化/失败数，写入线程累加新增/更新数）
+     */
+    private static class SheetStats {
+        private final String sheetName;
+        private final AtomicInteger successCount = new AtomicInteger();
+        private final AtomicInteger updatedCount = new AtomicInteger();
+        private final AtomicInteger unchangedCount = new AtomicInteger();
+        private final AtomicInteger failedCount = new AtomicInteger();
+        private final AtomicInteger skippedCount = new AtomicInteger();
+
+        SheetStats(String sheetName) {
+            this.sheetName = sheetName;
+        }
+
+        /**
+         * 从断点恢复计数
+         */
+        void restore(ProductImportCheckpoint.SheetCheckpoint checkpoint) {
+            successCount.set(checkpoint.getSuccessCount());
+            updatedCount.set(checkpoint.getUpdatedCount());
+            unchangedCount.set(checkpoint.getUnchangedCount());
+            failedCount.set(checkpoint.getFailedCount());
+            skippedCount.set(checkpoint.getSkippedCount());
+        }
+
+        int processed() {
+            return successCount.get() + updatedCount.get() + unchangedCount.get()
+                    + failedCount.get() + skippedCount.get();
+        }
+    }
+
+    /**
+     * 待写入的产品及其所属Sheet；产品为空时为Sheet读取完成标记
+     */
+    private static class SheetProduct {
+        private final SheetStats sheet;
+        private final int rowIndex;
+        private final Product product;
+        // 更新前的已有产品，新增时为空（写入前发现其他请求已新增相同OE号时补上）
+        private Product existing;
+        // 放入队列时该Sheet已跳过及未变化的行数（由读取线程按行顺序累加），用于断点
+        private final int skippedCount;
+        private final int unchangedCount;
+        // 逐行重试时写入失败
+        private boolean failed;
+
+        SheetProduct(SheetStats sheet, int rowIndex, Product product, Product existing) {
+            this.sheet = sheet;
+            this.rowIndex = rowIndex;
+            this.product = product;
+            this.existing = existing;
+            this.skippedCount = sheet.skippedCount.get();
+            this.unchangedCount = sheet.unchangedCount.get();
+        }
+
+        static SheetProduct sheetDone(SheetStats sheet) {
+            return new SheetProduct(sheet, Integer.MAX_VALUE, null, null);
+        }
+
+        /**
+         * 提交后计数并写入变更明细
+         */
+        void committed(ImportDiffWriter diff) throws IOException {
+            if (existing == null) {
+                sheet.successCount.incrementAndGet();
+                diff.created(sheet.sheetName, product);
+            } else {
+                sheet.updatedCount.incrementAndGet();
+                diff.updated(sheet.sheetName, existing, product);
+            }
+        }
+    }
+
+    /**
+     * Sheet预览结果
+     */
+    private static class SheetPreview {
+        private ImportResultDTO.BrandSheetInfo sheetInfo;
+        private ImportRowFile.SegmentWriter segment;
+        private int rowCount;
+        private final List<Map<String, Object>> previewRows = new ArrayList<>();
+    }
+}
@@ -3,30 +3,40 @@ package com.trucktools.product.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.trucktools.common.core.domain.PageResult;
+import com.trucktools.common.core.domain.ResultCode;
 import com.trucktools.common.exception.BusinessException;
 import com.trucktools.product.dto.*;
 import com.trucktools.product.entity.Product;
 import com.trucktools.product.mapper.ProductMapper;
 import com.trucktools.product.service.ProductService;
+import com.trucktools.product.support.ImageBlobStore;
+import com.trucktools.product.support.ProductBrandStats;
+import com.trucktools.product.support.ProductImageProcessor;
+import com.trucktools.product.support.ProductIndexMaintainer;
+import com.trucktools.product.support.ProductOeIndex;
+import com.trucktools.product.support.ProductSearchIndex;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -38,6 +48,27 @@ import java.util.stream.Collectors;
 public class ProductServiceImpl implements ProductService {
 
     private final ProductMapper productMapper;
+    private final ProductIndexMaintainer productIndexMaintainer;
+    private final ProductBrandStats productBrandStats;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductOeIndex productOeIndex;
+    private final ImageBlobStore imageBlobStore;
+    private final ProductImageProcessor productImageProcessor;
+    private final ObjectMapper objectMapper;
+
+    // 列表可排序的字段，其他值按XK号升序
+    private static final Set<String> SORT_FIELDS = Set.of("brandCode", "xkNo", "oeNo", "priceAvg", "createdAt");
+    // 批量查找每批解析的编号数
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+    // 批量查找单次最多的编号数
+    private static final int LOOKUP_MAX_KEYS = 10000;
+    // 包含匹配时每个编号最多返回的产品数，超过时视为未匹配
+    private static final int LOOKUP_FUZZY_LIMIT = 20;
+
+    private static final String MATCH_OE = "oe";
+    private static final String MATCH_XK = "xk";
+    private static final String MATCH_FUZZY = "fuzzy";
+    private static final String MATCH_NONE = "none";
 
     @Value("${app.upload.base-url:http://localhost:8080}")
     private String uploadBaseUrl;
@@ -47,20 +78,35 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public PageResult<ProductVO> getPage(ProductQueryParam param) {
+        String keyword = StrUtil.trim(param.getKeyword());
+        String sortField = param.getSortField();
+        boolean sortByXkNo = StrUtil.isBlank(sortField) || !SORT_FIELDS.contains(sortField) || "xkNo".equals(sortField);
+        // 有关键词且按XK号排序时直接在编号搜索索引上过滤、排序和分页，只查询当前页的产品
+        if (StrUtil.isNotBlank(keyword) && sortByXkNo) {
+            return getIndexedPage(param, keyword, !"xkNo".equals(sortField) || "asc".equalsIgnoreCase(param.getSortOrder()));
+        }
+
         Page<Product> page = new Page<>(param.getPage(), param.getPageSize());
         
         LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<Product>()
                 .eq(Product::getUserId, param.getUserId())
-                .like(StrUtil.isNotBlank(param.getKeyword()), Product::getOeNo, param.getKeyword())
-                .or(StrUtil.isNotBlank(param.getKeyword()))
-                .like(StrUtil.isNotBlank(param.getKeyword()), Product::getXkNo, param.getKeyword())
                 .eq(StrUtil.isNotBlank(param.getBrandCode()), Product::getBrandCode, param.getBrandCode())
                 .eq(StrUtil.isNotBlank(param.getOeNo()), Product::getOeNo, param.getOeNo());
+
+        // 按其他字段排序时关键词通过编号搜索索引得到产品ID，由数据库排序分页
+        if (StrUtil.isNotBlank(keyword)) {
+            List<Long> ids = productSearchIndex.searchAll(param.getUserId(), keyword,
+                    StrUtil.emptyToNull(param.getBrandCode()), StrUtil.emptyToNull(param.getOeNo()));
+            if (ids.isEmpty()) {
+                return PageResult.of(new ArrayList<>(), 0, param.getPage(), param.getPageSize());
+            }
+            wrapper.in(Product::getId, ids);
+        }
         
         // 排序（默认按XK NO.升序）
-        if (StrUtil.isNotBlank(param.getSortField())) {
+        if (StrUtil.isNotBlank(sortField)) {
             boolean isAsc = "asc".equalsIgnoreCase(param.getSortOrder());
-            switch (param.getSortField()) {
+            switch (sortField) {
                 case "brandCode" -> wrapper.orderBy(true, isAsc, Product::getBrandCode);
                 case "xkNo" -> wrapper.orderBy(true, isAsc, Product::getXkNo);
                 case "oeNo" -> wrapper.orderBy(true, isAsc, Product::getOeNo);
@@ -81,6 +127,29 @@ public class ProductServiceImpl implements ProductService {
         return PageResult.of(voList, result.getTotal(), param.getPage(), param.getPageSize());
     }
 
+    /**
+     * 关键词搜索分页：索引返回匹配总数及当前页的产品ID（按XK号排序），按ID查询后保持索引顺序
+     */
+    private PageResult<ProductVO> getIndexedPage(ProductQueryParam param, String keyword, boolean asc) {
+        long pageNo = Math.max(1, param.getPage());
+        int pageSize = param.getPageSize();
+        ProductSearchIndex.SearchPage hits = productSearchIndex.searchPage(param.getUserId(), keyword,
+                StrUtil.emptyToNull(param.getBrandCode()), StrUtil.emptyToNull(param.getOeNo()),
+                asc, (pageNo - 1) * pageSize, pageSize);
+        List<ProductVO> voList = new ArrayList<>(hits.ids().size());
+        if (!hits.ids().isEmpty()) {
+            Map<Long, Product> products = productMapper.selectBatchIds(hits.ids()).stream()
+                    .collect(Collectors.toMap(Product::getId, product -> product));
+            for (Long id : hits.ids()) {
+                Product product = products.get(id);
+                if (product != null && product.getUserId().equals(param.getUserId())) {
+                    voList.add(toVO(product));
+                }
+            }
+        }
+        return PageResult.of(voList, hits.total(), param.getPage(), pageSize);
+    }
+
     @Override
     public ProductVO getDetail(Long userId, Long id) {
         Product product = productMapper.selectById(id);
@@ -96,7 +165,15 @@ public class ProductServiceImpl implements ProductService {
         Product product = new Product();
         BeanUtil.copyProperties(request, product);
         product.setUserId(userId);
-        productMapper.insert(product);
+        try {
+            productMapper.insert(product);
+        } catch (DuplicateKeyException e) {
+            throw new BusinessException("OE号已存在: " + product.getOeNo());
+        }
+        productIndexMaintainer.afterInsert(userId, List.of(product));
+        productBrandStats.onInserted(userId, List.of(product));
+        imageBlobStore.retain(imagePaths(product.getImagePath()));
+        productImageProcessor.submit(Collections.singletonMap(product.getId(), product.getImagePath()));
         return product.getId();
     }
 
@@ -107,8 +184,22 @@ public class ProductServiceImpl implements ProductService {
         if (product == null || !product.getUserId().equals(userId)) {
             throw new BusinessException("产品不存在");
         }
+        String oldImagePath = product.getImagePath();
+        String oldBrandCode = product.getBrandCode();
         BeanUtil.copyProperties(request, product, "id", "userId", "createdAt");
-        productMapper.updateById(product);
+        try {
+            productMapper.updateById(product);
+        } catch (DuplicateKeyException e) {
+            throw new BusinessException("OE号已存在: " + product.getOeNo());
+        }
+        productIndexMaintainer.afterUpdate(product);
+        productBrandStats.refresh(userId, Arrays.asList(oldBrandCode, product.getBrandCode()));
+        if (!Objects.equals(oldImagePath, product.getImagePath())) {
+            clearImageDerivatives(id);
+            imageBlobStore.retain(imagePaths(product.getImagePath()));
+            imageBlobStore.release(imagePaths(oldImagePath));
+            productImageProcessor.submit(Collections.singletonMap(id, product.getImagePath()));
+        }
     }
 
     @Override
@@ -119,6 +210,9 @@ public class ProductServiceImpl implements ProductService {
             throw new BusinessException("产品不存在");
         }
         productMapper.deleteById(id);
+        productIndexMaintainer.afterDelete(userId, List.of(id));
+        productBrandStats.refresh(userId, Collections.singletonList(product.getBrandCode()));
+        imageBlobStore.release(imagePaths(product.getImagePath()));
     }
 
     @Override
@@ -130,35 +224,213 @@ public class ProductServiceImpl implements ProductService {
         LambdaQueryWrapper<Product> wrapper = new LambdaQueryWrapper<Product>()
                 .eq(Product::getUserId, userId)
                 .in(Product::getId, ids);
+        List<Product> products = productMapper.selectList(new LambdaQueryWrapper<Product>()
+                .select(Product::getImagePath, Product::getBrandCode)
+                .eq(Product::getUserId, userId)
+                .in(Product::getId, ids));
+        List<String> imagePaths = products.stream()
+                .map(Product::getImagePath)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
         productMapper.delete(wrapper);
+        productIndexMaintainer.afterDelete(userId, ids);
+        productBrandStats.refresh(userId, products.stream().map(Product::getBrandCode).collect(Collectors.toSet()));
+        imageBlobStore.release(imagePaths);
     }
 
     @Override
     public List<BrandVO> getBrandList(Long userId) {
-        return productMapper.selectBrandList(userId);
+        return productBrandStats.list(userId);
     }
 
     @Override
     public List<ProductVO> searchByOeNo(Long userId, String oeNos) {
-        if (StrUtil.isBlank(oeNos)) {
+        List<String> keys = splitKeys(oeNos);
+        if (keys.isEmpty()) {
             return new ArrayList<>();
         }
-        
-        // 支持逗号、换行分隔的多个OE号
-        List<String> oeNoList = Arrays.stream(oeNos.split("[,;\n\r]+"))
+
+        // 只取精确匹配（OE号/XK号），同一产品只返回一次
+        Map<String, ProductVO> products = new LinkedHashMap<>();
+        lookup(userId, keys, item -> {
+            if (MATCH_OE.equals(item.getMatchType()) || MATCH_XK.equals(item.getMatchType())) {
+                item.getProducts().forEach(product -> products.putIfAbsent(product.getId(), product));
+            }
+        });
+        return new ArrayList<>(products.values());
+    }
+
+    @Override
+    public void lookup(Long userId, ProductLookupRequest request, HttpServletResponse response) {
+        List<String> keys = new ArrayList<>();
+        if (request.getKeys() != null) {
+            request.getKeys().stream().map(StrUtil::trim).filter(StrUtil::isNotBlank).forEach(keys::add);
+        }
+        keys.addAll(splitKeys(request.getText()));
+        keys = keys.stream().distinct().collect(Collectors.toList());
+        if (keys.isEmpty()) {
+            throw new BusinessException("请输入要查找的OE号");
+        }
+        if (keys.size() > LOOKUP_MAX_KEYS) {
+            throw new BusinessException("单次最多查找" + LOOKUP_MAX_KEYS + "个编号");
+        }
+
+        // 按统一响应结构边解析边输出: {data: {items: {编号: 结果}, total, matched}, code, message, timestamp}
+        // 第一批解析完成后才开始输出，之前的异常仍由统一异常处理返回；状态码放在最后，开始输出后出错时返回错误状态码
+        response.setContentType("application/json;charset=UTF-8");
+        JsonGenerator[] json = new JsonGenerator[1];
+        int[] matched = new int[1];
+        try {
+            try {
+                lookup(userId, keys, item -> {
+                    if (!MATCH_NONE.equals(item.getMatchType())) {
+                        matched[0]++;
+                    }
+                    try {
+                        if (json[0] == null) {
+                            json[0] = objectMapper.getFactory().createGenerator(response.getOutputStream());
+                            json[0].writeStartObject();
+                            json[0].writeObjectFieldStart("data");
+                            json[0].writeObjectFieldStart("items");
+                        }
+                        json[0].writeObjectField(item.getKey(), item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (json[0] == null || e instanceof UncheckedIOException) {
+                    throw e;
+                }
+                log.error("批量查找产品失败: userId={}, keys={}", userId, keys.size(), e);
+                endLookupResponse(json[0], keys.size(), matched[0], ResultCode.INTERNAL_ERROR.getCode(),
+                        "查找失败，请稍后重试");
+                return;
+            }
+            endLookupResponse(json[0], keys.size(), matched[0], ResultCode.SUCCESS.getCode(),
+                    ResultCode.SUCCESS.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            // 客户端断开时停止输出
+            log.warn("批量查找产品输出中断: userId={}, keys={}, {}", userId, keys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 结束批量查找的响应：关闭items，写入统计及状态码
+     */
+    private void endLookupResponse(JsonGenerator json, int total, int matched, int code, String message)
+            throws IOException {
+        try (json) {
+            json.writeEndObject();
+            json.writeNumberField("total", total);
+            json.writeNumberField("matched", matched);
+            json.writeEndObject();
+            json.writeNumberField("code", code);
+            json.writeStringField("message", message);
+            json.writeNumberField("timestamp", System.currentTimeMillis());
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * 拆分逗号、分号或换行分隔的编号（去重）
+     */
+    private List<String> splitKeys(String text) {
+        if (StrUtil.isBlank(text)) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(text.split("[,;\n\r]+"))
                 .map(String::trim)
                 .filter(StrUtil::isNotBlank)
                 .distinct()
                 .collect(Collectors.toList());
-        
-        if (oeNoList.isEmpty()) {
-            return new ArrayList<>();
+    }
+
+    /**
+     * 批量查找：按输入顺序每LOOKUP_CHUNK_SIZE个编号一批，依次按OE令牌精确匹配（OE号索引）、
+     * XK号精确匹配、编号搜索索引包含匹配，每批解析完后按输入顺序回调各编号的结果
+     */
+    private void lookup(Long userId, List<String> keys, Consumer<ProductLookupItemDTO> consumer) {
+        for (int from = 0; from < keys.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = keys.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, keys.size()));
+            Map<String, String> matchTypes = new HashMap<>();
+            Map<String, List<Long>> matchIds = new HashMap<>();
+            Map<Long, Product> products = new HashMap<>();
+
+            productOeIndex.findProductIds(userId, chunk).forEach((key, id) -> {
+                matchTypes.put(key, MATCH_OE);
+                matchIds.put(key, List.of(id));
+            });
+
+            // XK号比较不区分大小写，与数据库排序规则一致
+            Map<String, String> xkKeys = new HashMap<>();
+            for (String key : chunk) {
+                if (!matchTypes.containsKey(key)) {
+                    xkKeys.putIfAbsent(key.toUpperCase(), key);
+                }
+            }
+            if (!xkKeys.isEmpty()) {
+                for (Product product : productMapper.selectByXkNos(userId, xkKeys.values())) {
+                    products.put(product.getId(), product);
+                    String key = xkKeys.get(product.getXkNo().toUpperCase());
+                    if (key != null) {
+                        matchTypes.put(key, MATCH_XK);
+                        matchIds.computeIfAbsent(key, k -> new ArrayList<>()).add(product.getId());
+                    }
+                }
+            }
+
+            for (String key : chunk) {
+                if (!matchTypes.containsKey(key)) {
+                    List<Long> ids = productSearchIndex.search(userId, key, LOOKUP_FUZZY_LIMIT);
+                    if (ids != null && !ids.isEmpty()) {
+                        matchTypes.put(key, MATCH_FUZZY);
+                        matchIds.put(key, ids);
+                    }
+                }
+            }
+
+            List<Long> missing = matchIds.values().stream()
+                    .flatMap(List::stream)
+                    .filter(id -> !products.containsKey(id))
+                    .distinct()
+                    .collect(Collectors.toList());
+            for (int i = 0; i < missing.size(); i += LOOKUP_CHUNK_SIZE) {
+                for (Product product : productMapper.selectBatchIds(
+                        missing.subList(i, Math.min(i + LOOKUP_CHUNK_SIZE, missing.size())))) {
+                    if (product.getUserId().equals(userId)) {
+                        products.put(product.getId(), product);
+                    }
+                }
+            }
+
+            for (String key : chunk) {
+                ProductLookupItemDTO item = new ProductLookupItemDTO();
+                item.setKey(key);
+                item.setProducts(matchIds.getOrDefault(key, List.of()).stream()
+                        .map(products::get)
+                        .filter(Objects::nonNull)
+                        .map(this::toVO)
+                        .collect(Collectors.toList()));
+                item.setMatchType(item.getProducts().isEmpty() ? MATCH_NONE : matchTypes.get(key));
+                consumer.accept(item);
+            }
         }
+    }
 
-        List<Product> products = productMapper.selectByOeNos(userId, oeNoList);
-        return products.stream()
-                .map(this::toVO)
-                .collect(Collectors.toList());
+    /**
+     * 更换图片后清空衍生图（重新生成前列表和导出使用原图）
+     */
+    private void clearImageDerivatives(Long productId) {
+        productMapper.update(null, new LambdaUpdateWrapper<Product>()
+                .set(Product::getImageMasterPath, null)
+                .set(Product::getImageThumbPath, null)
+                .set(Product::getImageCellPath, null)
+                .eq(Product::getId, productId));
+    }
+
+    private List<String> imagePaths(String imagePath) {
+        return imagePath != null ? List.of(imagePath) : List.of();
     }
 
     private ProductVO toVO(Product product) {
@@ -168,8 +440,9 @@ public class ProductServiceImpl implements ProductService {
         
         // 生成图片URL（使用相对路径，让前端通过代理访问）
         if (StrUtil.isNotBlank(product.getImagePath())) {
-            // imagePath 已经是 /uploads/products/... 格式，直接使用
-            vo.setImageUrl(product.getImagePath());
+            // imagePath 已经是 /uploads/products/... 格式，已生成衍生图时使用标准格式原图和缩略图
+            vo.setImageUrl(StrUtil.blankToDefault(product.getImageMasterPath(), product.getImagePath()));
+            vo.setThumbnailUrl(StrUtil.blankToDefault(product.getImageThumbPath(), vo.getImageUrl()));
         }
         
         return vo;
@@ -203,25 +476,24 @@ public class ProductServiceImpl implements ProductService {
         }
 
         try {
-            // 生成文件路径: uploads/products/{date}/{uuid}.{ext}
-            String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-            String newFileName = UUID.randomUUID().toString().replace("-", "") + extension;
-            String relativePath = "/uploads/products/" + dateDir + "/" + newFileName;
-            
-            // 创建目录
-            Path targetDir = Paths.get(uploadPath, "products", dateDir);
-            Files.createDirectories(targetDir);
-            
-            // 保存文件
-            Path targetPath = targetDir.resolve(newFileName);
-            file.transferTo(targetPath.toFile());
-            
-            // 删除旧图片（如果存在）
-            if (StrUtil.isNotBlank(product.getImagePath())) {
+            // 按内容保存: uploads/products/blobs/{sha前2位}/{sha256}.{ext}，相同图片复用已有文件
+            String relativePath;
+            try (InputStream in = file.getInputStream()) {
+                relativePath = imageBlobStore.save(in, extension.substring(1));
+            }
+            if (relativePath.equals(product.getImagePath())) {
+                return relativePath;
+            }
+
+            // 旧图片：内容块减少引用，旧版按日期保存的文件直接删除
+            if (imageBlobStore.isBlobPath(product.getImagePath())) {
+                imageBlobStore.release(imagePaths(product.getImagePath()));
+            } else if (StrUtil.isNotBlank(product.getImagePath())) {
                 try {
                     String oldPath = product.getImagePath().replace("/uploads/", "");
                     Path oldFile = Paths.get(uploadPath, oldPath);
                     Files.deleteIfExists(oldFile);
+                    imageBlobStore.deleteDerivatives(product.getImagePath());
                 } catch (Exception e) {
                     log.warn("删除旧图片失败: {}", product.getImagePath(), e);
                 }
@@ -230,6 +502,10 @@ public class ProductServiceImpl implements ProductService {
             // 更新数据库
             product.setImagePath(relativePath);
             productMapper.updateById(product);
+            clearImageDerivatives(productId);
+            imageBlobStore.retain(imagePaths(relativePath));
+            productImageProcessor.submit(Collections.singletonMap(productId, relativePath));
+            productBrandStats.refresh(userId, Collections.singletonList(product.getBrandCode()));
             
             log.info("产品图片上传成功: productId={}, path={}", productId, relativePath);
             return relativePath;
@@ -0,0 +1,130 @@
+package com.trucktools.product.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.trucktools.common.exception.BusinessException;
+import com.trucktools.product.dto.ProfitTierRuleDTO;
+import com.trucktools.product.entity.ProfitTierRule;
+import com.trucktools.product.mapper.ProfitTierRuleMapper;
+import com.trucktools.product.service.ProfitTierService;
+import com.trucktools.product.support.ProfitTierTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 利润率阶梯规则服务实现
+ * 规则按用户编译为 {@link ProfitTierTable} 缓存，规则修改提交后失效
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfitTierServiceImpl implements ProfitTierService {
+
+    private static final BigDecimal MAX_PROFIT_RATE = BigDecimal.valueOf(1000);
+    // 品牌缩写最大长度（与t_profit_tier_rule.brand_code一致）
+    private static final int MAX_BRAND_CODE_LENGTH = 20;
+
+    private final ProfitTierRuleMapper profitTierRuleMapper;
+
+    // 用户ID -> 编译后的阶梯表
+    private final Map<Long, ProfitTierTable> tables = new ConcurrentHashMap<>();
+
+    @Override
+    public List<ProfitTierRuleDTO> listRules(Long userId) {
+        List<ProfitTierRule> rules = profitTierRuleMapper.selectList(new LambdaQueryWrapper<ProfitTierRule>()
+                .eq(ProfitTierRule::getUserId, userId)
+                .orderByAsc(ProfitTierRule::getBrandCode)
+                .orderByAsc(ProfitTierRule::getCustomerPriority)
+                .orderByAsc(ProfitTierRule::getMinQuantity));
+        List<ProfitTierRuleDTO> result = new ArrayList<>(rules.size());
+        for (ProfitTierRule rule : rules) {
+            ProfitTierRuleDTO dto = new ProfitTierRuleDTO();
+            dto.setBrandCode(rule.getBrandCode());
+            dto.setCustomerPriority(rule.getCustomerPriority());
+            dto.setMinQuantity(rule.getMinQuantity());
+            dto.setProfitRate(rule.getProfitRate());
+            result.add(dto);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveRules(Long userId, List<ProfitTierRuleDTO> rules) {
+        List<ProfitTierRule> entities = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (ProfitTierRuleDTO dto : rules != null ? rules : Collections.<ProfitTierRuleDTO>emptyList()) {
+            if (dto.getMinQuantity() == null || dto.getMinQuantity() < 1) {
+                throw new BusinessException("起始数量必须大于0");
+            }
+            if (dto.getProfitRate() == null || dto.getProfitRate().compareTo(BigDecimal.ZERO) < 0
+                    || dto.getProfitRate().compareTo(MAX_PROFIT_RATE) > 0) {
+                throw new BusinessException("利润率必须在0-1000之间");
+            }
+            if (dto.getCustomerPriority() != null && (dto.getCustomerPriority() < 1 || dto.getCustomerPriority() > 3)) {
+                throw new BusinessException("客户优先级只能为1、2、3");
+            }
+            String brandCode = StrUtil.isBlank(dto.getBrandCode()) ? null : dto.getBrandCode().trim().toUpperCase();
+            if (brandCode != null && brandCode.length() > MAX_BRAND_CODE_LENGTH) {
+                throw new BusinessException("品牌缩写不能超过" + MAX_BRAND_CODE_LENGTH + "个字符");
+            }
+            if (!keys.add(brandCode + "|" + dto.getCustomerPriority() + "|" + dto.getMinQuantity())) {
+                throw new BusinessException("存在重复的阶梯: 品牌=" + StrUtil.nullToDefault(brandCode, "全部")
+                        + ", 起始数量=" + dto.getMinQuantity());
+            }
+
+            ProfitTierRule rule = new ProfitTierRule();
+            rule.setUserId(userId);
+            rule.setBrandCode(brandCode);
+            rule.setCustomerPriority(dto.getCustomerPriority());
+            rule.setMinQuantity(dto.getMinQuantity());
+            rule.setProfitRate(dto.getProfitRate());
+            entities.add(rule);
+        }
+
+        profitTierRuleMapper.deleteByUserId(userId);
+        for (ProfitTierRule rule : entities) {
+            profitTierRuleMapper.insert(rule);
+        }
+        log.info("保存利润率阶梯规则: userId={}, rules={}", userId, entities.size());
+        invalidate(userId);
+    }
+
+    @Override
+    public ProfitTierTable getTable(Long userId) {
+        if (userId == null) {
+            return ProfitTierTable.DEFAULT;
+        }
+        return tables.computeIfAbsent(userId, this::load);
+    }
+
+    private ProfitTierTable load(Long userId) {
+        List<ProfitTierRule> rules = profitTierRuleMapper.selectList(new LambdaQueryWrapper<ProfitTierRule>()
+                .eq(ProfitTierRule::getUserId, userId));
+        return ProfitTierTable.compile(rules);
+    }
+
+    /**
+     * 事务提交后使缓存失效，避免并发请求在提交前重新加载到旧规则
+     */
+    private void invalidate(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tables.remove(userId);
+                }
+            });
+        } else {
+            tables.remove(userId);
+        }
+    }
+}
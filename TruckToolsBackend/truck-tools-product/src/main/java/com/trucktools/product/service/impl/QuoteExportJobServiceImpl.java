@@ -0,0 +1,271 @@
+package com.trucktools.product.service.impl;
+
+import com.trucktools.common.exception.BusinessException;
+import com.trucktools.common.utils.FileTransferUtils;
+import com.trucktools.common.utils.IdGenerator;
+import com.trucktools.product.dto.*;
+import com.trucktools.product.service.QuoteExportJobService;
+import com.trucktools.product.service.QuoteService;
+import com.trucktools.product.support.QuoteExcelExporter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * 报价导出任务服务实现
+ * 任务状态保存在内存中，文件由有界线程池生成到上传目录的exports子目录，超过保留时间后清理
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuoteExportJobServiceImpl implements QuoteExportJobService {
+
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final QuoteService quoteService;
+    private final QuoteExcelExporter quoteExcelExporter;
+
+    @Value("${app.upload.path:./uploads}")
+    private String uploadPath;
+
+    @Value("${app.export.job-threads:2}")
+    private int jobThreads;
+
+    @Value("${app.export.job-queue-capacity:20}")
+    private int jobQueueCapacity;
+
+    @Value("${app.export.job-row-threshold:500}")
+    private int jobRowThreshold;
+
+    @Value("${app.export.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+
+    // 任务ID -> 任务
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(jobThreads, jobThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jobQueueCapacity), new CustomizableThreadFactory("quote-export-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean shouldRunAsJob(int rows) {
+        return rows > jobRowThreshold;
+    }
+
+    @Override
+    public ExportJobDTO submitQuoteExport(Long userId, QuoteRequestDTO request) {
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new BusinessException("报价项不能为空");
+        }
+        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.M.d"));
+        return submit(userId, "报价单_" + dateStr + ".xlsx", request.getItems().size(), (job, out) -> {
+            QuoteResultDTO result = quoteService.calculate(userId, request);
+            quoteExcelExporter.writeQuote(result, dateStr, out, job::setRowsDone);
+        });
+    }
+
+    @Override
+    public ExportJobDTO submitQuoteCompareExport(Long userId, QuoteImportRequestDTO request) {
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new BusinessException("报价项不能为空");
+        }
+        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.M.d"));
+        return submit(userId, "报价对比_" + dateStr + ".xlsx", request.getItems().size(), (job, out) -> {
+            QuoteImportResultDTO result = quoteService.recalculateQuoteImport(userId, request);
+            quoteExcelExporter.writeQuoteCompare(result, dateStr, out, job::setRowsDone);
+        });
+    }
+
+    @Override
+    public ExportJobDTO getJob(Long userId, String jobId) {
+        return toDTO(findJob(userId, jobId));
+    }
+
+    @Override
+    public void download(Long userId, String jobId, HttpServletRequest request, HttpServletResponse response) {
+        ExportJob job = findJob(userId, jobId);
+        if (!"completed".equals(job.status)) {
+            throw new BusinessException("导出文件尚未生成");
+        }
+        if (!Files.exists(job.file)) {
+            throw new BusinessException("导出文件已过期，请重新导出");
+        }
+        try {
+            FileTransferUtils.sendAttachment(request, response, job.file, XLSX_CONTENT_TYPE, job.fileName);
+        } catch (IOException e) {
+            log.error("下载导出文件失败: jobId={}", jobId, e);
+            throw new BusinessException("下载失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清理过期的任务和文件
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+    public void cleanExpired() {
+        Instant expireBefore = Instant.now().minus(Duration.ofMinutes(jobTtlMinutes));
+        jobs.values().removeIf(job -> {
+            if (job.completedAt == null || job.createdInstant.isAfter(expireBefore)) {
+                return false;
+            }
+            deleteQuietly(job.file);
+            return true;
+        });
+
+        // 清理重启前遗留的文件
+        Path dir = exportDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> {
+                try {
+                    return Files.getLastModifiedTime(file).toInstant().isBefore(expireBefore);
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("清理导出文件失败: {}", e.getMessage());
+        }
+    }
+
+    private ExportJobDTO submit(Long userId, String fileName, int totalRows, ExportTask task) {
+        String jobId = IdGenerator.uuid();
+        ExportJob job = new ExportJob(jobId, userId, fileName, totalRows, exportDir().resolve(jobId + ".xlsx"));
+        jobs.put(jobId, job);
+
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            throw new BusinessException("导出任务较多，请稍后再试");
+        }
+        log.info("提交导出任务: jobId={}, userId={}, rows={}", jobId, userId, totalRows);
+        return toDTO(job);
+    }
+
+    private void run(ExportJob job, ExportTask task) {
+        job.status = "processing";
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(job.file.getParent());
+            try (OutputStream out = Files.newOutputStream(job.file)) {
+                task.write(job, out);
+            }
+            job.rowsDone = job.totalRows;
+            job.status = "completed";
+            log.info("导出任务完成: jobId={}, rows={}, 耗时{}ms", job.jobId, job.totalRows,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("导出任务失败: jobId={}", job.jobId, e);
+            deleteQuietly(job.file);
+            job.errorMessage = e.getMessage();
+            job.status = "failed";
+        } finally {
+            job.completedAt = LocalDateTime.now();
+        }
+    }
+
+    private ExportJob findJob(Long userId, String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            throw new BusinessException("导出任务不存在或已过期");
+        }
+        return job;
+    }
+
+    private Path exportDir() {
+        return Paths.get(uploadPath, "exports");
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导出文件失败: {}", file);
+        }
+    }
+
+    private ExportJobDTO toDTO(ExportJob job) {
+        ExportJobDTO dto = new ExportJobDTO();
+        dto.setJobId(job.jobId);
+        dto.setStatus(job.status);
+        dto.setTotalRows(job.totalRows);
+        dto.setRowsDone(job.rowsDone);
+        dto.setProgress(job.totalRows > 0 ? job.rowsDone * 100 / job.totalRows : 100);
+        dto.setFileName(job.fileName);
+        dto.setCreatedAt(job.createdAt);
+        dto.setCompletedAt(job.completedAt);
+        dto.setErrorMessage(job.errorMessage);
+        return dto;
+    }
+
+    /**
+     * 导出任务内容
+     */
+    @FunctionalInterface
+    private interface ExportTask {
+        void write(ExportJob job, OutputStream out) throws IOException;
+    }
+
+    /**
+     * 导出任务
+     */
+    private static class ExportJob {
+        private final String jobId;
+        private final Long userId;
+        private final String fileName;
+        private final int totalRows;
+        private final Path file;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final Instant createdInstant = Instant.now();
+
+        private volatile String status = "pending";
+        private volatile int rowsDone;
+        private volatile LocalDateTime completedAt;
+        private volatile String errorMessage;
+
+        ExportJob(String jobId, Long userId, String fileName, int totalRows, Path file) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.fileName = fileName;
+            this.totalRows = totalRows;
+            this.file = file;
+        }
+
+        void setRowsDone(int rowsDone) {
+            this.rowsDone = rowsDone;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.trucktools.product.support;
+
+import cn.hutool.core.util.StrUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导出图片预取
+ * 固定大小的线程池提前解析路径、读取并转换后续行的图片（优先使用产品图片的Excel单元格图），POI写入线程按行顺序消费已完成的结果；
+ * 每次导出最多预取 buffer-size 张图片，写入线程取走一张后才提交下一张（背压）
+ */
+@Slf4j
+@Component
+public class ExportImagePrefetcher {
+
+    @Value("${app.upload.path:./uploads}")
+    private String uploadPath;
+
+    @Value("${app.export.image-threads:4}")
+    private int imageThreads;
+
+    @Value("${app.export.image-buffer-size:32}")
+    private int bufferSize;
+
+    private static final PrefetchedImage NONE = new PrefetchedImage(null, null, null, false);
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(imageThreads, new CustomizableThreadFactory("export-image-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 开始一次导出的图片预取
+     * @param imageUrls 按行顺序的图片URL，不需要图片的行传null
+     */
+    public Session open(List<String> imageUrls) {
+        return new Session(imageUrls);
+    }
+
+    /**
+     * 预取结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PrefetchedImage {
+        private final String imageUrl;
+        /** 本地文件路径，无法解析时为null */
+        private final String path;
+        /** 图片数据（TIFF/GIF已转换为PNG），读取失败或重复路径时为null */
+        private final byte[] bytes;
+        /** 路径在本次导出中已出现过，未重复读取 */
+        private final boolean repeated;
+    }
+
+    /**
+     * 单次导出的预取会话，仅由写入线程使用
+     */
+    public class Session implements AutoCloseable {
+
+        private final List<String> imageUrls;
+        // 已提交读取的图片URL -> 解析出的路径（只保留路径，不持有图片数据）
+        private final Map<String, CompletableFuture<String>> submittedPaths = new HashMap<>();
+        private final Deque<Future<PrefetchedImage>> window = new ArrayDeque<>();
+        private int nextSubmit = 0;
+
+        // 各阶段耗时（纳秒）
+        private final AtomicLong readNanos = new AtomicLong();
+        private final AtomicLong convertNanos = new AtomicLong();
+        private long waitNanos = 0;
+        private int loaded = 0;
+        private final long startNanos = System.nanoTime();
+
+        private Session(List<String> imageUrls) {
+            this.imageUrls = imageUrls;
+            fill();
+        }
+
+        /**
+         * 获取下一行的图片（按open时的顺序），必要时等待预取完成
+         */
+        public PrefetchedImage next() throws IOException {
+            Future<PrefetchedImage> future = window.poll();
+            if (future == null) {
+                throw new IllegalStateException("没有更多图片");
+            }
+            long waitStart = System.nanoTime();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("图片预取被中断", e);
+            } catch (ExecutionException e) {
+                throw new IOException("图片预取失败", e.getCause());
+            } finally {
+                waitNanos += System.nanoTime() - waitStart;
+                fill();
+            }
+        }
+
+        /**
+         * 提交后续行的预取；路径解析和单元格图检查都在线程池中执行，写入线程只比较URL
+         */
+        private void fill() {
+            while (window.size() < bufferSize && nextSubmit < imageUrls.size()) {
+                String imageUrl = imageUrls.get(nextSubmit++);
+                if (StrUtil.isBlank(imageUrl)) {
+                    window.add(CompletableFuture.completedFuture(
+                            imageUrl == null ? NONE : new PrefetchedImage(imageUrl, null, null, false)));
+                    continue;
+                }
+                CompletableFuture<String> submitted = submittedPaths.get(imageUrl);
+                if (submitted != null) {
+                    // 同一图片只读取一次，由图片注册表复用
+                    window.add(submitted.thenApply(path -> new PrefetchedImage(imageUrl, path, null, true)));
+                    continue;
+                }
+                loaded++;
+                CompletableFuture<PrefetchedImage> future = CompletableFuture.supplyAsync(() -> {
+                    String path = cellImagePath(getLocalImagePath(imageUrl));
+                    return new PrefetchedImage(imageUrl, path, path != null ? readImageForExcel(path) : null, false);
+                }, executor);
+                submittedPaths.put(imageUrl, future.thenApply(PrefetchedImage::getPath));
+                window.add(future);
+            }
+        }
+
+        @Override
+        public void close() {
+            window.forEach(future -> future.cancel(true));
+            window.clear();
+            log.info("图片预取: 行{}, 读取{}张, 读取耗时{}ms, 转换耗时{}ms, 写入线程等待{}ms, 总耗时{}ms",
+                    imageUrls.size(), loaded,
+                    TimeUnit.NANOSECONDS.toMillis(readNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(convertNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        /**
+         * 读取图片并转换为Excel支持的格式
+         */
+        private byte[] readImageForExcel(String imagePath) {
+            String lowerPath = imagePath.toLowerCase();
+            // 如果是TIFF或GIF格式，需要转换为PNG
+            boolean convert = lowerPath.endsWith(".tiff") || lowerPath.endsWith(".tif") || lowerPath.endsWith(".gif");
+            long start = System.nanoTime();
+            try {
+                File file = new File(imagePath);
+                if (!file.exists()) {
+                    return null;
+                }
+
+                if (convert) {
+                    BufferedImage image = ImageIO.read(file);
+                    if (image != null) {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        ImageIO.write(image, "PNG", baos);
+                        return baos.toByteArray();
+                    }
+                }
+
+                // 其他格式直接读取
+                return Files.readAllBytes(file.toPath());
+            } catch (Exception e) {
+                log.warn("读取图片失败: {} - {}", imagePath, e.getMessage());
+                return null;
+            } finally {
+                (convert ? convertNanos : readNanos).addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * 已生成Excel单元格图时使用单元格图（JPEG，无需转换），否则使用原图
+     */
+    private static String cellImagePath(String path) {
+        if (path == null) {
+            return null;
+        }
+        String cellPath = ImageBlobStore.derivativePath(path, "cell", "jpg");
+        return new File(cellPath).exists() ? cellPath : path;
+    }
+
+    /**
+     * 根据图片URL获取本地文件路径
+     */
+    private String getLocalImagePath(String imageUrl) {
+        if (StrUtil.isBlank(imageUrl)) {
+            return null;
+        }
+
+        // 如果是完整的HTTP URL（如 http://localhost:8080/uploads/products/xxx.jpg）
+        if (imageUrl.startsWith("http://") || imageUrl.startsWith("https://")) {
+            // 提取URL中的路径部分
+            try {
+                URL url = new URL(imageUrl);
+                String path = url.getPath();
+                // 路径如 /uploads/products/2025/12/03/xxx.jpg
+                // 需要去掉开头的 /uploads 避免重复
+                if (path.startsWith("/uploads/")) {
+                    path = path.substring("/uploads".length());
+                }
+                return uploadPath + path;
+            } catch (Exception e) {
+                log.warn("解析图片URL失败: {}", imageUrl);
+                return null;
+            }
+        }
+
+        // 如果是相对路径（如 /uploads/products/xxx.jpg）
+        if (imageUrl.startsWith("/uploads/")) {
+            return uploadPath + imageUrl.substring("/uploads".length());
+        }
+
+        // 如果是相对路径（如 /products/xxx.jpg）
+        if (imageUrl.startsWith("/")) {
+            return uploadPath + imageUrl;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,261 @@
+package com.trucktools.product.support;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import com.trucktools.product.entity.ImageBlob;
+import com.trucktools.product.mapper.ImageBlobMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 产品图片内容寻址存储
+ * 图片按内容SHA-256保存为 /uploads/products/blobs/{前2位}/{sha256}.{ext}，相同内容只保存一份；
+ * 产品通过 retain/release 在各自事务中维护引用次数，无引用且超过保留时间的内容块由定时任务清理（连同其衍生图）。
+ * 衍生图（标准格式原图、缩略图等）保存在原图旁: {原图去扩展名}_{类型}.{ext}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageBlobStore {
+
+    private static final String URL_PREFIX = "/uploads/products/blobs/";
+    private static final int LOCK_STRIPES = 64;
+    private static final int SWEEP_BATCH_SIZE = 500;
+    // 衍生图文件名后缀
+    private static final String[] DERIVATIVE_SUFFIXES = {"_master.jpg", "_master.png", "_thumb.jpg", "_cell.jpg"};
+
+    private final ImageBlobMapper imageBlobMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.upload.path:./uploads}")
+    private String uploadPath;
+
+    @Value("${app.image-store.orphan-grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    // 同一内容块的登记、落盘与清理互斥
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // 内容块登记独立提交，不受调用方事务回滚影响
+    private TransactionTemplate requiresNew;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 保存图片：边写临时文件边计算SHA-256，内容已存在时复用已有文件
+     * 保存本身不计引用，调用方在写入产品的事务中调用 {@link #retain}
+     * @param extension 扩展名（不含点），内容块首次保存时使用
+     * @return 图片访问路径
+     */
+    public String save(InputStream in, String extension) throws IOException {
+        Path blobDir = Paths.get(uploadPath, "products", "blobs");
+        Path tmpDir = blobDir.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path temp = Files.createTempFile(tmpDir, "blob-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+                size = Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String sha256 = HexUtil.encodeHexStr(digest.digest());
+            String ext = StrUtil.isBlank(extension) ? "jpg" : extension.toLowerCase();
+            String candidatePath = URL_PREFIX + sha256.substring(0, 2) + "/" + sha256 + "." + ext;
+
+            synchronized (lockFor(sha256)) {
+                String filePath = requiresNew.execute(status -> {
+                    imageBlobMapper.touch(sha256, candidatePath, size);
+                    return imageBlobMapper.selectFilePath(sha256);
+                });
+                Path target = toFile(filePath);
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                return filePath;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 增加引用（与产品写入在同一事务中调用），非内容块路径忽略
+     */
+    public void retain(Collection<String> imagePaths) {
+        adjust(imagePaths, 1);
+    }
+
+    /**
+     * 减少引用（与产品删除/换图在同一事务中调用），非内容块路径忽略
+     */
+    public void release(Collection<String> imagePaths) {
+        adjust(imagePaths, -1);
+    }
+
+    /**
+     * 判断图片内容是否与已有内容块相同（只计算SHA-256，不写文件也不登记）
+     * @param imagePath 已有图片路径，非内容块路径时返回false
+     */
+    public boolean sameContent(String imagePath, InputStream in) throws IOException {
+        String sha256 = shaOf(imagePath);
+        if (sha256 == null) {
+            return false;
+        }
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return sha256.equals(HexUtil.encodeHexStr(digest.digest()));
+    }
+
+    /**
+     * 衍生图路径（URL路径或本地文件路径均可）
+     * 标准格式原图的衍生图与原图相同，如 a_master.png 的单元格图为 a_cell.jpg
+     * @param kind master/thumb/cell
+     */
+    public static String derivativePath(String imagePath, String kind, String extension) {
+        return derivativeBase(imagePath) + "_" + kind + "." + extension;
+    }
+
+    /**
+     * 删除图片的全部衍生图文件
+     */
+    public void deleteDerivatives(String imagePath) {
+        if (StrUtil.isBlank(imagePath) || !imagePath.startsWith("/uploads/")) {
+            return;
+        }
+        String base = derivativeBase(imagePath);
+        for (String suffix : DERIVATIVE_SUFFIXES) {
+            try {
+                Files.deleteIfExists(toFile(base + suffix));
+            } catch (IOException e) {
+                log.warn("删除衍生图失败: {}{}", base, suffix);
+            }
+        }
+    }
+
+    /**
+     * 图片访问路径（/uploads/...）对应的本地文件
+     */
+    public Path toFile(String filePath) {
+        return Paths.get(uploadPath, filePath.substring("/uploads/".length()));
+    }
+
+    /**
+     * 是否为内容块路径
+     */
+    public boolean isBlobPath(String imagePath) {
+        return imagePath != null && imagePath.startsWith(URL_PREFIX);
+    }
+
+    /**
+     * 清理无引用的内容块
+     * 保存后尚未被引用的内容块在保留时间内不会被清理
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+    public void sweepUnreferenced() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(orphanGraceMinutes);
+        int removed = 0;
+        long freedBytes = 0;
+        List<ImageBlob> blobs;
+        do {
+            blobs = imageBlobMapper.selectUnreferenced(before, SWEEP_BATCH_SIZE);
+            for (ImageBlob blob : blobs) {
+                synchronized (lockFor(blob.getSha256())) {
+                    if (imageBlobMapper.deleteUnreferenced(blob.getSha256(), before) == 0) {
+                        continue;
+                    }
+                    try {
+                        Files.deleteIfExists(toFile(blob.getFilePath()));
+                        deleteDerivatives(blob.getFilePath());
+                        removed++;
+                        freedBytes += blob.getFileSize() != null ? blob.getFileSize() : 0;
+                    } catch (IOException e) {
+                        log.warn("删除图片文件失败: {}", blob.getFilePath());
+                    }
+                }
+            }
+        } while (blobs.size() == SWEEP_BATCH_SIZE);
+
+        if (removed > 0) {
+            log.info("清理无引用图片: {} 个, 释放 {} KB", removed, freedBytes / 1024);
+        }
+    }
+
+    private void adjust(Collection<String> imagePaths, int delta) {
+        if (imagePaths == null || imagePaths.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> deltas = new HashMap<>();
+        for (String imagePath : imagePaths) {
+            String sha256 = shaOf(imagePath);
+            if (sha256 != null) {
+                deltas.merge(sha256, delta, Integer::sum);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            imageBlobMapper.adjustRefCounts(deltas);
+        }
+    }
+
+    /**
+     * 从内容块路径中取出SHA-256
+     */
+    private String shaOf(String imagePath) {
+        if (!isBlobPath(imagePath)) {
+            return null;
+        }
+        String fileName = imagePath.substring(imagePath.lastIndexOf('/') + 1);
+        int dot = fileName.indexOf('.');
+        String sha256 = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return sha256.length() == 64 ? sha256 : null;
+    }
+
+    /**
+     * 原图去掉扩展名（标准格式原图再去掉_master）
+     */
+    private static String derivativeBase(String imagePath) {
+        int slash = Math.max(imagePath.lastIndexOf('/'), imagePath.lastIndexOf('\\'));
+        int dot = imagePath.lastIndexOf('.');
+        String base = dot > slash ? imagePath.substring(0, dot) : imagePath;
+        return base.endsWith("_master") ? base.substring(0, base.length() - "_master".length()) : base;
+    }
+
+    private Object lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.trucktools.product.support;
+
+import com.trucktools.product.entity.Product;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * 产品导入变更明细（CSV，保存在上传文件旁）
+ * 记录新增、更新（每个变化的字段一行，含原值和新值）及写入失败的产品，未变化和重复跳过的行不记录；
+ * 只由导入的写入线程调用，继续导入时追加写入
+ */
+public class ImportDiffWriter implements Closeable {
+
+    private static final String SUFFIX = ".diff.csv";
+    private static final String HEADER = "结果,Sheet,XK NO.,OE NO.,字段,原值,新值,说明";
+
+    private final Writer writer;
+
+    private ImportDiffWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * 上传文件对应的变更明细路径
+     */
+    public static Path pathFor(String uploadFilePath) {
+        return Paths.get(uploadFilePath + SUFFIX);
+    }
+
+    /**
+     * 打开变更明细，文件不存在时写入BOM和表头（便于Excel直接打开）
+     */
+    public static ImportDiffWriter open(Path file) throws IOException {
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+        if (!exists) {
+            writer.write('\uFEFF');
+            writer.write(HEADER);
+            writer.write("\r\n");
+        }
+        return new ImportDiffWriter(writer);
+    }
+
+    public void created(String sheetName, Product product) throws IOException {
+        row("新增", sheetName, product, "", "", "", "");
+    }
+
+    /**
+     * 更新：逐个字段比较，只记录有变化的字段
+     */
+    public void updated(String sheetName, Product before, Product after) throws IOException {
+        field(sheetName, after, "最低价", before.getPriceMin(), after.getPriceMin());
+        field(sheetName, after, "最高价", before.getPriceMax(), after.getPriceMax());
+        field(sheetName, after, "平均价", before.getPriceAvg(), after.getPriceAvg());
+        if (!Objects.equals(nullToEmpty(before.getRemark()), nullToEmpty(after.getRemark()))) {
+            row("更新", sheetName, after, "备注", before.getRemark(), after.getRemark(), "");
+        }
+        if (!Objects.equals(before.getImagePath(), after.getImagePath())) {
+            row("更新", sheetName, after, "图片", before.getImagePath(), after.getImagePath(), "");
+        }
+    }
+
+    public void failed(String sheetName, Product product, String reason) throws IOException {
+        row("失败", sheetName, product, "", "", "", reason);
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void field(String sheetName, Product product, String name, BigDecimal before, BigDecimal after)
+            throws IOException {
+        if (before == null ? after != null : after == null || before.compareTo(after) != 0) {
+            row("更新", sheetName, product, name, plain(before), plain(after), "");
+        }
+    }
+
+    private void row(String result, String sheetName, Product product, String field, String before,
+                     String after, String note) throws IOException {
+        String[] values = {result, sheetName, product.getXkNo(), product.getOeNo(), field, before, after, note};
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : "";
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * 含逗号、引号或换行的值加引号，引号转义为两个引号
+     */
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,17 @@
+package com.trucktools.product.support;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 产品导入图片来源（xlsx内嵌图片或图片压缩包），按行文件中记录的条目路径读取图片
+ * 打开后可在多个线程中同时读取
+ */
+public interface ImportImageSource extends Closeable {
+
+    /**
+     * 打开图片条目的输入流（调用方负责关闭）
+     */
+    InputStream openMedia(String mediaPath) throws IOException;
+}
@@ -0,0 +1,186 @@
+package com.trucktools.product.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导入性能指标（通过 /actuator/metrics 查看）
+ * 记录产品导入预览、执行、分批写入及报价导入匹配的耗时和行数，以及每次产品导入的处理速度、内存分配速率和堆峰值
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportMetrics {
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY_BEAN = ManagementFactory.getMemoryMXBean();
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 开始统计一次产品导入
+     */
+    public ImportProbe start() {
+        return new ImportProbe();
+    }
+
+    /**
+     * 产品导入预览（解析上传文件并生成行文件）
+     * @param format xlsx/csv
+     */
+    public void recordPreview(String format, int rows, long nanos) {
+        Timer.builder("product.import.preview")
+                .tag("format", format)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("product.import.preview.rows")
+                .baseUnit("rows")
+                .tag("format", format)
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    /**
+     * 单批产品写入（含逐行重试）
+     */
+    public void recordBatch(int size, long nanos) {
+        Timer.builder("product.import.batch")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("product.import.batch.size")
+                .baseUnit("rows")
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * 产品导入执行结束（完成或服务停止中断）
+     * @param rows 本次执行处理的行数（继续导入时不含断点之前的行）
+     */
+    public void recordImport(String format, String mode, int rows, ImportProbe probe) {
+        long nanos = System.nanoTime() - probe.startNanos;
+        double seconds = Math.max(nanos, 1) / 1_000_000_000.0;
+        long allocated = probe.allocatedBytes();
+
+        Timer.builder("product.import.execute")
+                .tags("format", format, "mode", mode)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("product.import.rows")
+                .baseUnit("rows")
+                .tags("format", format, "mode", mode)
+                .register(meterRegistry)
+                .increment(rows);
+        DistributionSummary.builder("product.import.throughput")
+                .baseUnit("rows/s")
+                .tags("format", format, "mode", mode)
+                .register(meterRegistry)
+                .record(rows / seconds);
+        if (allocated >= 0) {
+            DistributionSummary.builder("product.import.allocation.rate")
+                    .baseUnit("bytes/s")
+                    .tags("format", format, "mode", mode)
+                    .register(meterRegistry)
+                    .record(allocated / seconds);
+        }
+        DistributionSummary.builder("product.import.heap.peak")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(probe.peakHeapBytes.get());
+
+        log.info("产品导入性能: format={}, mode={}, rows={}, 耗时{}ms, {}行/秒, 内存分配{}MB({}MB/秒), 堆峰值{}MB",
+                format, mode, rows, nanos / 1_000_000, (long) (rows / seconds),
+                allocated >= 0 ? String.format("%.1f", allocated / MB) : "-",
+                allocated >= 0 ? String.format("%.1f", allocated / MB / seconds) : "-",
+                String.format("%.1f", probe.peakHeapBytes.get() / MB));
+    }
+
+    /**
+     * 报价导入：读取Excel及按OE号匹配产品的耗时
+     */
+    public void recordQuoteImport(int rows, int matched, long parseNanos, long matchNanos) {
+        Timer.builder("product.quote.import.parse")
+                .register(meterRegistry)
+                .record(parseNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("product.quote.import.match")
+                .register(meterRegistry)
+                .record(matchNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("product.quote.import.rows")
+                .baseUnit("rows")
+                .register(meterRegistry)
+                .record(rows);
+        log.debug("报价导入: rows={}, matched={}, 读取{}ms, 匹配{}ms",
+                rows, matched, parseNanos / 1_000_000, matchNanos / 1_000_000);
+    }
+
+    /**
+     * 当前线程累计分配的内存字节数，JVM不支持时返回-1
+     */
+    private static long threadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * 单次产品导入的统计：导入线程及各Sheet任务的内存分配、写入时采样的堆使用峰值
+     */
+    public static class ImportProbe {
+        private final long startNanos = System.nanoTime();
+        private final long threadStartBytes = threadAllocatedBytes();
+        // Sheet任务分配的字节数
+        private final AtomicLong taskBytes = new AtomicLong();
+        private final AtomicLong peakHeapBytes = new AtomicLong();
+
+        private ImportProbe() {
+            sampleHeap();
+        }
+
+        /**
+         * 包装Sheet任务，计入任务线程的内存分配
+         */
+        public <T> Callable<T> wrap(Callable<T> task) {
+            return () -> {
+                long before = threadAllocatedBytes();
+                try {
+                    return task.call();
+                } finally {
+                    if (before >= 0) {
+                        taskBytes.addAndGet(threadAllocatedBytes() - before);
+                    }
+                }
+            };
+        }
+
+        /**
+         * 采样当前堆使用量
+         */
+        public void sampleHeap() {
+            peakHeapBytes.accumulateAndGet(MEMORY_BEAN.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+
+        /**
+         * 导入线程（需在导入线程中调用）及各Sheet任务分配的字节数，JVM不支持时返回-1
+         */
+        private long allocatedBytes() {
+            if (threadStartBytes < 0) {
+                return -1;
+            }
+            return threadAllocatedBytes() - threadStartBytes + taskBytes.get();
+        }
+    }
+}
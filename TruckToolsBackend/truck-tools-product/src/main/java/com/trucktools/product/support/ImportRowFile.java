@@ -0,0 +1,235 @@
+package com.trucktools.product.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 产品导入行文件
+ * 预览解析时把每行已解析的数据（XK/OE、价格区间、备注、图片条目）写成紧凑的二进制文件，保存在上传文件旁；
+ * 执行导入时直接按Sheet分段流式读取，不再重新解析xlsx。
+ * 文件结构：各Sheet的行记录依次排列，末尾为Sheet索引（名称、品牌缩写、起始位置、行数）及索引位置
+ */
+public class ImportRowFile {
+
+    private static final int MAGIC = 0x54545257;
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".rows";
+
+    private ImportRowFile() {
+    }
+
+    /**
+     * 上传文件对应的行文件路径
+     */
+    public static Path pathFor(String uploadFilePath) {
+        return Paths.get(uploadFilePath + SUFFIX);
+    }
+
+    /**
+     * 创建单个Sheet的分段写入器，各Sheet可在不同线程中同时写入
+     */
+    public static SegmentWriter createSegment(Path rowFile, int sheetIndex, String sheetName) throws IOException {
+        Path part = rowFile.resolveSibling(rowFile.getFileName() + "." + sheetIndex + ".part");
+        return new SegmentWriter(part, sheetName);
+    }
+
+    /**
+     * 按顺序合并各Sheet分段并写入索引，完成后删除分段文件
+     * 先写临时文件再原子替换，中途失败不会留下不完整的行文件
+     */
+    public static void merge(Path rowFile, List<SegmentWriter> segments) throws IOException {
+        Path temp = rowFile.resolveSibling(rowFile.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long offset = 8;
+            List<SheetSegment> index = new ArrayList<>(segments.size());
+            for (SegmentWriter segment : segments) {
+                index.add(new SheetSegment(segment.sheetName, segment.brandCode, offset, segment.rowCount));
+                out.flush();
+                offset += Files.copy(segment.part, fileOut);
+            }
+            out.flush();
+            out.writeInt(index.size());
+            for (SheetSegment segment : index) {
+                writeString(out, segment.getSheetName());
+                writeString(out, segment.getBrandCode());
+                out.writeLong(segment.getOffset());
+                out.writeInt(segment.getRowCount());
+            }
+            out.writeLong(offset);
+            out.writeInt(MAGIC);
+        } finally {
+            for (SegmentWriter segment : segments) {
+                Files.deleteIfExists(segment.part);
+            }
+        }
+        Files.move(temp, rowFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取Sheet索引
+     */
+    public static List<SheetSegment> readIndex(Path rowFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(rowFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 20) {
+                throw new IOException("导入行文件不完整: " + rowFile);
+            }
+            DataInputStream tail = new DataInputStream(Channels.newInputStream(channel.position(size - 12)));
+            long indexOffset = tail.readLong();
+            if (tail.readInt() != MAGIC) {
+                throw new IOException("导入行文件不完整: " + rowFile);
+            }
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(indexOffset))));
+            int count = in.readInt();
+            List<SheetSegment> index = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                index.add(new SheetSegment(readString(in), readString(in), in.readLong(), in.readInt()));
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 流式读取一个Sheet分段的行记录，不同分段可在不同线程中同时读取
+     */
+    public static void read(Path rowFile, SheetSegment segment, Consumer<ImportRow> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(rowFile, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Channels.newInputStream(channel.position(segment.getOffset())), 64 * 1024))) {
+            for (int i = 0; i < segment.getRowCount(); i++) {
+                ImportRow row = new ImportRow();
+                row.setRowIndex(in.readInt());
+                row.setXkNo(readString(in));
+                row.setOeNo(readString(in));
+                row.setPriceMin(readDecimal(in));
+                row.setPriceMax(readDecimal(in));
+                row.setPriceAvg(readDecimal(in));
+                row.setRemark(readString(in));
+                row.setMediaPath(readString(in));
+                consumer.accept(row);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        writeString(out, value != null ? value.toPlainString() : null);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        String value = readString(in);
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    /**
+     * 单个Sheet的分段写入器
+     */
+    public static class SegmentWriter implements Closeable {
+        private final Path part;
+        private final String sheetName;
+        private final DataOutputStream out;
+        private String brandCode = "";
+        @Getter
+        private int rowCount;
+
+        private SegmentWriter(Path part, String sheetName) throws IOException {
+            this.part = part;
+            this.sheetName = sheetName;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024));
+        }
+
+        public void setBrandCode(String brandCode) {
+            this.brandCode = brandCode;
+        }
+
+        public void write(ImportRow row) throws IOException {
+            out.writeInt(row.getRowIndex());
+            writeString(out, row.getXkNo());
+            writeString(out, row.getOeNo());
+            writeDecimal(out, row.getPriceMin());
+            writeDecimal(out, row.getPriceMax());
+            writeDecimal(out, row.getPriceAvg());
+            writeString(out, row.getRemark());
+            writeString(out, row.getMediaPath());
+            rowCount++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        /**
+         * 放弃分段（Sheet为空或解析出错时）
+         */
+        public void discard() throws IOException {
+            out.close();
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * Sheet分段索引
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SheetSegment {
+        private final String sheetName;
+        private final String brandCode;
+        /** 分段在文件中的起始位置 */
+        private final long offset;
+        private final int rowCount;
+    }
+
+    /**
+     * 导入行记录
+     */
+    @Data
+    public static class ImportRow {
+        /** 行号（从0开始） */
+        private int rowIndex;
+        private String xkNo;
+        private String oeNo;
+        private BigDecimal priceMin;
+        private BigDecimal priceMax;
+        private BigDecimal priceAvg;
+        private String remark;
+        /** D列图片在xlsx中的条目路径，无图片时为空 */
+        private String mediaPath;
+    }
+}
@@ -0,0 +1,137 @@
+package com.trucktools.product.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.trucktools.product.dto.BrandVO;
+import com.trucktools.product.entity.Product;
+import com.trucktools.product.entity.ProductBrandStat;
+import com.trucktools.product.entity.ProductImport;
+import com.trucktools.product.mapper.ProductBrandStatMapper;
+import com.trucktools.product.mapper.ProductImportMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 产品品牌统计（t_product_brand_stat）
+ * 按用户、品牌保存产品数、有图产品数和价格区间，品牌列表直接按主键前缀读取；
+ * 新增产品时在同一事务中累加，修改、删除产品后从产品表重新汇总涉及的品牌，定时任务按用户全量校准
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductBrandStats {
+
+    private final ProductBrandStatMapper productBrandStatMapper;
+    private final ProductImportMapper productImportMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 品牌列表（按产品数量降序排序）
+     */
+    public List<BrandVO> list(Long userId) {
+        return productBrandStatMapper.selectBrandList(userId);
+    }
+
+    /**
+     * 新增产品后累加统计（在产品写入的事务中调用）
+     */
+    public void onInserted(Long userId, List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        Map<String, ProductBrandStat> stats = new LinkedHashMap<>();
+        for (Product product : products) {
+            String brandCode = Objects.toString(product.getBrandCode(), "");
+            String brandName = Objects.toString(product.getBrandName(), "");
+            ProductBrandStat stat = stats.computeIfAbsent(brandCode + '\u0001' + brandName, k -> {
+                ProductBrandStat s = new ProductBrandStat();
+                s.setUserId(userId);
+                s.setBrandCode(brandCode);
+                s.setBrandName(brandName);
+                s.setProductCount(0);
+                s.setImageCount(0);
+                return s;
+            });
+            stat.setProductCount(stat.getProductCount() + 1);
+            if (product.getImagePath() != null && !product.getImagePath().isEmpty()) {
+                stat.setImageCount(stat.getImageCount() + 1);
+            }
+            stat.setPriceMin(min(stat.getPriceMin(), product.getPriceMin()));
+            stat.setPriceMax(max(stat.getPriceMax(), product.getPriceMax()));
+        }
+        productBrandStatMapper.incrementBatch(stats.values());
+    }
+
+    /**
+     * 修改、删除产品后从产品表重新汇总涉及的品牌（存在事务时加入该事务）
+     * @param brandCodes 涉及的品牌缩写（可含null）
+     */
+    public void refresh(Long userId, Collection<String> brandCodes) {
+        if (brandCodes == null || brandCodes.isEmpty()) {
+            return;
+        }
+        Set<String> codes = new HashSet<>();
+        for (String brandCode : brandCodes) {
+            codes.add(Objects.toString(brandCode, ""));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            productBrandStatMapper.deleteByBrandCodes(userId, codes);
+            productBrandStatMapper.insertFromProducts(userId, codes);
+        });
+    }
+
+    /**
+     * 按用户全量校准品牌统计，跳过正在导入产品的用户（导入结束后会重新汇总）
+     */
+    @Scheduled(fixedDelayString = "${app.brand-stat.reconcile-interval-ms:3600000}", initialDelay = 5 * 60 * 1000)
+    public void reconcileAll() {
+        long start = System.currentTimeMillis();
+        int users = 0;
+        for (Long userId : productBrandStatMapper.selectUserIds()) {
+            boolean importing = productImportMapper.selectCount(new LambdaQueryWrapper<ProductImport>()
+                    .eq(ProductImport::getUserId, userId)
+                    .eq(ProductImport::getStatus, 1)) > 0;
+            if (importing) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    productBrandStatMapper.deleteByBrandCodes(userId, null);
+                    productBrandStatMapper.insertFromProducts(userId, null);
+                });
+                users++;
+            } catch (Exception e) {
+                log.warn("校准品牌统计失败: userId={}, {}", userId, e.getMessage());
+            }
+        }
+        log.debug("校准品牌统计: users={}, 耗时{}ms", users, System.currentTimeMillis() - start);
+    }
+
+    private static BigDecimal min(BigDecimal a, BigDecimal b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static BigDecimal max(BigDecimal a, BigDecimal b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,267 @@
+package com.trucktools.product.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 产品导入CSV读取器（UTF-8，可带BOM）
+ * 第1行为表头：brand, xk_no, oe_no, price, remark, image_file，可选brand_code（列顺序不限，oe_no必填）。
+ * 在固定字符缓冲区中直接扫描字段边界，只为用到的列创建字符串，引号内的逗号、换行及""转义按RFC 4180处理
+ */
+public class ProductCsvReader {
+
+    private static final String[] COLUMNS = {"brand", "xk_no", "oe_no", "price", "remark", "image_file", "brand_code"};
+    private static final int BRAND = 0;
+    private static final int XK_NO = 1;
+    private static final int OE_NO = 2;
+    private static final int PRICE = 3;
+    private static final int REMARK = 4;
+    private static final int IMAGE_FILE = 5;
+    private static final int BRAND_CODE = 6;
+
+    private final Reader in;
+    private char[] buf = new char[64 * 1024];
+    private int limit;
+    private boolean eof;
+    // 当前记录在缓冲区中的起始位置
+    private int recordStart;
+
+    // 当前记录各字段在缓冲区中的位置，escaped表示字段含""转义
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldEscaped = new boolean[16];
+
+    // COLUMNS中各列在CSV中的位置，-1表示没有该列
+    private final int[] columnIndex = new int[COLUMNS.length];
+    private int rowCount;
+
+    private ProductCsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * 读取CSV
+     * @param consumer 数据行回调（XK NO.和OE NO.都为空的行不回调）
+     * @return 读取结果（数据行数）
+     */
+    public static ProductCsvReader read(File file, Consumer<ProductCsvRow> consumer) throws IOException {
+        try (Reader in = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            ProductCsvReader reader = new ProductCsvReader(in);
+            reader.readHeader();
+            int rowIndex = 0;
+            while (reader.nextRecord()) {
+                rowIndex++;
+                reader.acceptRow(rowIndex, consumer);
+            }
+            return reader;
+        }
+    }
+
+    /**
+     * 非空数据行数
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private void readHeader() throws IOException {
+        fill();
+        // 跳过BOM
+        if (limit > 0 && buf[0] == '\uFEFF') {
+            recordStart = 1;
+        }
+        if (!nextRecord()) {
+            throw new IOException("CSV文件为空");
+        }
+        Arrays.fill(columnIndex, -1);
+        for (int i = 0; i < fieldCount; i++) {
+            String name = field(i).toLowerCase();
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (COLUMNS[c].equals(name) && columnIndex[c] < 0) {
+                    columnIndex[c] = i;
+                }
+            }
+        }
+        if (columnIndex[OE_NO] < 0) {
+            throw new IOException("CSV缺少oe_no列，表头应为: " + String.join(",", COLUMNS));
+        }
+    }
+
+    private void acceptRow(int rowIndex, Consumer<ProductCsvRow> consumer) {
+        String xkNo = column(XK_NO);
+        String oeNo = column(OE_NO);
+        if (xkNo.isEmpty() && oeNo.isEmpty()) {
+            return;
+        }
+        rowCount++;
+        consumer.accept(new ProductCsvRow(rowIndex, column(BRAND), column(BRAND_CODE), xkNo, oeNo, column(PRICE),
+                column(REMARK), column(IMAGE_FILE)));
+    }
+
+    private String column(int column) {
+        int index = columnIndex[column];
+        return index >= 0 && index < fieldCount ? field(index) : "";
+    }
+
+    /**
+     * 字段值（去除首尾空格）
+     */
+    private String field(int index) {
+        String value = new String(buf, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+        if (fieldEscaped[index]) {
+            value = value.replace("\"\"", "\"");
+        }
+        return value.trim();
+    }
+
+    /**
+     * 读取下一条记录，记录跨越缓冲区末尾时把该记录移到缓冲区开头（必要时扩容）后重新扫描
+     * @return 是否读到记录（文件结束时返回false）
+     */
+    private boolean nextRecord() throws IOException {
+        while (true) {
+            if (recordStart >= limit && eof) {
+                return false;
+            }
+            int end = scanRecord();
+            if (end >= 0) {
+                recordStart = end;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        int remaining = limit - recordStart;
+        if (recordStart > 0) {
+            System.arraycopy(buf, recordStart, buf, 0, remaining);
+        } else if (remaining == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        recordStart = 0;
+        limit = remaining;
+        int read = in.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * 从recordStart扫描一条记录，记录字段位置
+     * @return 下一条记录的起始位置；缓冲区中的数据不足一条完整记录时返回-1
+     */
+    private int scanRecord() {
+        fieldCount = 0;
+        int p = recordStart;
+        while (true) {
+            int start;
+            int end;
+            boolean escaped = false;
+            if (p < limit && buf[p] == '"') {
+                p++;
+                start = p;
+                while (true) {
+                    if (p >= limit) {
+                        if (!eof) {
+                            return -1;
+                        }
+                        // 引号未闭合时取到文件末尾
+                        end = p;
+                        break;
+                    }
+                    if (buf[p] != '"') {
+                        p++;
+                        continue;
+                    }
+                    if (p + 1 >= limit && !eof) {
+                        return -1;
+                    }
+                    if (p + 1 < limit && buf[p + 1] == '"') {
+                        escaped = true;
+                        p += 2;
+                        continue;
+                    }
+                    end = p;
+                    p++;
+                    break;
+                }
+                // 闭合引号后到分隔符前的多余字符忽略
+                while (p < limit && buf[p] != ',' && buf[p] != '\r' && buf[p] != '\n') {
+                    p++;
+                }
+            } else {
+                start = p;
+                while (p < limit && buf[p] != ',' && buf[p] != '\r' && buf[p] != '\n') {
+                    p++;
+                }
+                end = p;
+            }
+            if (p >= limit && !eof) {
+                return -1;
+            }
+            addField(start, end, escaped);
+
+            if (p >= limit) {
+                return p;
+            }
+            char c = buf[p++];
+            if (c == ',') {
+                continue;
+            }
+            if (c == '\r') {
+                if (p >= limit && !eof) {
+                    return -1;
+                }
+                if (p < limit && buf[p] == '\n') {
+                    p++;
+                }
+            }
+            return p;
+        }
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    /**
+     * 产品数据行
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ProductCsvRow {
+        /** 行号（表头为0） */
+        private int rowIndex;
+        /** 品牌全称 */
+        private String brand;
+        /** 品牌缩写（可选） */
+        private String brandCode;
+        private String xkNo;
+        private String oeNo;
+        private String priceRaw;
+        private String remark;
+        /** 图片压缩包中的文件名 */
+        private String imageFile;
+    }
+}
@@ -0,0 +1,227 @@
+package com.trucktools.product.support;
+
+import cn.hutool.core.io.FileUtil;
+import com.trucktools.common.utils.ImageUtils;
+import com.trucktools.product.entity.Product;
+import com.trucktools.product.mapper.ProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 产品图片衍生图生成
+ * 产品图片写入提交后在后台线程中生成标准格式原图（JPEG/PNG原图直接使用，TIFF/GIF等转为PNG或JPEG）、
+ * 列表缩略图和Excel单元格图，写回产品；衍生图按原图文件生成，相同图片只生成一次。
+ * 图片无法解码时三者都记为原图。排队已满或服务重启遗漏的产品由定时任务在同一线程池中分页补生成
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductImageProcessor {
+
+    // 列表缩略图、Excel单元格图的最长边（像素）
+    private static final int THUMB_SIZE = 200;
+    private static final int CELL_SIZE = 320;
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final int UPDATE_BATCH_SIZE = 500;
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final ProductMapper productMapper;
+    private final ImageBlobStore imageBlobStore;
+
+    @Value("${app.image-derivative.threads:2}")
+    private int threads;
+
+    @Value("${app.image-derivative.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // 补生成任务是否正在执行
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("product-image-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 产品图片写入后提交生成（存在事务时在提交后提交）
+     * @param images 产品ID -> 图片路径
+     */
+    public void submit(Map<Long, String> images) {
+        Map<Long, String> snapshot = new LinkedHashMap<>();
+        images.forEach((productId, imagePath) -> {
+            if (imagePath != null && !imagePath.isEmpty()) {
+                snapshot.put(productId, imagePath);
+            }
+        });
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        runAfterCommit(() -> {
+            try {
+                executor.execute(() -> process(snapshot));
+            } catch (RejectedExecutionException e) {
+                // 队列已满时丢弃，由定时任务补生成
+                log.debug("衍生图队列已满，等待补生成: {} 个产品", snapshot.size());
+            }
+        });
+    }
+
+    /**
+     * 补生成遗漏的衍生图：定时线程只提交第一页，之后在衍生图线程池中按ID分页逐页处理，
+     * 每页处理完再提交下一页，不占用定时任务线程，也不挤占上传产生的任务
+     */
+    @Scheduled(fixedDelayString = "${app.image-derivative.sweep-interval-ms:21600000}", initialDelay = 2 * 60 * 1000)
+    public void sweepPending() {
+        if (sweeping.compareAndSet(false, true)) {
+            submitSweep(0, 0);
+        }
+    }
+
+    private void submitSweep(long afterId, int count) {
+        try {
+            executor.execute(() -> sweepPage(afterId, count));
+        } catch (RejectedExecutionException e) {
+            // 队列已满或服务停止，下次定时任务继续
+            sweeping.set(false);
+        }
+    }
+
+    private void sweepPage(long afterId, int count) {
+        try {
+            List<Product> products = productMapper.selectImagePending(afterId, SWEEP_BATCH_SIZE);
+            Map<Long, String> images = new LinkedHashMap<>();
+            long lastId = afterId;
+            for (Product product : products) {
+                images.put(product.getId(), product.getImagePath());
+                lastId = product.getId();
+            }
+            process(images);
+            count += products.size();
+            if (products.size() == SWEEP_BATCH_SIZE) {
+                submitSweep(lastId, count);
+                return;
+            }
+            if (count > 0) {
+                log.info("补生成产品衍生图: {} 个产品", count);
+            }
+        } catch (Exception e) {
+            log.warn("补生成衍生图失败: afterId={}, {}", afterId, e.getMessage());
+        }
+        sweeping.set(false);
+    }
+
+    private void process(Map<Long, String> images) {
+        Map<String, List<Long>> byPath = new LinkedHashMap<>();
+        images.forEach((productId, imagePath) -> byPath.computeIfAbsent(imagePath, k -> new ArrayList<>()).add(productId));
+        byPath.forEach((imagePath, productIds) -> {
+            try {
+                String[] paths = derive(imagePath);
+                for (int i = 0; i < productIds.size(); i += UPDATE_BATCH_SIZE) {
+                    productMapper.updateImageDerivatives(
+                            productIds.subList(i, Math.min(i + UPDATE_BATCH_SIZE, productIds.size())),
+                            imagePath, paths[0], paths[1], paths[2]);
+                }
+            } catch (Exception e) {
+                log.warn("生成衍生图失败: {}, {}", imagePath, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 生成衍生图，已存在的直接使用
+     * @return 标准格式原图、列表缩略图、Excel单元格图的访问路径
+     */
+    private String[] derive(String imagePath) throws IOException {
+        if (!imagePath.startsWith("/uploads/")) {
+            return new String[]{imagePath, imagePath, imagePath};
+        }
+        String thumbPath = ImageBlobStore.derivativePath(imagePath, "thumb", "jpg");
+        String cellPath = ImageBlobStore.derivativePath(imagePath, "cell", "jpg");
+        String ext = FileUtil.extName(imagePath).toLowerCase();
+        boolean standard = "jpg".equals(ext) || "jpeg".equals(ext) || "png".equals(ext);
+
+        BufferedImage image = null;
+        Path file = imageBlobStore.toFile(imagePath);
+        if (Files.exists(file)) {
+            image = ImageIO.read(file.toFile());
+        }
+        if (image == null) {
+            log.warn("无法解码图片，衍生图使用原图: {}", imagePath);
+            return new String[]{imagePath, imagePath, imagePath};
+        }
+
+        String masterPath = imagePath;
+        if (!standard) {
+            boolean alpha = image.getColorModel().hasAlpha();
+            masterPath = ImageBlobStore.derivativePath(imagePath, "master", alpha ? "png" : "jpg");
+            write(image, masterPath, alpha ? "png" : "jpg");
+        }
+        write(ImageUtils.scaleDown(image, THUMB_SIZE, THUMB_SIZE, false), thumbPath, "jpg");
+        write(ImageUtils.scaleDown(image, CELL_SIZE, CELL_SIZE, false), cellPath, "jpg");
+        return new String[]{masterPath, thumbPath, cellPath};
+    }
+
+    /**
+     * 写入衍生图：先写临时文件再移动，文件已存在时跳过
+     */
+    private void write(BufferedImage image, String path, String format) throws IOException {
+        Path target = imageBlobStore.toFile(path);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "derivative-", ".tmp");
+        try {
+            if ("jpg".equals(format)) {
+                ImageUtils.writeJpeg(image, temp, JPEG_QUALITY);
+            } else {
+                ImageIO.write(image, format, temp.toFile());
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.trucktools.product.support;
+
+import com.trucktools.product.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 产品索引维护
+ * 产品写入后统一同步OE号内存索引和编号搜索索引
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductIndexMaintainer {
+
+    private final ProductOeIndex productOeIndex;
+    private final ProductSearchIndex productSearchIndex;
+
+    /**
+     * 新增产品后
+     */
+    public void afterInsert(Long userId, List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        productOeIndex.onProductsSaved(userId, products);
+        productSearchIndex.onProductsSaved(userId, products);
+    }
+
+    /**
+     * 修改产品后
+     */
+    public void afterUpdate(Product product) {
+        productOeIndex.onProductSaved(product);
+        productSearchIndex.onProductSaved(product);
+    }
+
+    /**
+     * 删除产品后
+     */
+    public void afterDelete(Long userId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        productOeIndex.onProductsRemoved(userId, productIds);
+        productSearchIndex.onProductsRemoved(userId, productIds);
+    }
+}
@@ -0,0 +1,208 @@
+package com.trucktools.product.support;
+
+import com.trucktools.product.entity.Product;
+import com.trucktools.product.mapper.ProductMapper;
+import com.trucktools.product.utils.OeNoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 产品OE号内存索引
+ * 按用户维护 标准化OE令牌 -> 产品ID 的映射，首次使用时从t_product懒加载，
+ * 产品增删改提交后同步更新（加载期间提交的变更在加载完成后重放），使报价匹配只需哈希查找而无需逐行扫描产品表
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductOeIndex {
+
+    private final ProductMapper productMapper;
+
+    private final Map<Long, UserOeIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 批量查找OE号对应的产品ID
+     * @return OE号 -> 产品ID（未匹配的OE号不在结果中）
+     */
+    public Map<String, Long> findProductIds(Long userId, Collection<String> oeNos) {
+        Map<String, Long> result = new HashMap<>();
+        if (oeNos == null || oeNos.isEmpty()) {
+            return result;
+        }
+        UserOeIndex index = getIndex(userId);
+        synchronized (index) {
+            for (String oeNo : oeNos) {
+                Long productId = index.find(OeNoUtils.normalize(oeNo));
+                if (productId != null) {
+                    result.put(oeNo, productId);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 产品新增或修改后更新索引（存在事务时在提交后生效）
+     */
+    public void onProductSaved(Product product) {
+        onProductsSaved(product.getUserId(), List.of(product));
+    }
+
+    /**
+     * 批量新增产品后更新索引
+     */
+    public void onProductsSaved(Long userId, List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        // 先取快照，避免提交前实体被继续修改
+        Map<Long, String> snapshot = new LinkedHashMap<>();
+        for (Product product : products) {
+            snapshot.put(product.getId(), product.getOeNo());
+        }
+        runAfterCommit(() -> apply(userId, index -> snapshot.forEach(index::put)));
+    }
+
+    /**
+     * 产品删除后更新索引
+     */
+    public void onProductsRemoved(Long userId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(productIds);
+        runAfterCommit(() -> apply(userId, index -> ids.forEach(index::remove)));
+    }
+
+    /**
+     * 使用户索引失效，下次查询时重新加载
+     */
+    public void invalidate(Long userId) {
+        runAfterCommit(() -> indexes.remove(userId));
+    }
+
+    /**
+     * 已提交的变更应用到用户索引；索引正在加载时先记录，加载完成后在快照上重放（重放是幂等的）
+     */
+    private void apply(Long userId, Consumer<UserOeIndex> change) {
+        UserOeIndex index = indexes.get(userId);
+        if (index == null) {
+            // 尚未加载，之后加载时会读到已提交的数据
+            return;
+        }
+        synchronized (index) {
+            if (index.pending != null) {
+                index.pending.add(change);
+            } else {
+                change.accept(index);
+            }
+        }
+    }
+
+    /**
+     * 获取用户索引，未加载时加载；加载在映射表的锁之外进行，同一用户的并发请求等待同一次加载
+     */
+    private UserOeIndex getIndex(Long userId) {
+        UserOeIndex index = indexes.computeIfAbsent(userId, id -> new UserOeIndex());
+        if (index.loaded) {
+            return index;
+        }
+        synchronized (index.loadLock) {
+            if (!index.loaded) {
+                try {
+                    load(userId, index);
+                } catch (RuntimeException e) {
+                    indexes.remove(userId, index);
+                    throw e;
+                }
+            }
+        }
+        return index;
+    }
+
+    private void load(Long userId, UserOeIndex index) {
+        long start = System.currentTimeMillis();
+        List<Product> products = productMapper.selectOeNoList(userId);
+        synchronized (index) {
+            for (Product product : products) {
+                index.put(product.getId(), product.getOeNo());
+            }
+            index.pending.forEach(change -> change.accept(index));
+            index.pending = null;
+            index.loaded = true;
+        }
+        log.info("加载OE号索引: userId={}, products={}, tokens={}, 耗时{}ms",
+                userId, index.productTokens.size(), index.tokenProducts.size(), System.currentTimeMillis() - start);
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 单个用户的索引，调用方需持有对象锁
+     */
+    private static class UserOeIndex {
+
+        private final Object loadLock = new Object();
+        private volatile boolean loaded;
+        // 加载期间提交的变更，加载完成后置为null
+        private List<Consumer<UserOeIndex>> pending = new ArrayList<>();
+
+        private final Map<String, List<Long>> tokenProducts = new HashMap<>();
+        private final Map<Long, Set<String>> productTokens = new HashMap<>();
+
+        Long find(String token) {
+            List<Long> ids = tokenProducts.get(token);
+            if (ids == null || ids.isEmpty()) {
+                return null;
+            }
+            // 多个产品共用同一OE号时取最早创建的产品（雪花ID递增）
+            return Collections.min(ids);
+        }
+
+        void put(Long productId, String oeNo) {
+            remove(productId);
+            Set<String> tokens = OeNoUtils.tokenize(oeNo);
+            if (tokens.isEmpty()) {
+                return;
+            }
+            for (String token : tokens) {
+                tokenProducts.computeIfAbsent(token, k -> new ArrayList<>(1)).add(productId);
+            }
+            productTokens.put(productId, tokens);
+        }
+
+        void remove(Long productId) {
+            Set<String> tokens = productTokens.remove(productId);
+            if (tokens == null) {
+                return;
+            }
+            for (String token : tokens) {
+                List<Long> ids = tokenProducts.get(token);
+                if (ids != null) {
+                    ids.remove(productId);
+                    if (ids.isEmpty()) {
+                        tokenProducts.remove(token);
+                    }
+                }
+            }
+        }
+    }
+}
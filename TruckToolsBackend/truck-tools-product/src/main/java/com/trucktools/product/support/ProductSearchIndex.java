@@ -0,0 +1,441 @@
+package com.trucktools.product.support;
+
+import com.trucktools.product.entity.Product;
+import com.trucktools.product.mapper.ProductMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 产品编号搜索索引（OE号/XK号子串搜索）
+ * 按用户维护 三字符组 -> 产品序号列表 的倒排索引，首次使用时从t_product懒加载，产品增删改后同步更新；
+ * 搜索时取关键词各三字符组的序号列表求交集，再校验候选产品的编号确实包含关键词。
+ * 同时保存XK号、OE号和品牌缩写，产品列表可直接在索引上过滤、按XK号排序并分页。
+ * 编号和关键词只保留字母和数字并统一大写，输入“000-330”可匹配“000 330 16 03”
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    // 编号之间（OE号与XK号、/分隔的多个OE号）的分隔符，不参与三字符组
+    private static final char SEPARATOR = '\u0001';
+
+    private final ProductMapper productMapper;
+
+    private final Map<Long, UserSearchIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 搜索OE号或XK号包含关键词的产品
+     * @param limit 最多返回的产品数
+     * @return 产品ID（按创建顺序）；匹配的产品超过limit时返回null，由调用方改用数据库查询
+     */
+    public List<Long> search(Long userId, String keyword, int limit) {
+        String query = searchKey(keyword, false);
+        if (query.isEmpty()) {
+            return null;
+        }
+        UserSearchIndex index = getIndex(userId);
+        synchronized (index) {
+            return index.search(query, limit);
+        }
+    }
+
+    /**
+     * 分页搜索OE号或XK号包含关键词的产品，按XK号排序（不区分大小写，相同时按ID）
+     * 只保留当前页及之前的产品，不对全部匹配结果排序；关键词不含字母和数字时匹配全部产品
+     * @param brandCode 品牌缩写，为空时不过滤
+     * @param oeNo OE号（完整值），为空时不过滤
+     * @param offset 当前页之前的产品数
+     * @return 匹配总数及当前页的产品ID
+     */
+    public SearchPage searchPage(Long userId, String keyword, String brandCode, String oeNo,
+                                 boolean asc, long offset, int size) {
+        String query = searchKey(keyword, false);
+        UserSearchIndex index = getIndex(userId);
+        synchronized (index) {
+            return index.searchPage(query, brandCode, oeNo, asc, offset, size);
+        }
+    }
+
+    /**
+     * 搜索OE号或XK号包含关键词并符合过滤条件的全部产品（由数据库按其他字段排序时使用）
+     * @return 产品ID（按创建顺序）
+     */
+    public List<Long> searchAll(Long userId, String keyword, String brandCode, String oeNo) {
+        String query = searchKey(keyword, false);
+        UserSearchIndex index = getIndex(userId);
+        synchronized (index) {
+            List<Long> result = new ArrayList<>();
+            index.forEachMatch(query, ordinal -> {
+                if (index.accepts(ordinal, brandCode, oeNo)) {
+                    result.add(index.ids[ordinal]);
+                }
+                return true;
+            });
+            return result;
+        }
+    }
+
+    /**
+     * 产品新增或修改后更新索引（存在事务时在提交后生效）
+     */
+    public void onProductSaved(Product product) {
+        onProductsSaved(product.getUserId(), List.of(product));
+    }
+
+    /**
+     * 批量新增产品后更新索引
+     */
+    public void onProductsSaved(Long userId, List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        // 先取快照，避免提交前实体被继续修改
+        Map<Long, Entry> snapshot = new LinkedHashMap<>();
+        for (Product product : products) {
+            snapshot.put(product.getId(), entry(product));
+        }
+        runAfterCommit(() -> apply(userId, index -> snapshot.forEach(index::put)));
+    }
+
+    /**
+     * 产品删除后更新索引
+     */
+    public void onProductsRemoved(Long userId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(productIds);
+        runAfterCommit(() -> apply(userId, index -> ids.forEach(index::remove)));
+    }
+
+    /**
+     * 已提交的变更应用到用户索引；索引正在加载时先记录，加载完成后在快照上重放
+     */
+    private void apply(Long userId, Consumer<UserSearchIndex> change) {
+        UserSearchIndex index = indexes.get(userId);
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (index.pending != null) {
+                index.pending.add(change);
+            } else {
+                change.accept(index);
+            }
+        }
+    }
+
+    /**
+     * 获取用户索引，未加载时在映射表的锁之外加载
+     */
+    private UserSearchIndex getIndex(Long userId) {
+        UserSearchIndex index = indexes.computeIfAbsent(userId, id -> new UserSearchIndex());
+        if (index.loaded) {
+            return index;
+        }
+        synchronized (index.loadLock) {
+            if (!index.loaded) {
+                try {
+                    load(userId, index);
+                } catch (RuntimeException e) {
+                    indexes.remove(userId, index);
+                    throw e;
+                }
+            }
+        }
+        return index;
+    }
+
+    private void load(Long userId, UserSearchIndex index) {
+        long start = System.currentTimeMillis();
+        List<Product> products = productMapper.selectSearchKeyList(userId);
+        synchronized (index) {
+            for (Product product : products) {
+                index.put(product.getId(), entry(product));
+            }
+            index.pending.forEach(change -> change.accept(index));
+            index.pending = null;
+            index.loaded = true;
+        }
+        log.info("加载产品搜索索引: userId={}, products={}, grams={}, 耗时{}ms",
+                userId, index.ordinals.size(), index.postings.size(), System.currentTimeMillis() - start);
+    }
+
+    private static Entry entry(Product product) {
+        String key = searchKey(product.getOeNo(), true) + SEPARATOR + searchKey(product.getXkNo(), true);
+        return new Entry(key, Objects.toString(product.getXkNo(), ""), product.getOeNo(), product.getBrandCode());
+    }
+
+    /**
+     * 标准化编号：只保留字母和数字并统一大写
+     * @param keepSeparator 是否把/转为分隔符（产品编号中/分隔多个OE号，关键词中忽略）
+     */
+    private static String searchKey(String value, boolean keepSeparator) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toUpperCase(c));
+            } else if (c == '/' && keepSeparator) {
+                sb.append(SEPARATOR);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 单个用户的索引，调用方需持有对象锁
+     * 产品按加入顺序分配递增序号，序号列表只追加因而保持有序；删除时只清空序号对应的编号，
+     * 已删除的序号过多时重建
+     */
+    private static class UserSearchIndex {
+
+        private final Object loadLock = new Object();
+        private volatile boolean loaded;
+        // 加载期间提交的变更，加载完成后置为null
+        private List<Consumer<UserSearchIndex>> pending = new ArrayList<>();
+
+        private long[] ids = new long[1024];
+        // 已删除的序号为null
+        private Entry[] entries = new Entry[1024];
+        // 已分配的序号数
+        private int size;
+        // 已删除的序号数
+        private int removed;
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+
+        List<Long> search(String query, int limit) {
+            List<Long> result = new ArrayList<>();
+            forEachMatch(query, ordinal -> {
+                result.add(ids[ordinal]);
+                return result.size() <= limit;
+            });
+            return result.size() > limit ? null : result;
+        }
+
+        SearchPage searchPage(String query, String brandCode, String oeNo, boolean asc, long offset, int size) {
+            Comparator<Integer> order = Comparator.<Integer, String>comparing(ordinal -> entries[ordinal].xkNo,
+                    String.CASE_INSENSITIVE_ORDER).thenComparingLong(ordinal -> ids[ordinal]);
+            if (!asc) {
+                order = order.reversed();
+            }
+            // 堆顶为已保留的产品中排在最后的
+            int keep = (int) Math.min(offset + size, Integer.MAX_VALUE);
+            Comparator<Integer> pageOrder = order;
+            PriorityQueue<Integer> top = new PriorityQueue<>(pageOrder.reversed());
+            long[] total = new long[1];
+            forEachMatch(query, ordinal -> {
+                if (!accepts(ordinal, brandCode, oeNo)) {
+                    return true;
+                }
+                total[0]++;
+                if (top.size() < keep) {
+                    top.add(ordinal);
+                } else if (keep > 0 && pageOrder.compare(ordinal, top.peek()) < 0) {
+                    top.poll();
+                    top.add(ordinal);
+                }
+                return true;
+            });
+            List<Integer> kept = new ArrayList<>(top);
+            kept.sort(pageOrder);
+            List<Long> pageIds = new ArrayList<>();
+            for (int i = (int) Math.min(offset, kept.size()); i < kept.size(); i++) {
+                pageIds.add(ids[kept.get(i)]);
+            }
+            return new SearchPage(total[0], pageIds);
+        }
+
+        boolean accepts(int ordinal, String brandCode, String oeNo) {
+            Entry entry = entries[ordinal];
+            return (brandCode == null || brandCode.equalsIgnoreCase(entry.brandCode))
+                    && (oeNo == null || oeNo.equalsIgnoreCase(entry.oeNo));
+        }
+
+        /**
+         * 按序号升序处理编号包含关键词的产品，处理结果为false时停止
+         */
+        void forEachMatch(String query, IntPredicate action) {
+            if (query.length() < GRAM) {
+                // 关键词过短时逐个比较
+                for (int ordinal = 0; ordinal < size; ordinal++) {
+                    if (entries[ordinal] != null && entries[ordinal].key.contains(query) && !action.test(ordinal)) {
+                        return;
+                    }
+                }
+                return;
+            }
+
+            List<IntList> lists = new ArrayList<>();
+            for (int i = 0; i + GRAM <= query.length(); i++) {
+                IntList list = postings.get(gram(query, i));
+                if (list == null) {
+                    return;
+                }
+                if (!lists.contains(list)) {
+                    lists.add(list);
+                }
+            }
+            // 从最短的列表开始求交集，其余列表按游标向后查找
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            IntList first = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            candidates:
+            for (int k = 0; k < first.size; k++) {
+                int ordinal = first.data[k];
+                for (int j = 1; j < lists.size(); j++) {
+                    IntList list = lists.get(j);
+                    int cursor = list.seek(cursors[j], ordinal);
+                    cursors[j] = cursor;
+                    if (cursor >= list.size) {
+                        break candidates;
+                    }
+                    if (list.data[cursor] != ordinal) {
+                        continue candidates;
+                    }
+                }
+                // 三字符组都出现不代表连续出现，需校验
+                if (entries[ordinal] != null && entries[ordinal].key.contains(query) && !action.test(ordinal)) {
+                    return;
+                }
+            }
+        }
+
+        void put(Long productId, Entry entry) {
+            remove(productId);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            int ordinal = size++;
+            ids[ordinal] = productId;
+            entries[ordinal] = entry;
+            ordinals.put(productId, ordinal);
+
+            String key = entry.key;
+
+            Set<Long> grams = new HashSet<>();
+            for (int i = 0; i + GRAM <= key.length(); i++) {
+                if (key.charAt(i) != SEPARATOR && key.charAt(i + 1) != SEPARATOR && key.charAt(i + 2) != SEPARATOR) {
+                    grams.add(gram(key, i));
+                }
+            }
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, g -> new IntList()).add(ordinal);
+            }
+        }
+
+        void remove(Long productId) {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            entries[ordinal] = null;
+            removed++;
+            if (removed > 1024 && removed > size / 2) {
+                rebuild();
+            }
+        }
+
+        private void rebuild() {
+            long[] oldIds = ids;
+            Entry[] oldEntries = entries;
+            int oldSize = size;
+            ids = new long[Math.max(1024, oldSize - removed)];
+            entries = new Entry[ids.length];
+            size = 0;
+            removed = 0;
+            ordinals.clear();
+            postings.clear();
+            for (int ordinal = 0; ordinal < oldSize; ordinal++) {
+                if (oldEntries[ordinal] != null) {
+                    put(oldIds[ordinal], oldEntries[ordinal]);
+                }
+            }
+        }
+
+        private static long gram(String key, int start) {
+            return ((long) key.charAt(start) << 32) | ((long) key.charAt(start + 1) << 16) | key.charAt(start + 2);
+        }
+    }
+
+    /**
+     * 分页搜索结果
+     * @param total 匹配总数
+     * @param ids 当前页的产品ID（已排序）
+     */
+    public record SearchPage(long total, List<Long> ids) {
+    }
+
+    /**
+     * 索引中的产品：标准化编号（用于匹配）及过滤和排序用的原始字段
+     */
+    private record Entry(String key, String xkNo, String oeNo, String brandCode) {
+    }
+
+    /**
+     * 递增的int列表
+     */
+    private static class IntList {
+        private int[] data = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        /**
+         * 从from起查找第一个不小于value的位置（倍增后二分）
+         */
+        int seek(int from, int value) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && data[high] < value) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (data[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
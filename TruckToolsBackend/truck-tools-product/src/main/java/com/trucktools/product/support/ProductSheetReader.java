@@ -0,0 +1,124 @@
+package com.trucktools.product.support;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.enums.ReadDefaultReturnEnum;
+import com.alibaba.excel.exception.ExcelAnalysisException;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 产品导入Sheet读取器
+ * 使用EasyExcel事件模型逐行读取单个品牌Sheet，每次读取独立打开文件，不同Sheet可在不同线程中同时读取。
+ * Sheet格式：第1行A列为品牌缩写，第2行为表头，第3行起为数据（B列XK NO.、C列OE NO.、E列售价、F列备注）
+ */
+public class ProductSheetReader {
+
+    // 数据起始行（从0开始）
+    private static final int DATA_START_ROW = 2;
+
+    private String brandCode = "";
+    // 非空行数（含品牌行和表头）
+    private int rowCount;
+
+    private ProductSheetReader() {
+    }
+
+    /**
+     * 读取Sheet
+     * @param sheetNo Sheet序号（从0开始，与工作簿中的顺序一致）
+     * @param consumer 数据行回调（XK NO.和OE NO.都为空的行不回调）
+     * @return 读取结果（品牌缩写、非空行数）
+     */
+    public static ProductSheetReader read(File file, int sheetNo, Consumer<ProductSheetRow> consumer)
+            throws IOException {
+        ProductSheetReader reader = new ProductSheetReader();
+        try {
+            EasyExcel.read(file, new ReadListener<Map<Integer, Object>>() {
+                @Override
+                public void invoke(Map<Integer, Object> data, AnalysisContext context) {
+                    reader.acceptRow(context.readRowHolder().getRowIndex(), data, consumer);
+                }
+
+                @Override
+                public void doAfterAllAnalysed(AnalysisContext context) {
+                }
+            }).excelType(ExcelTypeEnum.XLSX)
+                    .readDefaultReturn(ReadDefaultReturnEnum.ACTUAL_DATA)
+                    .headRowNumber(0)
+                    .sheet(sheetNo)
+                    .doRead();
+        } catch (ExcelAnalysisException e) {
+            // 回调中抛出的异常原样抛出
+            if (e.getCause() instanceof RuntimeException cause && !(cause instanceof ExcelAnalysisException)) {
+                throw cause;
+            }
+            throw new IOException(e.getMessage(), e);
+        }
+        return reader;
+    }
+
+    public String getBrandCode() {
+        return brandCode;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private void acceptRow(int rowIndex, Map<Integer, Object> data, Consumer<ProductSheetRow> consumer) {
+        rowCount++;
+        if (rowIndex == 0) {
+            brandCode = cellString(data.get(0));
+            return;
+        }
+        if (rowIndex < DATA_START_ROW) {
+            return;
+        }
+
+        String xkNo = cellString(data.get(1));
+        String oeNo = cellString(data.get(2));
+        if (xkNo.isEmpty() && oeNo.isEmpty()) {
+            return;
+        }
+        consumer.accept(new ProductSheetRow(rowIndex, brandCode, xkNo, oeNo,
+                cellString(data.get(4)), cellString(data.get(5))));
+    }
+
+    /**
+     * 单元格转字符串：数字为整数时不带小数位，文本去除首尾空格
+     */
+    private static String cellString(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof BigDecimal number) {
+            return number.stripTrailingZeros().toPlainString();
+        }
+        return value.toString().trim();
+    }
+
+    /**
+     * 产品数据行
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ProductSheetRow {
+        /** 行号（从0开始） */
+        private int rowIndex;
+        /** 所在Sheet的品牌缩写 */
+        private String brandCode;
+        private String xkNo;
+        private String oeNo;
+        private String priceRaw;
+        private String remark;
+    }
+}
@@ -0,0 +1,163 @@
+package com.trucktools.product.support;
+
+import com.trucktools.product.entity.ProfitTierRule;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 编译后的利润率阶梯表（不可变）
+ * 规则按 品牌 x 客户优先级 分组，每组编译为按起始数量升序的 int[] 与利润率数组，二分查找；
+ * 查找顺序：品牌+优先级 > 品牌 > 优先级 > 通用规则 > 系统默认阶梯
+ */
+public final class ProfitTierTable {
+
+    // 客户优先级槽位：0=所有客户，1-3=高/中/低
+    private static final int PRIORITY_SLOTS = 4;
+    private static final String ANY_BRAND = "";
+    private static final BigDecimal FALLBACK_PROFIT_RATE = BigDecimal.valueOf(10);
+
+    /**
+     * 系统默认阶梯：1-99件10%，100-199件6%，200-499件3%，500件以上0%
+     */
+    public static final ProfitTierTable DEFAULT = new ProfitTierTable(Map.of(ANY_BRAND, new Tiers[]{
+            new Tiers(new int[]{1, 100, 200, 500}, new BigDecimal[]{
+                    BigDecimal.valueOf(10), BigDecimal.valueOf(6), BigDecimal.valueOf(3), BigDecimal.ZERO}),
+            null, null, null}), 4, null);
+
+    // 品牌 -> 按优先级槽位的阶梯
+    private final Map<String, Tiers[]> scopes;
+    private final int ruleCount;
+    private final ProfitTierTable fallback;
+
+    private ProfitTierTable(Map<String, Tiers[]> scopes, int ruleCount, ProfitTierTable fallback) {
+        this.scopes = scopes;
+        this.ruleCount = ruleCount;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 编译规则，同一分组内起始数量重复时以后出现的为准；未覆盖的数量使用系统默认阶梯
+     */
+    public static ProfitTierTable compile(List<ProfitTierRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return DEFAULT;
+        }
+        Map<String, TreeMap<Integer, BigDecimal>[]> grouped = new HashMap<>();
+        for (ProfitTierRule rule : rules) {
+            if (rule.getMinQuantity() == null || rule.getProfitRate() == null) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            TreeMap<Integer, BigDecimal>[] slots = grouped.computeIfAbsent(normalizeBrand(rule.getBrandCode()),
+                    key -> new TreeMap[PRIORITY_SLOTS]);
+            int slot = prioritySlot(rule.getCustomerPriority());
+            if (slots[slot] == null) {
+                slots[slot] = new TreeMap<>();
+            }
+            slots[slot].put(rule.getMinQuantity(), rule.getProfitRate());
+        }
+
+        Map<String, Tiers[]> scopes = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((brand, slots) -> {
+            Tiers[] tiers = new Tiers[PRIORITY_SLOTS];
+            for (int i = 0; i < PRIORITY_SLOTS; i++) {
+                if (slots[i] != null) {
+                    tiers[i] = Tiers.of(slots[i]);
+                }
+            }
+            scopes.put(brand, tiers);
+        });
+        return new ProfitTierTable(scopes, rules.size(), DEFAULT);
+    }
+
+    /**
+     * 查找推荐利润率
+     * @param quantity 数量，为空或小于1时按1
+     * @param brandCode 品牌缩写，可为空
+     * @param customerPriority 客户优先级，可为空
+     */
+    public BigDecimal lookup(Integer quantity, String brandCode, Integer customerPriority) {
+        int qty = quantity == null || quantity <= 0 ? 1 : quantity;
+        int slot = prioritySlot(customerPriority);
+        String brand = normalizeBrand(brandCode);
+
+        BigDecimal rate = null;
+        if (!brand.isEmpty()) {
+            Tiers[] brandTiers = scopes.get(brand);
+            if (brandTiers != null) {
+                rate = find(brandTiers, slot, qty);
+            }
+        }
+        if (rate == null) {
+            Tiers[] anyBrandTiers = scopes.get(ANY_BRAND);
+            if (anyBrandTiers != null) {
+                rate = find(anyBrandTiers, slot, qty);
+            }
+        }
+        if (rate == null) {
+            rate = fallback != null ? fallback.lookup(qty, null, null) : FALLBACK_PROFIT_RATE;
+        }
+        return rate;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    private static BigDecimal find(Tiers[] tiers, int slot, int qty) {
+        BigDecimal rate = null;
+        if (slot > 0 && tiers[slot] != null) {
+            rate = tiers[slot].find(qty);
+        }
+        if (rate == null && tiers[0] != null) {
+            rate = tiers[0].find(qty);
+        }
+        return rate;
+    }
+
+    private static int prioritySlot(Integer customerPriority) {
+        return customerPriority != null && customerPriority > 0 && customerPriority < PRIORITY_SLOTS
+                ? customerPriority : 0;
+    }
+
+    private static String normalizeBrand(String brandCode) {
+        return brandCode == null ? ANY_BRAND : brandCode.trim().toUpperCase();
+    }
+
+    /**
+     * 单个分组的阶梯：minQuantities 升序，rates[i] 适用于 [minQuantities[i], minQuantities[i+1])
+     */
+    private static final class Tiers {
+        private final int[] minQuantities;
+        private final BigDecimal[] rates;
+
+        private Tiers(int[] minQuantities, BigDecimal[] rates) {
+            this.minQuantities = minQuantities;
+            this.rates = rates;
+        }
+
+        static Tiers of(TreeMap<Integer, BigDecimal> sorted) {
+            int[] mins = new int[sorted.size()];
+            BigDecimal[] rates = new BigDecimal[sorted.size()];
+            int i = 0;
+            for (Map.Entry<Integer, BigDecimal> entry : sorted.entrySet()) {
+                mins[i] = entry.getKey();
+                rates[i] = entry.getValue();
+                i++;
+            }
+            return new Tiers(mins, rates);
+        }
+
+        /**
+         * @return 起始数量不大于qty的最后一个阶梯的利润率，qty小于第一个阶梯时为null
+         */
+        BigDecimal find(int qty) {
+            int index = Arrays.binarySearch(minQuantities, qty);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index >= 0 ? rates[index] : null;
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package com.trucktools.product.support;
+
+import cn.hutool.core.util.StrUtil;
+import com.trucktools.product.dto.QuoteImportItemDTO;
+import com.trucktools.product.dto.QuoteImportResultDTO;
+import com.trucktools.product.dto.QuoteItemDTO;
+import com.trucktools.product.dto.QuoteResultDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * 报价Excel导出
+ * 使用SXSSF流式写入：内存中只保留最近的若干行，其余行压缩写入临时文件，
+ * 写出时直接从临时文件流向输出流
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuoteExcelExporter {
+
+    // 内存中保留的行数
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    private final ExportImagePrefetcher imagePrefetcher;
+
+    /**
+     * 写出报价单
+     */
+    public void writeQuote(QuoteResultDTO quoteResult, String dateStr, OutputStream out) throws IOException {
+        writeQuote(quoteResult, dateStr, out, null);
+    }
+
+    /**
+     * 写出报价单
+     * @param progress 每写完一行回调已完成行数（可为空）
+     */
+    public void writeQuote(QuoteResultDTO quoteResult, String dateStr, OutputStream out,
+                           IntConsumer progress) throws IOException {
+        long start = System.currentTimeMillis();
+        SXSSFWorkbook workbook = createWorkbook();
+        // 后台线程按行顺序预取图片
+        ExportImagePrefetcher.Session images = imagePrefetcher.open(quoteResult.getItems().stream()
+                .map(QuoteItemDTO::getImageUrl)
+                .collect(Collectors.toList()));
+        try {
+            Sheet sheet = workbook.createSheet("报价单");
+
+            // 设置列宽
+            sheet.setColumnWidth(0, 2000);  // NO.
+            sheet.setColumnWidth(1, 4000);  // XK NO.
+            sheet.setColumnWidth(2, 4000);  // OE NO.
+            sheet.setColumnWidth(3, 3667);  // PICTURE
+            sheet.setColumnWidth(4, 3500);  // UNIT PRICE
+
+            // 创建样式
+            CellStyle titleStyle = createSimpleTitleStyle(workbook);
+            CellStyle headerStyle = createSimpleHeaderStyle(workbook);
+            CellStyle dataStyle = createSimpleDataStyle(workbook);
+            CellStyle priceStyle = createSimplePriceStyle(workbook, dataStyle);
+            CellStyle noPriceStyle = createSimpleNoPriceStyle(workbook, dataStyle);
+
+            int rowNum = 0;
+
+            // 标题行 (行高缩小一倍)
+            Row titleRow = sheet.createRow(rowNum++);
+            titleRow.setHeightInPoints(15);
+            Cell titleCell = titleRow.createCell(0);
+            titleCell.setCellValue("PRICE QUOTATION -- " + dateStr);
+            titleCell.setCellStyle(titleStyle);
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 4));
+
+            // 空行
+            rowNum++;
+
+            // 表头行 (行高缩小一倍)
+            Row headerRow = sheet.createRow(rowNum++);
+            headerRow.setHeightInPoints(12.5f);
+            String[] headers = {"NO.", "XK NO.", "OE NO.", "PICTURE", "UNIT PRICE"};
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+
+            // 数据行
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            WorkbookPictureRegistry pictures = new WorkbookPictureRegistry(workbook);
+            int no = 1;
+            for (QuoteItemDTO item : quoteResult.getItems()) {
+                Row dataRow = sheet.createRow(rowNum);
+                dataRow.setHeightInPoints(60); // 统一行高 (缩小一倍)
+
+                // NO.
+                Cell noCell = dataRow.createCell(0);
+                noCell.setCellValue(no++);
+                noCell.setCellStyle(dataStyle);
+
+                // XK NO.
+                Cell xkCell = dataRow.createCell(1);
+                xkCell.setCellValue(item.getXkNo() != null ? item.getXkNo() : "");
+                xkCell.setCellStyle(dataStyle);
+
+                // OE NO. - 将斜杠替换为换行符，去除多余空格避免空行
+                Cell oeCell = dataRow.createCell(2);
+                String oeNo = item.getOeNo() != null ? item.getOeNo() : "";
+                // 先清理空格，再替换斜杠为换行符，避免产生空行
+                oeNo = oeNo.trim()
+                           .replaceAll("\\s*/\\s*", "/")  // 去除斜杠前后的空格
+                           .replace("/", "\n");            // 将 / 替换为换行符
+                oeCell.setCellValue(oeNo);
+                oeCell.setCellStyle(dataStyle);
+
+                // PICTURE
+                Cell picCell = dataRow.createCell(3);
+                picCell.setCellStyle(dataStyle);
+                insertUniformPicture(workbook, pictures, drawing, images.next(), 3, rowNum, item.getOeNo());
+
+                // UNIT PRICE
+                Cell priceCell = dataRow.createCell(4);
+                if (item.getFinalPrice() != null && item.getFinalPrice().compareTo(BigDecimal.ZERO) > 0) {
+                    // 有有效价格，正常显示
+                    priceCell.setCellValue("$" + item.getFinalPrice().setScale(2, RoundingMode.HALF_UP));
+                    priceCell.setCellStyle(priceStyle);
+                } else {
+                    // 无价格或价格为0，特殊标注
+                    priceCell.setCellValue("TBD");
+                    priceCell.setCellStyle(noPriceStyle);
+                }
+
+                rowNum++;
+                if (progress != null) {
+                    progress.accept(no - 1);
+                }
+            }
+
+            log.info("导出报价单: {}行, 生成耗时{}ms, {}", quoteResult.getItems().size(),
+                    System.currentTimeMillis() - start, pictures.summary());
+            workbook.write(out);
+        } finally {
+            images.close();
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * 写出报价对比表
+     */
+    public void writeQuoteCompare(QuoteImportResultDTO result, String dateStr, OutputStream out) throws IOException {
+        writeQuoteCompare(result, dateStr, out, null);
+    }
+
+    /**
+     * 写出报价对比表
+     * @param progress 每写完一行回调已完成行数（可为空）
+     */
+    public void writeQuoteCompare(QuoteImportResultDTO result, String dateStr, OutputStream out,
+                                  IntConsumer progress) throws IOException {
+        long start = System.currentTimeMillis();
+        SXSSFWorkbook workbook = createWorkbook();
+        // 后台线程按行顺序预取图片（未匹配的行不插入图片）
+        ExportImagePrefetcher.Session images = imagePrefetcher.open(result.getItems().stream()
+                .map(item -> Boolean.TRUE.equals(item.getMatched()) ? item.getImageUrl() : null)
+                .collect(Collectors.toList()));
+        try {
+            Sheet sheet = workbook.createSheet("报价对比");
+
+            // 设置列宽
+            sheet.setColumnWidth(0, 2000);  // NO.
+            sheet.setColumnWidth(1, 4000);  // XK NO.
+            sheet.setColumnWidth(2, 5000);  // OE NO.
+            sheet.setColumnWidth(3, 11000); // 图片
+            sheet.setColumnWidth(4, 3500);  // 客户报价
+            sheet.setColumnWidth(5, 3500);  // 我方成本价(RMB)
+            sheet.setColumnWidth(6, 3500);  // 我方报价(USD)
+            sheet.setColumnWidth(7, 3000);  // 差异
+            sheet.setColumnWidth(8, 2500);  // 差异%
+            sheet.setColumnWidth(9, 3000);  // 备注
+
+            // 创建样式
+            CellStyle titleStyle = createSimpleTitleStyle(workbook);
+            CellStyle headerStyle = createSimpleHeaderStyle(workbook);
+            CellStyle dataStyle = createSimpleDataStyle(workbook);
+            CellStyle priceStyle = createSimplePriceStyle(workbook, dataStyle);
+            
+            // 创建差异样式
+            CellStyle positiveStyle = workbook.createCellStyle();
+            positiveStyle.cloneStyleFrom(priceStyle);
+            Font positiveFont = workbook.createFont();
+            positiveFont.setColor(IndexedColors.GREEN.getIndex());
+            positiveFont.setFontHeightInPoints((short) 10);
+            positiveFont.setFontName("Arial");
+            positiveStyle.setFont(positiveFont);
+
+            CellStyle negativeStyle = workbook.createCellStyle();
+            negativeStyle.cloneStyleFrom(priceStyle);
+            Font negativeFont = workbook.createFont();
+            negativeFont.setColor(IndexedColors.RED.getIndex());
+            negativeFont.setFontHeightInPoints((short) 10);
+            negativeFont.setFontName("Arial");
+            negativeStyle.setFont(negativeFont);
+
+            CellStyle unmatchedStyle = workbook.createCellStyle();
+            unmatchedStyle.cloneStyleFrom(dataStyle);
+            unmatchedStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            unmatchedStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            int rowNum = 0;
+
+            // 标题行
+            Row titleRow = sheet.createRow(rowNum++);
+            titleRow.setHeightInPoints(30);
+            Cell titleCell = titleRow.createCell(0);
+            titleCell.setCellValue("PRICE QUOTATION COMPARISON -- " + dateStr);
+            titleCell.setCellStyle(titleStyle);
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 9));
+
+            // 空行
+            rowNum++;
+
+            // 汇总信息行
+            Row summaryRow = sheet.createRow(rowNum++);
+            summaryRow.setHeightInPoints(20);
+            Cell summaryCell = summaryRow.createCell(0);
+            String summary = String.format("Exchange Rate: %.2f | Price Mode: %s | Total: %d | Matched: %d | Unmatched: %d",
+                    result.getExchangeRate(), 
+                    "min".equals(result.getPriceMode()) ? "MIN" : ("max".equals(result.getPriceMode()) ? "MAX" : "AVG"),
+                    result.getTotalRows(), result.getMatchedCount(), result.getUnmatchedCount());
+            summaryCell.setCellValue(summary);
+            summaryCell.setCellStyle(dataStyle);
+            sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 9));
+
+            // 空行
+            rowNum++;
+
+            // 表头行
+            Row headerRow = sheet.createRow(rowNum++);
+            headerRow.setHeightInPoints(25);
+            String[] headers = {"NO.", "XK NO.", "OE NO.", "PICTURE", "Customer($)", "Cost(¥)", "Our Price($)", "Diff($)", "Diff%", "Remark"};
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+
+            // 数据行
+            Drawing<?> drawing = sheet.createDrawingPatriarch();
+            WorkbookPictureRegistry pictures = new WorkbookPictureRegistry(workbook);
+            int no = 1;
+            for (QuoteImportItemDTO item : result.getItems()) {
+                Row dataRow = sheet.createRow(rowNum);
+                dataRow.setHeightInPoints(120); // 统一行高
+
+                boolean isMatched = Boolean.TRUE.equals(item.getMatched());
+                CellStyle rowStyle = isMatched ? dataStyle : unmatchedStyle;
+                CellStyle rowPriceStyle = isMatched ? priceStyle : unmatchedStyle;
+
+                // NO.
+                Cell noCell = dataRow.createCell(0);
+                noCell.setCellValue(no++);
+                noCell.setCellStyle(rowStyle);
+
+                // XK NO.
+                Cell xkCell = dataRow.createCell(1);
+                xkCell.setCellValue(item.getXkNo() != null ? item.getXkNo() : "-");
+                xkCell.setCellStyle(rowStyle);
+
+                // OE NO. - 去除多余空格避免空行
+                Cell oeCell = dataRow.createCell(2);
+                String oeNo = item.getOeNo() != null ? item.getOeNo() : "";
+                oeNo = oeNo.trim()
+                           .replaceAll("\\s*/\\s*", "/")
+                           .replace("/", "\n");
+                oeCell.setCellValue(oeNo);
+                oeCell.setCellStyle(rowStyle);
+
+                // 图片
+                Cell picCell = dataRow.createCell(3);
+                picCell.setCellStyle(rowStyle);
+                ExportImagePrefetcher.PrefetchedImage image = images.next();
+                if (isMatched) {
+                    insertUniformPicture(workbook, pictures, drawing, image, 3, rowNum, item.getOeNo());
+                }
+
+                // 客户报价
+                Cell customerPriceCell = dataRow.createCell(4);
+                if (item.getCustomerPriceUsd() != null) {
+                    customerPriceCell.setCellValue("$" + item.getCustomerPriceUsd().setScale(2, RoundingMode.HALF_UP));
+                } else {
+                    customerPriceCell.setCellValue(item.getCustomerPriceRaw() != null ? item.getCustomerPriceRaw() : "-");
+                }
+                customerPriceCell.setCellStyle(rowPriceStyle);
+
+                // 我方成本价(RMB)
+                Cell ourPriceRmbCell = dataRow.createCell(5);
+                if (item.getOurPriceRmb() != null) {
+                    ourPriceRmbCell.setCellValue("¥" + item.getOurPriceRmb().setScale(2, RoundingMode.HALF_UP));
+                } else {
+                    ourPriceRmbCell.setCellValue("-");
+                }
+                ourPriceRmbCell.setCellStyle(rowPriceStyle);
+
+                // 我方报价(USD)
+                Cell calculatedPriceCell = dataRow.createCell(6);
+                if (item.getCalculatedPrice() != null) {
+                    calculatedPriceCell.setCellValue("$" + item.getCalculatedPrice().setScale(2, RoundingMode.HALF_UP));
+                } else {
+                    calculatedPriceCell.setCellValue("-");
+                }
+                calculatedPriceCell.setCellStyle(rowPriceStyle);
+
+                // 差异
+                Cell diffCell = dataRow.createCell(7);
+                if (item.getPriceDiff() != null) {
+                    diffCell.setCellValue("$" + item.getPriceDiff().setScale(2, RoundingMode.HALF_UP));
+                    diffCell.setCellStyle(item.getPriceDiff().compareTo(BigDecimal.ZERO) >= 0 ? positiveStyle : negativeStyle);
+                } else {
+                    diffCell.setCellValue("-");
+                    diffCell.setCellStyle(rowPriceStyle);
+                }
+
+                // 差异%
+                Cell diffPercentCell = dataRow.createCell(8);
+                if (item.getPriceDiffPercent() != null) {
+                    diffPercentCell.setCellValue(item.getPriceDiffPercent().setScale(1, RoundingMode.HALF_UP) + "%");
+                    diffPercentCell.setCellStyle(item.getPriceDiffPercent().compareTo(BigDecimal.ZERO) >= 0 ? positiveStyle : negativeStyle);
+                } else {
+                    diffPercentCell.setCellValue("-");
+                    diffPercentCell.setCellStyle(rowPriceStyle);
+                }
+
+                // 备注
+                Cell remarkCell = dataRow.createCell(9);
+                remarkCell.setCellValue(item.getRemark() != null ? item.getRemark() : (isMatched ? "" : "未匹配"));
+                remarkCell.setCellStyle(rowStyle);
+
+                rowNum++;
+                if (progress != null) {
+                    progress.accept(no - 1);
+                }
+            }
+
+            // 空行
+            rowNum++;
+
+            // 汇总行
+            Row totalRow = sheet.createRow(rowNum);
+            Cell totalLabelCell = totalRow.createCell(3);
+            totalLabelCell.setCellValue("合计:");
+            totalLabelCell.setCellStyle(headerStyle);
+
+            Cell customerTotalCell = totalRow.createCell(4);
+            customerTotalCell.setCellValue("$" + result.getCustomerTotalUsd());
+            customerTotalCell.setCellStyle(headerStyle);
+
+            Cell ourTotalCell = totalRow.createCell(6);
+            ourTotalCell.setCellValue("$" + result.getOurTotalUsd());
+            ourTotalCell.setCellStyle(headerStyle);
+
+            Cell diffTotalCell = totalRow.createCell(7);
+            diffTotalCell.setCellValue("$" + result.getTotalDiffUsd());
+            diffTotalCell.setCellStyle(result.getTotalDiffUsd().compareTo(BigDecimal.ZERO) >= 0 ? positiveStyle : negativeStyle);
+
+            log.info("导出报价对比: {}行, 生成耗时{}ms, {}", result.getItems().size(),
+                    System.currentTimeMillis() - start, pictures.summary());
+            workbook.write(out);
+        } finally {
+            images.close();
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private SXSSFWorkbook createWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        // 临时文件使用gzip压缩
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    /**
+     * 根据文件扩展名获取POI图片类型
+     */
+    private int getPictureType(String fileName) {
+        if (fileName == null) {
+            return Workbook.PICTURE_TYPE_JPEG;
+        }
+        String lowerName = fileName.toLowerCase();
+        if (lowerName.endsWith(".png")) {
+            return Workbook.PICTURE_TYPE_PNG;
+        } else if (lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg")) {
+            return Workbook.PICTURE_TYPE_JPEG;
+        } else if (lowerName.endsWith(".bmp") || lowerName.endsWith(".dib")) {
+            return Workbook.PICTURE_TYPE_DIB;
+        } else if (lowerName.endsWith(".emf")) {
+            return Workbook.PICTURE_TYPE_EMF;
+        } else if (lowerName.endsWith(".wmf")) {
+            return Workbook.PICTURE_TYPE_WMF;
+        }
+        // GIF、TIFF等格式需要转换为PNG处理
+        return Workbook.PICTURE_TYPE_PNG;
+    }
+
+    /**
+     * 创建简约标题样式
+     */
+    private CellStyle createSimpleTitleStyle(Workbook workbook) {
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        font.setFontHeightInPoints((short) 14);
+        font.setFontName("Arial");
+        style.setFont(font);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        return style;
+    }
+
+    /**
+     * 创建简约表头样式 - 青色背景
+     */
+    private CellStyle createSimpleHeaderStyle(Workbook workbook) {
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        font.setFontHeightInPoints((short) 10);
+        font.setFontName("Arial");
+        style.setFont(font);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+        style.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        return style;
+    }
+
+    /**
+     * 创建简约数据样式
+     */
+    private CellStyle createSimpleDataStyle(Workbook workbook) {
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setFontHeightInPoints((short) 10);
+        font.setFontName("Arial");
+        style.setFont(font);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+        style.setWrapText(true);
+        return style;
+    }
+
+    /**
+     * 创建简约价格样式
+     */
+    private CellStyle createSimplePriceStyle(Workbook workbook, CellStyle baseStyle) {
+        CellStyle style = workbook.createCellStyle();
+        style.cloneStyleFrom(baseStyle);
+        Font font = workbook.createFont();
+        font.setBold(true);
+        font.setFontHeightInPoints((short) 10);
+        font.setFontName("Arial");
+        style.setFont(font);
+        return style;
+    }
+
+    /**
+     * 创建简约无价格样式 - 红色加粗提醒
+     */
+    private CellStyle createSimpleNoPriceStyle(Workbook workbook, CellStyle baseStyle) {
+        CellStyle style = workbook.createCellStyle();
+        style.cloneStyleFrom(baseStyle);
+        Font font = workbook.createFont();
+        font.setBold(true);
+        font.setColor(IndexedColors.RED.getIndex());
+        font.setFontHeightInPoints((short) 10);
+        font.setFontName("Arial");
+        style.setFont(font);
+        return style;
+    }
+
+    /**
+     * 插入统一大小的图片
+     */
+    private void insertUniformPicture(Workbook workbook, WorkbookPictureRegistry pictures, Drawing<?> drawing,
+                                      ExportImagePrefetcher.PrefetchedImage image, int col, int row, String oeNo) {
+        String imageUrl = image.getImageUrl();
+        if (StrUtil.isBlank(imageUrl)) {
+            return;
+        }
+
+        try {
+            String imagePath = image.getPath();
+            if (imagePath == null) {
+                log.warn("无法获取本地图片路径: OE NO={}, imageUrl={}", oeNo, imageUrl);
+                return;
+            }
+
+            // 同一工作簿内相同图片只嵌入一次
+            Integer pictureIdx = pictures.findByPath(imagePath);
+            if (pictureIdx == null) {
+                byte[] imageBytes = image.getBytes();
+                if (imageBytes == null || imageBytes.length == 0) {
+                    log.warn("图片数据为空: OE NO={}, path={}", oeNo, imagePath);
+                    return;
+                }
+                pictureIdx = pictures.addPicture(imagePath, imageBytes, getPictureType(imagePath));
+            }
+            CreationHelper helper = workbook.getCreationHelper();
+            ClientAnchor anchor = helper.createClientAnchor();
+
+            // 统一图片大小 - 设置固定的起始和结束位置
+            anchor.setCol1(col);
+            anchor.setRow1(row);
+            anchor.setCol2(col + 1);
+            anchor.setRow2(row + 1);
+
+            // 设置内边距
+            anchor.setDx1(15 * 9525);
+            anchor.setDy1(15 * 9525);
+            anchor.setDx2(-15 * 9525);
+            anchor.setDy2(-15 * 9525);
+
+            // MOVE_AND_RESIZE：图片随单元格调整
+            anchor.setAnchorType(ClientAnchor.AnchorType.MOVE_AND_RESIZE);
+            drawing.createPicture(anchor, pictureIdx);
+        } catch (Exception e) {
+            log.error("插入图片失败: OE NO={}, imageUrl={}", oeNo, imageUrl, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.trucktools.product.support;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.trucktools.common.exception.BusinessException;
+import com.trucktools.common.utils.IdGenerator;
+import com.trucktools.product.dto.QuoteImportItemDTO;
+import com.trucktools.product.dto.QuoteImportRequestDTO;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报价导入会话
+ * 解析后的行保存在服务端，重新计算和导出只需传入会话ID；
+ * 会话超过有效期未访问即失效，所有会话总行数超过上限时淘汰最久未访问的会话
+ */
+@Slf4j
+@Component
+public class QuoteImportSessionStore {
+
+    @Value("${app.quote.session-ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${app.quote.session-max-rows:200000}")
+    private int maxRows;
+
+    private final Map<String, QuoteImportSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 创建会话
+     * @param params 计算参数（不含行）
+     * @param items 解析后的行（会复制保存）
+     * @return 会话ID
+     */
+    public String create(Long userId, QuoteImportRequestDTO params, List<QuoteImportItemDTO> items) {
+        List<QuoteImportItemDTO> copies = new ArrayList<>(items.size());
+        for (QuoteImportItemDTO item : items) {
+            copies.add(BeanUtil.copyProperties(item, QuoteImportItemDTO.class));
+        }
+        QuoteImportSession session = new QuoteImportSession(IdGenerator.uuid(), userId, params, copies);
+        sessions.put(session.importId, session);
+        enforceRowLimit();
+        return session.importId;
+    }
+
+    /**
+     * 获取会话，调用方修改会话内容时需持有会话对象锁
+     */
+    public QuoteImportSession get(Long userId, String importId) {
+        QuoteImportSession session = importId != null ? sessions.get(importId) : null;
+        if (session == null || !session.userId.equals(userId) || isExpired(session, System.currentTimeMillis())) {
+            throw new BusinessException("报价导入已过期，请重新上传");
+        }
+        session.lastAccess = System.currentTimeMillis();
+        return session;
+    }
+
+    /**
+     * 清理过期会话
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> isExpired(session, now));
+    }
+
+    private boolean isExpired(QuoteImportSession session, long now) {
+        return now - session.lastAccess > TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private synchronized void enforceRowLimit() {
+        long totalRows = sessions.values().stream().mapToLong(session -> session.items.size()).sum();
+        if (totalRows <= maxRows) {
+            return;
+        }
+        List<QuoteImportSession> ordered = new ArrayList<>(sessions.values());
+        ordered.sort(Comparator.comparingLong(session -> session.lastAccess));
+        // 保留最新创建的会话
+        for (int i = 0; i < ordered.size() - 1 && totalRows > maxRows; i++) {
+            QuoteImportSession session = ordered.get(i);
+            sessions.remove(session.importId);
+            totalRows -= session.items.size();
+            log.info("报价导入会话超出行数上限被淘汰: importId={}, rows={}", session.importId, session.items.size());
+        }
+    }
+
+    /**
+     * 报价导入会话
+     */
+    @Getter
+    public static class QuoteImportSession {
+        private final String importId;
+        private final Long userId;
+        /** 当前计算参数 */
+        private final QuoteImportRequestDTO params;
+        private final List<QuoteImportItemDTO> items;
+        /** 行号 -> 行 */
+        private final Map<Integer, QuoteImportItemDTO> rows = new HashMap<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        QuoteImportSession(String importId, Long userId, QuoteImportRequestDTO params, List<QuoteImportItemDTO> items) {
+            this.importId = importId;
+            this.userId = userId;
+            this.params = params;
+            this.items = items;
+            for (QuoteImportItemDTO item : items) {
+                rows.put(item.getRowIndex(), item);
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.trucktools.product.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 报价计算引擎
+ * 每次请求创建一个实例，汇率、税率、FOB费率等乘数只计算一次；
+ * 单项计算使用定点长整数（价格1e-4、乘数1e-4）完成，结果与BigDecimal HALF_UP计算完全一致，
+ * 数值超出long范围时回退到BigDecimal计算
+ */
+public class QuotePricingEngine {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final BigDecimal DEFAULT_TAX_RATE = new BigDecimal("10");
+    private static final BigDecimal DEFAULT_FOB_RATE = new BigDecimal("15");
+
+    // 乘数定点精度（4位小数）
+    private static final long MULTIPLIER_ONE = 10_000L;
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final BigDecimal exchangeRate;
+    private final BigDecimal taxRate;
+    private final BigDecimal fobRate;
+    private final BigDecimal defaultProfitRate;
+    private final ProfitTierTable profitTiers;
+    private final Integer customerPriority;
+
+    // 汇率的定点表示，无法用long表示时为null
+    private final Long rateUnscaled;
+    private final int rateScale;
+
+    private final long taxMultiplier;
+    private final long fobMultiplier;
+    private final boolean multipliersExact;
+
+    // 利润率 -> 利润乘数（同一请求中利润率通常只有少数几种）
+    private final Map<BigDecimal, Long> profitMultipliers = new HashMap<>();
+
+    private QuotePricingEngine(BigDecimal exchangeRate, BigDecimal taxRate, BigDecimal fobRate,
+                               BigDecimal defaultProfitRate, ProfitTierTable profitTiers, Integer customerPriority) {
+        this.exchangeRate = exchangeRate;
+        this.taxRate = taxRate != null ? taxRate : DEFAULT_TAX_RATE;
+        this.fobRate = fobRate != null ? fobRate : DEFAULT_FOB_RATE;
+        this.defaultProfitRate = defaultProfitRate;
+        this.profitTiers = profitTiers != null ? profitTiers : ProfitTierTable.DEFAULT;
+        this.customerPriority = customerPriority;
+
+        Long unscaled = null;
+        try {
+            unscaled = exchangeRate.unscaledValue().longValueExact();
+        } catch (ArithmeticException ignored) {
+            // 回退到BigDecimal计算
+        }
+        this.rateUnscaled = unscaled;
+        this.rateScale = exchangeRate.scale();
+
+        long tax = 0;
+        long fob = 0;
+        boolean exact = true;
+        try {
+            tax = toMultiplier(this.taxRate);
+            fob = toMultiplier(this.fobRate);
+        } catch (ArithmeticException e) {
+            exact = false;
+        }
+        this.taxMultiplier = tax;
+        this.fobMultiplier = fob;
+        this.multipliersExact = exact;
+    }
+
+    /**
+     * 创建引擎（系统默认利润率阶梯）
+     * @param exchangeRate 汇率（调用方保证大于0）
+     * @param taxRate 税率(%)，为空时10
+     * @param fobRate FOB费率(%)，为空时15
+     * @param defaultProfitRate 默认利润率(%)，为空时按数量阶梯
+     */
+    public static QuotePricingEngine of(BigDecimal exchangeRate, BigDecimal taxRate, BigDecimal fobRate,
+                                        BigDecimal defaultProfitRate) {
+        return of(exchangeRate, taxRate, fobRate, defaultProfitRate, ProfitTierTable.DEFAULT, null);
+    }
+
+    /**
+     * 创建引擎
+     * @param profitTiers 用户的利润率阶梯表
+     * @param customerPriority 客户优先级，可为空
+     */
+    public static QuotePricingEngine of(BigDecimal exchangeRate, BigDecimal taxRate, BigDecimal fobRate,
+                                        BigDecimal defaultProfitRate, ProfitTierTable profitTiers,
+                                        Integer customerPriority) {
+        return new QuotePricingEngine(exchangeRate, taxRate, fobRate, defaultProfitRate, profitTiers, customerPriority);
+    }
+
+    /**
+     * 确定利润率：单项利润率 > 默认利润率 > 数量阶梯利润率
+     * @param brandCode 品牌缩写，用于匹配品牌阶梯
+     */
+    public BigDecimal resolveProfitRate(BigDecimal itemProfitRate, Integer quantity, String brandCode) {
+        if (itemProfitRate != null) {
+            return itemProfitRate;
+        }
+        return defaultProfitRate != null ? defaultProfitRate : profitTiers.lookup(quantity, brandCode, customerPriority);
+    }
+
+    /**
+     * 计算单项价格
+     * @param priceRmb 基础价格(RMB)，调用方保证大于0
+     * @return 美元价格（2位小数）及加成后的报价（2位小数）
+     */
+    public PriceResult price(BigDecimal priceRmb, BigDecimal profitRate, Boolean isFob, Boolean includeTax) {
+        if (rateUnscaled != null && multipliersExact) {
+            try {
+                return priceScaled(priceRmb, profitRate, isFob, includeTax);
+            } catch (ArithmeticException ignored) {
+                // 超出long范围，回退到BigDecimal计算
+            }
+        }
+        return priceDecimal(priceRmb, profitRate, isFob, includeTax);
+    }
+
+    /**
+     * 定点长整数计算，超出long范围时抛出ArithmeticException
+     */
+    PriceResult priceScaled(BigDecimal priceRmb, BigDecimal profitRate, Boolean isFob, Boolean includeTax) {
+        // 汇率换算：priceUsd = priceRmb / exchangeRate，保留4位小数
+        long priceUnscaled = priceRmb.unscaledValue().longValueExact();
+        int exponent = 4 - priceRmb.scale() + rateScale;
+        long usd4;
+        if (exponent >= 0) {
+            usd4 = divideHalfUp(Math.multiplyExact(priceUnscaled, pow10(exponent)), rateUnscaled);
+        } else {
+            usd4 = divideHalfUp(priceUnscaled, Math.multiplyExact(rateUnscaled, pow10(-exponent)));
+        }
+
+        // 利润加成（8位小数）
+        long amount = Math.multiplyExact(usd4, profitMultiplier(profitRate));
+        long divisor = POW10[6];
+
+        // 含税/FOB处理（12位小数）
+        if (Boolean.TRUE.equals(isFob)) {
+            amount = Math.multiplyExact(amount, fobMultiplier);
+            divisor = POW10[10];
+        } else if (Boolean.TRUE.equals(includeTax)) {
+            amount = Math.multiplyExact(amount, taxMultiplier);
+            divisor = POW10[10];
+        }
+
+        return new PriceResult(BigDecimal.valueOf(divideHalfUp(usd4, 100), 2),
+                BigDecimal.valueOf(divideHalfUp(amount, divisor), 2));
+    }
+
+    /**
+     * BigDecimal计算（回退路径，也是定点计算的对照基准）
+     */
+    PriceResult priceDecimal(BigDecimal priceRmb, BigDecimal profitRate, Boolean isFob, Boolean includeTax) {
+        BigDecimal priceUsd = priceRmb.divide(exchangeRate, 4, RoundingMode.HALF_UP);
+
+        BigDecimal profitMultiplier = BigDecimal.ONE.add(profitRate.divide(HUNDRED, 4, RoundingMode.HALF_UP));
+        BigDecimal afterProfit = priceUsd.multiply(profitMultiplier);
+
+        BigDecimal price;
+        if (Boolean.TRUE.equals(isFob)) {
+            price = afterProfit.multiply(BigDecimal.ONE.add(fobRate.divide(HUNDRED, 4, RoundingMode.HALF_UP)));
+        } else if (Boolean.TRUE.equals(includeTax)) {
+            price = afterProfit.multiply(BigDecimal.ONE.add(taxRate.divide(HUNDRED, 4, RoundingMode.HALF_UP)));
+        } else {
+            price = afterProfit;
+        }
+
+        return new PriceResult(priceUsd.setScale(2, RoundingMode.HALF_UP), price.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private long profitMultiplier(BigDecimal profitRate) {
+        Long multiplier = profitMultipliers.get(profitRate);
+        if (multiplier == null) {
+            multiplier = toMultiplier(profitRate);
+            profitMultipliers.put(profitRate, multiplier);
+        }
+        return multiplier;
+    }
+
+    /**
+     * 百分比转换为定点乘数：1 + rate/100（保留4位小数）
+     */
+    private static long toMultiplier(BigDecimal rate) {
+        long fraction = rate.divide(HUNDRED, 4, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        return Math.addExact(MULTIPLIER_ONE, fraction);
+    }
+
+    private static long pow10(int n) {
+        if (n >= POW10.length) {
+            throw new ArithmeticException("10^" + n + " overflows long");
+        }
+        return POW10[n];
+    }
+
+    /**
+     * 长整数除法，HALF_UP舍入（与BigDecimal一致，.5远离零方向进位）
+     */
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= Math.abs(divisor) - remainder) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    /**
+     * 单项价格计算结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PriceResult {
+        /** 美元价格（2位小数） */
+        private final BigDecimal priceUsd;
+        /** 加成后的报价（2位小数） */
+        private final BigDecimal price;
+    }
+}
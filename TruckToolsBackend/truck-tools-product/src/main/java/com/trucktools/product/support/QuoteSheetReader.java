@@ -0,0 +1,221 @@
+package com.trucktools.product.support;
+
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelAnalysisException;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.trucktools.common.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.poi.ss.usermodel.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * 客户报价Excel读取器
+ * .xlsx 使用EasyExcel事件模型逐行流式读取，堆内存占用与文件大小无关；
+ * .xls 仍使用POI用户模型读取
+ */
+public class QuoteSheetReader {
+
+    // 在前几行中查找表头
+    private static final int HEADER_SEARCH_ROWS = 10;
+
+    private int oeNoColIndex = -1;
+    private int unitPriceColIndex = -1;
+    private int headerRowIndex = -1;
+    private boolean headerResolved = false;
+
+    private final List<Map<Integer, String>> headerCandidates = new ArrayList<>();
+    private final List<Integer> headerCandidateIndexes = new ArrayList<>();
+    private final List<QuoteSheetRow> rows = new ArrayList<>();
+
+    private QuoteSheetReader() {
+    }
+
+    /**
+     * 报价Excel数据行
+     */
+    @Data
+    @AllArgsConstructor
+    public static class QuoteSheetRow {
+        /** Excel行号（从1开始） */
+        private int rowNumber;
+        private String oeNo;
+        private String priceRaw;
+    }
+
+    /**
+     * 读取第一个工作表中的数据行（表头之后OE NO.非空的行）
+     */
+    public static List<QuoteSheetRow> read(InputStream is, String filename) throws IOException {
+        QuoteSheetReader reader = new QuoteSheetReader();
+        if (filename.toLowerCase().endsWith(".xlsx")) {
+            reader.readStreaming(is);
+        } else {
+            reader.readWorkbook(is);
+        }
+        reader.resolveHeader();
+
+        if (reader.oeNoColIndex < 0) {
+            throw new BusinessException("未找到OE NO.列，请确保Excel中包含OE NO.或OE号列");
+        }
+        if (reader.unitPriceColIndex < 0) {
+            throw new BusinessException("未找到UNIT PRICE列，请确保Excel中包含PRICE或单价列");
+        }
+        return reader.rows;
+    }
+
+    /**
+     * 流式读取.xlsx
+     */
+    private void readStreaming(InputStream is) throws IOException {
+        try {
+            EasyExcel.read(is, new ReadListener<Map<Integer, String>>() {
+                @Override
+                public void invoke(Map<Integer, String> data, AnalysisContext context) {
+                    acceptRow(context.readRowHolder().getRowIndex(), data);
+                }
+
+                @Override
+                public void doAfterAllAnalysed(AnalysisContext context) {
+                }
+            }).excelType(ExcelTypeEnum.XLSX).headRowNumber(0).autoCloseStream(false).sheet(0).doRead();
+        } catch (ExcelAnalysisException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取.xls（兼容旧格式）
+     */
+    private void readWorkbook(InputStream is) throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(is)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            if (sheet == null) {
+                throw new BusinessException("Excel文件没有工作表");
+            }
+            for (int i = 0; i <= sheet.getLastRowNum(); i++) {
+                Row row = sheet.getRow(i);
+                if (row == null) continue;
+
+                Map<Integer, String> data = new HashMap<>();
+                for (int j = 0; j < row.getLastCellNum(); j++) {
+                    Cell cell = row.getCell(j);
+                    if (cell != null) {
+                        data.put(j, getCellStringValue(cell));
+                    }
+                }
+                acceptRow(i, data);
+            }
+        }
+    }
+
+    /**
+     * 处理一行：表头确定前先缓存前几行，确定后直接提取数据
+     */
+    private void acceptRow(int rowIndex, Map<Integer, String> data) {
+        if (!headerResolved) {
+            if (rowIndex <= HEADER_SEARCH_ROWS) {
+                headerCandidates.add(data);
+                headerCandidateIndexes.add(rowIndex);
+                detectHeader(rowIndex, data);
+                // 如果找到了两个必要的列，停止搜索
+                if (oeNoColIndex >= 0 && unitPriceColIndex >= 0) {
+                    resolveHeader();
+                }
+                return;
+            }
+            resolveHeader();
+        }
+        extractRow(rowIndex, data);
+    }
+
+    /**
+     * 在一行中查找OE NO.和UNIT PRICE列
+     */
+    private void detectHeader(int rowIndex, Map<Integer, String> data) {
+        for (Map.Entry<Integer, String> entry : new TreeMap<>(data).entrySet()) {
+            if (entry.getValue() == null) continue;
+            String cellValue = entry.getValue().trim().toUpperCase();
+
+            // 匹配OE NO.列
+            if (cellValue.contains("OE") && (cellValue.contains("NO") || cellValue.contains("号"))) {
+                oeNoColIndex = entry.getKey();
+                headerRowIndex = rowIndex;
+            }
+            // 匹配UNIT PRICE列
+            if (cellValue.contains("PRICE") || cellValue.contains("价格") || cellValue.contains("单价")) {
+                unitPriceColIndex = entry.getKey();
+                headerRowIndex = rowIndex;
+            }
+        }
+    }
+
+    /**
+     * 确定表头，并提取缓存中位于表头之后的行
+     */
+    private void resolveHeader() {
+        if (headerResolved) {
+            return;
+        }
+        headerResolved = true;
+        for (int i = 0; i < headerCandidates.size(); i++) {
+            extractRow(headerCandidateIndexes.get(i), headerCandidates.get(i));
+        }
+        headerCandidates.clear();
+        headerCandidateIndexes.clear();
+    }
+
+    private void extractRow(int rowIndex, Map<Integer, String> data) {
+        if (oeNoColIndex < 0 || unitPriceColIndex < 0 || rowIndex <= headerRowIndex) {
+            return;
+        }
+        String oeNo = StrUtil.trimToEmpty(data.get(oeNoColIndex));
+        if (StrUtil.isBlank(oeNo)) {
+            return;
+        }
+        rows.add(new QuoteSheetRow(rowIndex + 1, oeNo, StrUtil.trimToEmpty(data.get(unitPriceColIndex))));
+    }
+
+    /**
+     * 获取单元格字符串值
+     */
+    private static String getCellStringValue(Cell cell) {
+        if (cell == null) {
+            return "";
+        }
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue();
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    return cell.getLocalDateTimeCellValue().toString();
+                }
+                // 避免科学计数法
+                double numValue = cell.getNumericCellValue();
+                if (numValue == Math.floor(numValue)) {
+                    return String.valueOf((long) numValue);
+                }
+                return String.valueOf(numValue);
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanCellValue());
+            case FORMULA:
+                try {
+                    return cell.getStringCellValue();
+                } catch (Exception e) {
+                    try {
+                        return String.valueOf(cell.getNumericCellValue());
+                    } catch (Exception e2) {
+                        return "";
+                    }
+                }
+            default:
+                return "";
+        }
+    }
+}
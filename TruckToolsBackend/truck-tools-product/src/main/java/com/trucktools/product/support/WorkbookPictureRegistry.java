@@ -0,0 +1,78 @@
+package com.trucktools.product.support;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工作簿图片注册表
+ * 同一工作簿内按内容哈希(SHA-256)去重，相同图片只嵌入一次并复用图片索引；
+ * 同一文件路径再次引用时直接复用，无需重新读取文件
+ */
+public class WorkbookPictureRegistry {
+
+    private final Workbook workbook;
+
+    private final Map<String, Integer> pathIndexes = new HashMap<>();
+    private final Map<String, Integer> hashIndexes = new HashMap<>();
+    private final Map<Integer, Integer> pictureSizes = new HashMap<>();
+
+    // 图片引用次数
+    private int references;
+    // 去重节省的字节数
+    private long savedBytes;
+    // 实际嵌入的字节数
+    private long embeddedBytes;
+
+    public WorkbookPictureRegistry(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    /**
+     * 按文件路径查找已嵌入的图片
+     * @return 图片索引，未嵌入时返回null
+     */
+    public Integer findByPath(String path) {
+        Integer index = pathIndexes.get(path);
+        if (index != null) {
+            references++;
+            savedBytes += pictureSizes.get(index);
+        }
+        return index;
+    }
+
+    /**
+     * 添加图片，内容相同的图片只嵌入一次
+     * @param path 图片文件路径（可为空）
+     * @return 图片索引
+     */
+    public int addPicture(String path, byte[] bytes, int pictureType) {
+        references++;
+        String hash = DigestUtil.sha256Hex(bytes);
+        Integer index = hashIndexes.get(hash);
+        if (index != null) {
+            savedBytes += bytes.length;
+        } else {
+            index = workbook.addPicture(bytes, pictureType);
+            hashIndexes.put(hash, index);
+            pictureSizes.put(index, bytes.length);
+            embeddedBytes += bytes.length;
+        }
+        if (path != null) {
+            pathIndexes.put(path, index);
+        }
+        return index;
+    }
+
+    /**
+     * 去重统计，用于导出日志
+     */
+    public String summary() {
+        int unique = hashIndexes.size();
+        double ratio = references == 0 ? 0 : (references - unique) * 100.0 / references;
+        return String.format("图片引用%d次, 实际嵌入%d张(%dKB), 去重率%.1f%%, 节省%dKB",
+                references, unique, embeddedBytes / 1024, ratio, savedBytes / 1024);
+    }
+}
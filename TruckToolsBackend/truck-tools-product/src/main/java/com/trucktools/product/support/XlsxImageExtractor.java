@@ -0,0 +1,322 @@
+package com.trucktools.product.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * xlsx内嵌图片提取器
+ * 直接读取zip：SAX解析 workbook、工作表/绘图关系及绘图锚点，得到 行列 -> xl/media 条目的映射；
+ * 图片条目直接从zip流式读取，不加载工作簿，也不把图片内容读入堆内存。
+ * 打开后可在多个线程中同时读取不同Sheet
+ */
+public class XlsxImageExtractor implements ImportImageSource {
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String NS_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String NS_DRAWING = "http://schemas.openxmlformats.org/drawingml/2006/spreadsheetDrawing";
+    private static final String NS_DRAWINGML = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    private static final String REL_TYPE_DRAWING = "/drawing";
+
+    private static final SAXParserFactory PARSER_FACTORY = createParserFactory();
+
+    private final ZipFile zip;
+    // Sheet名称 -> 工作表条目路径
+    private final Map<String, String> sheetParts = new LinkedHashMap<>();
+    // Sheet名称 -> 图片锚点（按需解析后缓存）
+    private final Map<String, List<ImageAnchor>> anchorCache = new ConcurrentHashMap<>();
+
+    private XlsxImageExtractor(ZipFile zip) {
+        this.zip = zip;
+    }
+
+    /**
+     * 打开xlsx文件，只解析工作簿的Sheet列表
+     */
+    public static XlsxImageExtractor open(File file) throws IOException {
+        XlsxImageExtractor extractor = new XlsxImageExtractor(new ZipFile(file));
+        try {
+            extractor.readSheets();
+        } catch (IOException | RuntimeException e) {
+            extractor.close();
+            throw e;
+        }
+        return extractor;
+    }
+
+    /**
+     * 获取Sheet名称列表（按工作簿中的顺序）
+     */
+    public List<String> getSheetNames() {
+        return new ArrayList<>(sheetParts.keySet());
+    }
+
+    /**
+     * 获取Sheet中的全部图片锚点（只包含直接锚定在单元格上的图片，不含组合图形内的图片）
+     */
+    public List<ImageAnchor> getAnchors(String sheetName) throws IOException {
+        List<ImageAnchor> anchors = anchorCache.get(sheetName);
+        if (anchors == null) {
+            anchors = scanSheet(sheetName);
+            anchorCache.put(sheetName, anchors);
+        }
+        return anchors;
+    }
+
+    /**
+     * 统计Sheet中起始列为col的图片数量
+     */
+    public int countImages(String sheetName, int col) throws IOException {
+        int count = 0;
+        for (ImageAnchor anchor : getAnchors(sheetName)) {
+            if (anchor.getCol() == col) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 打开图片条目的输入流（直接读取zip，调用方负责关闭）
+     */
+    @Override
+    public InputStream openMedia(String mediaPath) throws IOException {
+        ZipEntry entry = zip.getEntry(mediaPath);
+        if (entry == null) {
+            throw new IOException("图片不存在: " + mediaPath);
+        }
+        return zip.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    private void readSheets() throws IOException {
+        Map<String, String> workbookRels = readRelationships("xl/workbook.xml", null);
+        parse("xl/workbook.xml", new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if (NS_MAIN.equals(uri) && "sheet".equals(localName)) {
+                    String target = workbookRels.get(attributes.getValue(NS_REL, "id"));
+                    if (target != null) {
+                        sheetParts.put(attributes.getValue("name"), target);
+                    }
+                }
+            }
+        });
+    }
+
+    private List<ImageAnchor> scanSheet(String sheetName) throws IOException {
+        String sheetPart = sheetParts.get(sheetName);
+        if (sheetPart == null) {
+            return Collections.emptyList();
+        }
+        List<ImageAnchor> anchors = new ArrayList<>();
+        for (String drawingPart : readRelationships(sheetPart, REL_TYPE_DRAWING).values()) {
+            Map<String, String> mediaRels = readRelationships(drawingPart, null);
+            DrawingHandler handler = new DrawingHandler();
+            parse(drawingPart, handler);
+            for (DrawingHandler.RawAnchor raw : handler.anchors) {
+                String mediaPath = mediaRels.get(raw.embedId);
+                if (mediaPath != null && zip.getEntry(mediaPath) != null) {
+                    anchors.add(new ImageAnchor(raw.row, raw.col, mediaPath));
+                }
+            }
+        }
+        return anchors;
+    }
+
+    /**
+     * 读取部件的关系文件
+     * @param typeSuffix 只保留该类型的关系，为空时保留全部
+     * @return 关系ID -> 目标条目路径（已解析为zip内绝对路径）
+     */
+    private Map<String, String> readRelationships(String part, String typeSuffix) throws IOException {
+        int slash = part.lastIndexOf('/');
+        String dir = slash >= 0 ? part.substring(0, slash + 1) : "";
+        String relsPart = dir + "_rels/" + part.substring(slash + 1) + ".rels";
+        Map<String, String> rels = new LinkedHashMap<>();
+        if (zip.getEntry(relsPart) == null) {
+            return rels;
+        }
+        parse(relsPart, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if (!"Relationship".equals(localName) || "External".equals(attributes.getValue("TargetMode"))) {
+                    return;
+                }
+                String type = attributes.getValue("Type");
+                if (typeSuffix != null && (type == null || !type.endsWith(typeSuffix))) {
+                    return;
+                }
+                String target = attributes.getValue("Target");
+                if (target != null) {
+                    rels.put(attributes.getValue("Id"), resolve(part, target));
+                }
+            }
+        });
+        return rels;
+    }
+
+    private void parse(String part, DefaultHandler handler) throws IOException {
+        ZipEntry entry = zip.getEntry(part);
+        if (entry == null) {
+            throw new IOException("无效的xlsx文件，缺少 " + part);
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            SAXParser parser = PARSER_FACTORY.newSAXParser();
+            parser.parse(in, handler);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("解析 " + part + " 失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 关系目标相对于源部件所在目录，以/开头时为包内绝对路径
+     */
+    private static String resolve(String sourcePart, String target) {
+        String path = target.startsWith("/") ? target
+                : sourcePart.substring(0, sourcePart.lastIndexOf('/') + 1) + target;
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static SAXParserFactory createParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        } catch (ParserConfigurationException | SAXException ignored) {
+            // 解析器不支持时使用默认配置
+        }
+        return factory;
+    }
+
+    /**
+     * 绘图部件解析：记录 twoCellAnchor/oneCellAnchor 的起始行列及其直接子图片的 r:embed
+     */
+    private static class DrawingHandler extends DefaultHandler {
+
+        private final List<RawAnchor> anchors = new ArrayList<>();
+
+        private int depth;
+        private int anchorDepth = -1;
+        private int picDepth = -1;
+        private boolean inFrom;
+        private String fromField;
+        private final StringBuilder text = new StringBuilder();
+
+        private int row = -1;
+        private int col = -1;
+        private String embedId;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            depth++;
+            if (NS_DRAWING.equals(uri)) {
+                switch (localName) {
+                    case "twoCellAnchor", "oneCellAnchor" -> {
+                        anchorDepth = depth;
+                        row = -1;
+                        col = -1;
+                        embedId = null;
+                    }
+                    case "from" -> inFrom = anchorDepth > 0 && depth == anchorDepth + 1;
+                    case "row", "col" -> {
+                        if (inFrom) {
+                            fromField = localName;
+                            text.setLength(0);
+                        }
+                    }
+                    case "pic" -> {
+                        if (anchorDepth > 0 && depth == anchorDepth + 1) {
+                            picDepth = depth;
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            } else if (NS_DRAWINGML.equals(uri) && "blip".equals(localName) && picDepth > 0) {
+                embedId = attributes.getValue(NS_REL, "embed");
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (fromField != null) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (fromField != null && fromField.equals(localName)) {
+                int value = Integer.parseInt(text.toString().trim());
+                if ("row".equals(fromField)) {
+                    row = value;
+                } else {
+                    col = value;
+                }
+                fromField = null;
+            } else if (depth == picDepth) {
+                picDepth = -1;
+            } else if (inFrom && "from".equals(localName)) {
+                inFrom = false;
+            } else if (depth == anchorDepth) {
+                if (embedId != null && row >= 0 && col >= 0) {
+                    anchors.add(new RawAnchor(row, col, embedId));
+                }
+                anchorDepth = -1;
+            }
+            depth--;
+        }
+
+        @AllArgsConstructor
+        private static class RawAnchor {
+            private final int row;
+            private final int col;
+            private final String embedId;
+        }
+    }
+
+    /**
+     * 图片锚点
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ImageAnchor {
+        /** 起始行（从0开始） */
+        private final int row;
+        /** 起始列（从0开始） */
+        private final int col;
+        /** 图片在zip中的条目路径，如 xl/media/image1.png */
+        private final String mediaPath;
+    }
+}
@@ -0,0 +1,93 @@
+package com.trucktools.product.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 产品导入图片压缩包（与CSV一起上传），按CSV中的图片文件名直接从zip流式读取图片
+ * 文件名先按条目完整路径匹配，再按不含目录的文件名匹配（不区分大小写）
+ */
+public class ZipImageSource implements ImportImageSource {
+
+    private static final String SUFFIX = ".images.zip";
+
+    // 未上传图片压缩包时为空
+    private final ZipFile zip;
+    // 条目完整路径 -> 条目
+    private final Map<String, ZipEntry> entries = new HashMap<>();
+    // 小写文件名 -> 条目（同名时取第一个）
+    private final Map<String, ZipEntry> fileNames = new HashMap<>();
+
+    private ZipImageSource(ZipFile zip) {
+        this.zip = zip;
+        if (zip == null) {
+            return;
+        }
+        Enumeration<? extends ZipEntry> all = zip.entries();
+        while (all.hasMoreElements()) {
+            ZipEntry entry = all.nextElement();
+            if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/")) {
+                continue;
+            }
+            entries.put(entry.getName(), entry);
+            fileNames.putIfAbsent(fileName(entry.getName()).toLowerCase(), entry);
+        }
+    }
+
+    /**
+     * 上传文件对应的图片压缩包路径
+     */
+    public static Path pathFor(String uploadFilePath) {
+        return Paths.get(uploadFilePath + SUFFIX);
+    }
+
+    /**
+     * 打开图片压缩包，文件不存在时返回不含图片的来源
+     */
+    public static ZipImageSource open(File file) throws IOException {
+        return new ZipImageSource(file.exists() ? new ZipFile(file) : null);
+    }
+
+    /**
+     * 按CSV中的图片文件名查找条目，返回条目完整路径，找不到时返回空
+     */
+    public String resolve(String imageFile) {
+        if (imageFile == null || imageFile.isEmpty()) {
+            return null;
+        }
+        String name = imageFile.replace('\\', '/');
+        ZipEntry entry = entries.get(name);
+        if (entry == null) {
+            entry = fileNames.get(fileName(name).toLowerCase());
+        }
+        return entry != null ? entry.getName() : null;
+    }
+
+    @Override
+    public InputStream openMedia(String mediaPath) throws IOException {
+        ZipEntry entry = entries.get(mediaPath);
+        if (entry == null) {
+            throw new IOException("图片不存在: " + mediaPath);
+        }
+        return zip.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zip != null) {
+            zip.close();
+        }
+    }
+
+    private static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
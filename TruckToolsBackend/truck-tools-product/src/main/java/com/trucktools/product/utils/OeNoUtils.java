@@ -0,0 +1,54 @@
+package com.trucktools.product.utils;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * OE号工具类
+ */
+public class OeNoUtils {
+
+    private OeNoUtils() {
+    }
+
+    /**
+     * 标准化OE号：清除连字符、首尾空格，统一大写
+     */
+    public static String normalize(String oeNo) {
+        if (oeNo == null) {
+            return "";
+        }
+        return oeNo.replace("-", "").trim().toUpperCase();
+    }
+
+    /**
+     * OE号去重键：清除首尾空格，统一大写（与oe_no列不区分大小写的比较一致，保留连字符）
+     */
+    public static String dedupeKey(String oeNo) {
+        return oeNo == null ? "" : oeNo.trim().toUpperCase();
+    }
+
+    /**
+     * 拆分OE号为匹配令牌
+     * 产品的oe_no字段可能包含多个值（用/分隔），完整值和每个分段都作为令牌
+     */
+    public static Set<String> tokenize(String oeNo) {
+        Set<String> tokens = new LinkedHashSet<>();
+        String normalized = normalize(oeNo);
+        if (StrUtil.isBlank(normalized)) {
+            return tokens;
+        }
+        tokens.add(normalized);
+        if (normalized.indexOf('/') >= 0) {
+            for (String part : normalized.split("/")) {
+                String token = part.trim();
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+}
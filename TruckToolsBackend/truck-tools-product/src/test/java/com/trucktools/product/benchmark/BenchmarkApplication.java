@@ -0,0 +1,118 @@
+package com.trucktools.product.benchmark;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.trucktools.common.config.MybatisPlusConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 导入基准测试使用的最小应用上下文：只加载产品模块的服务与组件，不连接Redis
+ * 默认启动嵌入式MariaDB并执行 sql/init.sql；指定 bench.jdbc.url 时改为连接已建好表的MySQL 8
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(excludeName = {
+        "org.redisson.spring.starter.RedissonAutoConfigurationV2",
+        "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration"
+})
+@ComponentScan({"com.trucktools.product.service", "com.trucktools.product.support"})
+@MapperScan("com.trucktools.product.mapper")
+@Import(MybatisPlusConfig.class)
+public class BenchmarkApplication {
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    public MariaDbUpsertInterceptor mariaDbUpsertInterceptor() {
+        return new MariaDbUpsertInterceptor();
+    }
+
+    @Bean(destroyMethod = "stop")
+    public BenchmarkDatabase benchmarkDatabase(@Value("${bench.jdbc.url:}") String url,
+                                               @Value("${bench.jdbc.username:root}") String username,
+                                               @Value("${bench.jdbc.password:}") String password,
+                                               @Value("${bench.init-sql:../sql/init.sql}") String initSql)
+            throws ManagedProcessException, IOException {
+        return url.isEmpty() ? BenchmarkDatabase.embedded(Paths.get(initSql))
+                : new BenchmarkDatabase(null, url, username, password);
+    }
+
+    /**
+     * 数据源依赖数据库Bean，关闭时先停止导入线程和连接池，最后停止嵌入式数据库
+     */
+    @Bean
+    public DataSource dataSource(BenchmarkDatabase database) {
+        return DataSourceBuilder.create()
+                .url(database.getUrl())
+                .username(database.getUsername())
+                .password(database.getPassword())
+                .build();
+    }
+
+    /**
+     * 基准测试数据库连接信息
+     */
+    @Slf4j
+    @Getter
+    public static class BenchmarkDatabase {
+        private final DB embedded;
+        private final String url;
+        private final String username;
+        private final String password;
+
+        BenchmarkDatabase(DB embedded, String url, String username, String password) {
+            this.embedded = embedded;
+            this.url = url;
+            this.username = username;
+            this.password = password;
+        }
+
+        static BenchmarkDatabase embedded(Path initSql) throws ManagedProcessException, IOException {
+            DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+            config.setPort(0);
+            config.setDefaultCharacterSet("utf8mb4");
+            if ("root".equals(System.getProperty("user.name"))) {
+                // 容器/CI中以root运行时mariadbd需显式允许
+                config.addArg("--user=root");
+            }
+            DB db = DB.newEmbeddedDB(config.build());
+            db.start();
+            try (InputStream in = Files.newInputStream(initSql)) {
+                db.source(in);
+            }
+            int port = db.getConfiguration().getPort();
+            log.info("嵌入式MariaDB已启动: port={}", port);
+            return new BenchmarkDatabase(db, "jdbc:mysql://localhost:" + port + "/truckTools?useUnicode=true"
+                    + "&characterEncoding=utf8&useSSL=false&serverTimezone=Asia/Shanghai"
+                    + "&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true", "root", "");
+        }
+
+        public void stop() throws ManagedProcessException {
+            if (embedded != null) {
+                embedded.stop();
+            }
+        }
+    }
+}
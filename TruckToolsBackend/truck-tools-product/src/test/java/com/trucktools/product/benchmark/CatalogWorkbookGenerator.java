@@ -0,0 +1,213 @@
+package com.trucktools.product.benchmark;
+
+import lombok.Data;
+import lombok.Getter;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFDrawing;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 合成产品目录生成器
+ * 生成与 downloadTemplate 相同布局的品牌工作簿：A1为品牌缩写，第2行表头（NO./XK NO./OE NO./PICTURE/售价/备注），
+ * 第3行起为数据，图片锚定在D列；行数、图片尺寸及重复OE号比例可配置。
+ * 使用SXSSF流式写入单元格，图片数据仍保存在内存中，大量大图时注意堆大小
+ */
+public final class CatalogWorkbookGenerator {
+
+    private static final String[] HEADERS = {"NO.", "XK NO.", "OE NO.", "PICTURE", "售价", "备注"};
+    private static final String[] REMARKS = {"曲轴皮带轮", "水泵", "涡轮增压器", "发动机支架", "空气滤清器",
+            "启动马达", "机油滤清器", "燃油泵", "离合器总成", "刹车片", ""};
+    private static final int PICTURE_COLUMN = 3;
+
+    private CatalogWorkbookGenerator() {
+    }
+
+    /**
+     * 生成产品目录工作簿
+     */
+    public static Catalog generate(Path file, Options options) throws IOException {
+        Random random = new Random(options.getSeed());
+        List<byte[]> images = renderImages(options, random);
+        Catalog catalog = new Catalog();
+        Set<String> used = new HashSet<>();
+
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200)) {
+            for (int b = 0; b < options.getBrands(); b++) {
+                String brandCode = brandCode(b);
+                SXSSFSheet sheet = workbook.createSheet(brandCode + " Catalog");
+                SXSSFDrawing drawing = sheet.createDrawingPatriarch();
+
+                sheet.createRow(0).createCell(0).setCellValue(brandCode);
+                Row header = sheet.createRow(1);
+                for (int i = 0; i < HEADERS.length; i++) {
+                    header.createCell(i).setCellValue(HEADERS[i]);
+                }
+
+                for (int i = 0; i < options.getRowsPerBrand(); i++) {
+                    int rowIndex = 2 + i;
+                    String oeNo;
+                    if (!catalog.oeNos.isEmpty() && random.nextDouble() < options.getDuplicateRatio()) {
+                        oeNo = catalog.oeNos.get(random.nextInt(catalog.oeNos.size()));
+                        catalog.duplicateRows++;
+                    } else {
+                        do {
+                            oeNo = randomOeNo(random);
+                        } while (!used.add(oeNo));
+                        catalog.oeNos.add(oeNo);
+                    }
+
+                    Row row = sheet.createRow(rowIndex);
+                    row.createCell(0).setCellValue(i + 1);
+                    row.createCell(1).setCellValue(brandCode + String.format("%05d", i + 1));
+                    row.createCell(2).setCellValue(oeNo);
+                    row.createCell(4).setCellValue(randomPrice(random));
+                    row.createCell(5).setCellValue(REMARKS[random.nextInt(REMARKS.length)]);
+
+                    if (!images.isEmpty() && random.nextDouble() < options.getImageRatio()) {
+                        row.setHeightInPoints(options.getImageHeight() * 0.75f);
+                        byte[] image = images.get(random.nextInt(images.size()));
+                        int pictureIndex = workbook.addPicture(image, Workbook.PICTURE_TYPE_JPEG);
+                        ClientAnchor anchor = workbook.getCreationHelper().createClientAnchor();
+                        anchor.setCol1(PICTURE_COLUMN);
+                        anchor.setRow1(rowIndex);
+                        anchor.setCol2(PICTURE_COLUMN + 1);
+                        anchor.setRow2(rowIndex + 1);
+                        drawing.createPicture(anchor, pictureIndex);
+                        catalog.imageRows++;
+                    }
+                    catalog.rows++;
+                }
+            }
+
+            try (OutputStream out = Files.newOutputStream(file)) {
+                workbook.write(out);
+            }
+            workbook.dispose();
+        }
+        return catalog;
+    }
+
+    /**
+     * 生成客户报价工作簿（OE NO. / UNIT PRICE），按比例引用目录中的OE号
+     * @param matchRatio 引用目录OE号的行比例，其余为目录中不存在的OE号
+     */
+    public static int generateQuote(Path file, Catalog catalog, int rows, double matchRatio, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(200)) {
+            SXSSFSheet sheet = workbook.createSheet("Quote");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("NO.");
+            header.createCell(1).setCellValue("OE NO.");
+            header.createCell(2).setCellValue("UNIT PRICE");
+            for (int i = 0; i < rows; i++) {
+                String oeNo = !catalog.oeNos.isEmpty() && random.nextDouble() < matchRatio
+                        ? catalog.oeNos.get(random.nextInt(catalog.oeNos.size()))
+                        : "X" + randomOeNo(random);
+                Row row = sheet.createRow(1 + i);
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue(oeNo);
+                row.createCell(2).setCellValue(String.format("%.2f", 5 + random.nextDouble() * 200));
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                workbook.write(out);
+            }
+            workbook.dispose();
+        }
+        return rows;
+    }
+
+    static String brandCode(int index) {
+        return "B" + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+
+    private static String randomOeNo(Random random) {
+        return String.format("%03d %03d %02d %02d", random.nextInt(1000), random.nextInt(1000),
+                random.nextInt(100), random.nextInt(100));
+    }
+
+    private static String randomPrice(Random random) {
+        int low = 10 + random.nextInt(990);
+        return random.nextInt(3) == 0 ? low + "-" + (low + 1 + random.nextInt(100)) : String.valueOf(low);
+    }
+
+    /**
+     * 预先生成若干张不同内容的JPEG（随机色块，压缩后大小接近真实产品图）
+     */
+    private static List<byte[]> renderImages(Options options, Random random) {
+        List<byte[]> images = new ArrayList<>();
+        if (options.getImageRatio() <= 0 || options.getDistinctImages() <= 0) {
+            return images;
+        }
+        int width = options.getImageWidth();
+        int height = options.getImageHeight();
+        int block = Math.max(1, Math.min(width, height) / 16);
+        for (int n = 0; n < options.getDistinctImages(); n++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < height; y += block) {
+                for (int x = 0; x < width; x += block) {
+                    int rgb = random.nextInt(0x1000000);
+                    for (int dy = y; dy < Math.min(y + block, height); dy++) {
+                        for (int dx = x; dx < Math.min(x + block, width); dx++) {
+                            image.setRGB(dx, dy, rgb ^ random.nextInt(0x101010));
+                        }
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(image, "jpg", out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            images.add(out.toByteArray());
+        }
+        return images;
+    }
+
+    /**
+     * 生成参数
+     */
+    @Data
+    public static class Options {
+        /** 品牌Sheet数 */
+        private int brands = 3;
+        /** 每个品牌的数据行数 */
+        private int rowsPerBrand = 1000;
+        /** 带图片的行比例 */
+        private double imageRatio = 1.0;
+        /** 图片尺寸（像素） */
+        private int imageWidth = 160;
+        private int imageHeight = 160;
+        /** 不同内容的图片数（其余行复用，模拟同一图片出现在多个产品上） */
+        private int distinctImages = 200;
+        /** 重复已出现OE号的行比例（跨Sheet） */
+        private double duplicateRatio = 0.05;
+        private long seed = 1;
+    }
+
+    /**
+     * 生成结果
+     */
+    @Getter
+    public static class Catalog {
+        /** 不重复的OE号（按首次出现顺序） */
+        private final List<String> oeNos = new ArrayList<>();
+        private int rows;
+        private int duplicateRows;
+        private int imageRows;
+    }
+}
@@ -0,0 +1,69 @@
+package com.trucktools.product.benchmark;
+
+import org.apache.poi.xssf.usermodel.XSSFPicture;
+import org.apache.poi.xssf.usermodel.XSSFShape;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 合成目录与 downloadTemplate 布局一致
+ */
+class CatalogWorkbookGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void generatesTemplateLayout() throws Exception {
+        CatalogWorkbookGenerator.Options options = new CatalogWorkbookGenerator.Options();
+        options.setBrands(2);
+        options.setRowsPerBrand(60);
+        options.setImageRatio(0.5);
+        options.setImageWidth(40);
+        options.setImageHeight(30);
+        options.setDistinctImages(5);
+        options.setDuplicateRatio(0.2);
+        Path file = dir.resolve("catalog.xlsx");
+
+        CatalogWorkbookGenerator.Catalog catalog = CatalogWorkbookGenerator.generate(file, options);
+
+        assertThat(catalog.getRows()).isEqualTo(120);
+        assertThat(catalog.getOeNos()).hasSize(catalog.getRows() - catalog.getDuplicateRows());
+        assertThat(catalog.getDuplicateRows()).isPositive();
+
+        Map<String, Integer> occurrences = new HashMap<>();
+        int pictures = 0;
+        try (InputStream in = Files.newInputStream(file); XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+            assertThat(workbook.getNumberOfSheets()).isEqualTo(2);
+            for (int b = 0; b < workbook.getNumberOfSheets(); b++) {
+                XSSFSheet sheet = workbook.getSheetAt(b);
+                assertThat(sheet.getRow(0).getCell(0).getStringCellValue())
+                        .isEqualTo(CatalogWorkbookGenerator.brandCode(b));
+                assertThat(sheet.getRow(1).getCell(2).getStringCellValue()).isEqualTo("OE NO.");
+                assertThat(sheet.getRow(1).getCell(3).getStringCellValue()).isEqualTo("PICTURE");
+                for (int r = 2; r < 2 + options.getRowsPerBrand(); r++) {
+                    occurrences.merge(sheet.getRow(r).getCell(2).getStringCellValue(), 1, Integer::sum);
+                }
+                for (XSSFShape shape : sheet.getDrawingPatriarch().getShapes()) {
+                    XSSFPicture picture = (XSSFPicture) shape;
+                    assertThat((int) picture.getClientAnchor().getCol1()).isEqualTo(3);
+                    assertThat(picture.getClientAnchor().getRow1()).isGreaterThanOrEqualTo(2);
+                    pictures++;
+                }
+            }
+        }
+        assertThat(pictures).isEqualTo(catalog.getImageRows());
+        assertThat(occurrences).hasSize(catalog.getOeNos().size());
+        assertThat(occurrences.values().stream().mapToInt(n -> n - 1).sum()).isEqualTo(catalog.getDuplicateRows());
+    }
+}
@@ -0,0 +1,201 @@
+package com.trucktools.product.benchmark;
+
+import com.trucktools.common.utils.IdGenerator;
+import com.trucktools.product.dto.ImportResultDTO;
+import com.trucktools.product.dto.ImportStatusDTO;
+import com.trucktools.product.dto.QuoteImportRequestDTO;
+import com.trucktools.product.dto.QuoteImportResultDTO;
+import com.trucktools.product.service.ExcelImportService;
+import com.trucktools.product.service.QuoteService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 产品导入吞吐量基准
+ * 生成合成目录后依次执行：预览解析 -> 仅新增导入 -> 同一文件新增并更新导入（全部无变化）-> 报价导入匹配，
+ * 每个阶段输出行数、耗时、行/秒、内存分配量及速率、堆峰值。
+ * 运行：mvn -pl truck-tools-product -am test -Pbenchmark -Dtest=ImportThroughputBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * 参数（-D）：bench.brands、bench.rows（每品牌行数）、bench.image-ratio、bench.image-size（像素）、
+ * bench.distinct-images、bench.duplicate-ratio、bench.quote-rows、bench.quote-match-ratio、bench.seed；
+ * bench.jdbc.url/username/password 指定MySQL 8时不启动嵌入式MariaDB
+ */
+@Slf4j
+@Tag("benchmark")
+@ActiveProfiles("benchmark")
+@SpringBootTest(classes = BenchmarkApplication.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class ImportThroughputBenchmark {
+
+    private static final String XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    private static final double MB = 1024.0 * 1024.0;
+    private static final long IMPORT_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    @Autowired
+    private ExcelImportService excelImportService;
+
+    @Autowired
+    private QuoteService quoteService;
+
+    private final List<StageResult> results = new ArrayList<>();
+
+    @Test
+    void previewImportAndQuote() throws Exception {
+        CatalogWorkbookGenerator.Options options = new CatalogWorkbookGenerator.Options();
+        options.setBrands(Integer.getInteger("bench.brands", 3));
+        options.setRowsPerBrand(Integer.getInteger("bench.rows", 5000));
+        options.setImageRatio(doubleProperty("bench.image-ratio", 0.8));
+        options.setImageWidth(Integer.getInteger("bench.image-size", 160));
+        options.setImageHeight(options.getImageWidth());
+        options.setDistinctImages(Integer.getInteger("bench.distinct-images", 500));
+        options.setDuplicateRatio(doubleProperty("bench.duplicate-ratio", 0.05));
+        options.setSeed(Long.getLong("bench.seed", 1L));
+
+        Path dir = Files.createDirectories(Paths.get("target", "benchmark"));
+        Path catalogFile = dir.resolve("catalog.xlsx");
+        long generateStart = System.nanoTime();
+        CatalogWorkbookGenerator.Catalog catalog = CatalogWorkbookGenerator.generate(catalogFile, options);
+        log.info("生成目录: rows={}, duplicates={}, images={}, size={}MB, 耗时{}ms", catalog.getRows(),
+                catalog.getDuplicateRows(), catalog.getImageRows(),
+                String.format("%.1f", Files.size(catalogFile) / MB), (System.nanoTime() - generateStart) / 1_000_000);
+
+        // 每次运行使用新用户，连接共享MySQL时不受已有数据影响
+        Long userId = IdGenerator.nextId();
+
+        ImportResultDTO[] preview = new ImportResultDTO[1];
+        measure("preview", () -> {
+            preview[0] = excelImportService.uploadAndParse(userId, multipart(catalogFile, XLSX));
+            return preview[0].getTotalProducts();
+        });
+        assertThat(preview[0].getTotalProducts()).isEqualTo(catalog.getRows());
+
+        measure("import(insert)", () -> {
+            ImportStatusDTO status = runImport(userId, preview[0].getImportId(), "insert");
+            assertThat(status.getSuccessCount()).isEqualTo(catalog.getOeNos().size());
+            assertThat(status.getSkippedCount()).isEqualTo(catalog.getDuplicateRows());
+            return status.getTotalRows();
+        });
+
+        ImportResultDTO again = excelImportService.uploadAndParse(userId, multipart(catalogFile, XLSX));
+        measure("import(upsert)", () -> {
+            ImportStatusDTO status = runImport(userId, again.getImportId(), "upsert");
+            assertThat(status.getFailedCount()).isZero();
+            assertThat(status.getSuccessCount()).isZero();
+            return status.getTotalRows();
+        });
+
+        int quoteRows = Integer.getInteger("bench.quote-rows", 5000);
+        Path quoteFile = dir.resolve("quote.xlsx");
+        CatalogWorkbookGenerator.generateQuote(quoteFile, catalog, quoteRows,
+                doubleProperty("bench.quote-match-ratio", 0.8), options.getSeed());
+        measure("quote", () -> {
+            QuoteImportResultDTO result = quoteService.parseQuoteExcel(userId, multipart(quoteFile, XLSX),
+                    new QuoteImportRequestDTO());
+            assertThat(result.getMatchedCount()).isPositive();
+            return result.getTotalRows();
+        });
+
+        report();
+    }
+
+    private ImportStatusDTO runImport(Long userId, String importId, String mode) {
+        excelImportService.executeImport(userId, importId, mode);
+        long deadline = System.currentTimeMillis() + IMPORT_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            ImportStatusDTO status = excelImportService.getImportStatus(userId, importId);
+            if ("completed".equals(status.getStatus())) {
+                return status;
+            }
+            assertThat(status.getStatus()).as(status.getErrorMessage()).isNotEqualTo("failed");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalStateException("导入超时: importId=" + importId);
+    }
+
+    /**
+     * 执行一个阶段并记录耗时、内存分配（所有存活线程之和，导入线程池的线程在阶段间保持存活）及堆峰值
+     */
+    private void measure(String stage, IntSupplier action) {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        int rows = action.getAsInt();
+
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        results.add(new StageResult(stage, rows, nanos, allocated, peakHeap));
+    }
+
+    private void report() {
+        StringBuilder sb = new StringBuilder("\n导入基准结果\n");
+        sb.append(String.format("%-16s %10s %10s %12s %12s %14s %12s%n",
+                "stage", "rows", "ms", "rows/s", "alloc(MB)", "alloc(MB/s)", "peak(MB)"));
+        for (StageResult r : results) {
+            double seconds = Math.max(r.nanos, 1) / 1_000_000_000.0;
+            sb.append(String.format("%-16s %10d %10d %12.0f %12.1f %14.1f %12.1f%n",
+                    r.stage, r.rows, r.nanos / 1_000_000, r.rows / seconds, r.allocated / MB,
+                    r.allocated / MB / seconds, r.peakHeap / MB));
+        }
+        log.info(sb.toString());
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean threads) || !threads.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    private static MultipartFile multipart(Path file, String contentType) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new MockMultipartFile("file", file.getFileName().toString(), contentType, in);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double doubleProperty(String key, double defaultValue) {
+        String value = System.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private record StageResult(String stage, int rows, long nanos, long allocated, long peakHeap) {
+    }
+}
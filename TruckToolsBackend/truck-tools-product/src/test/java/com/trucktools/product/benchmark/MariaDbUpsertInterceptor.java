@@ -0,0 +1,45 @@
+package com.trucktools.product.benchmark;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import java.sql.Connection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 嵌入式MariaDB不支持MySQL 8.0.19+的行别名写法（INSERT ... AS new ON DUPLICATE KEY UPDATE col = new.col），
+ * 连接MariaDB时改写为等价的 VALUES(col) 写法；连接MySQL时不做任何修改
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class MariaDbUpsertInterceptor implements Interceptor {
+
+    private static final Pattern ROW_ALIAS = Pattern.compile("\\s+AS\\s+new\\s+(ON\\s+DUPLICATE\\s+KEY\\s+UPDATE)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALIAS_COLUMN = Pattern.compile("\\bnew\\.(\\w+)");
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Connection connection = (Connection) invocation.getArgs()[0];
+        BoundSql boundSql = ((StatementHandler) invocation.getTarget()).getBoundSql();
+        String sql = boundSql.getSql();
+        if (ROW_ALIAS.matcher(sql).find() && connection.getMetaData().getDatabaseProductVersion().contains("MariaDB")) {
+            SystemMetaObject.forObject(boundSql).setValue("sql", rewrite(sql));
+        }
+        return invocation.proceed();
+    }
+
+    private static String rewrite(String sql) {
+        Matcher matcher = ROW_ALIAS.matcher(sql);
+        if (!matcher.find()) {
+            return sql;
+        }
+        String update = ALIAS_COLUMN.matcher(sql.substring(matcher.end(1))).replaceAll("VALUES($1)");
+        return sql.substring(0, matcher.start()) + " " + matcher.group(1) + update;
+    }
+}
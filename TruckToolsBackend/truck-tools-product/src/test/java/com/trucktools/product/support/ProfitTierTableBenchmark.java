@@ -0,0 +1,141 @@
+package com.trucktools.product.support;
+
+import com.trucktools.product.entity.ProfitTierRule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 利润率阶梯查找基准：编译后的阶梯表 vs 逐条扫描规则，规则数从10增长到10000
+ * 运行：mvn -pl truck-tools-product -am test -Pbenchmark -Dtest=ProfitTierTableBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfitTierTableBenchmark {
+
+    private static final int QUERIES = 4096;
+    // 每个品牌平均规则数，规则增多时品牌数随之增多
+    private static final int RULES_PER_BRAND = 20;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int ruleCount;
+
+    private List<ProfitTierRule> rules;
+    private ProfitTierTable table;
+    private int[] quantities;
+    private String[] brands;
+    private Integer[] priorities;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(ruleCount);
+        int brandCount = Math.max(1, ruleCount / RULES_PER_BRAND);
+        rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            ProfitTierRule rule = new ProfitTierRule();
+            rule.setBrandCode(random.nextInt(5) == 0 ? null : "B" + random.nextInt(brandCount));
+            rule.setCustomerPriority(random.nextInt(2) == 0 ? null : 1 + random.nextInt(3));
+            rule.setMinQuantity(1 + random.nextInt(1000));
+            rule.setProfitRate(BigDecimal.valueOf(random.nextInt(3000), 2));
+            rules.add(rule);
+        }
+        table = ProfitTierTable.compile(rules);
+
+        quantities = new int[QUERIES];
+        brands = new String[QUERIES];
+        priorities = new Integer[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            quantities[i] = 1 + random.nextInt(1200);
+            // 部分查询的品牌没有专属规则
+            brands[i] = random.nextInt(10) == 0 ? null : "B" + random.nextInt(brandCount + brandCount / 4 + 1);
+            priorities[i] = random.nextInt(4) == 0 ? null : 1 + random.nextInt(3);
+        }
+
+        // 两种查找的结果必须一致，否则基准没有意义
+        for (int i = 0; i < QUERIES; i++) {
+            BigDecimal expected = scan(quantities[i], brands[i], priorities[i]);
+            BigDecimal actual = table.lookup(quantities[i], brands[i], priorities[i]);
+            if (!Objects.equals(expected, actual)) {
+                throw new IllegalStateException("查找结果不一致: qty=" + quantities[i] + ", brand=" + brands[i]
+                        + ", priority=" + priorities[i] + ", expected=" + expected + ", actual=" + actual);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void compiled(Blackhole bh) {
+        for (int i = 0; i < QUERIES; i++) {
+            bh.consume(table.lookup(quantities[i], brands[i], priorities[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void linearScan(Blackhole bh) {
+        for (int i = 0; i < QUERIES; i++) {
+            bh.consume(scan(quantities[i], brands[i], priorities[i]));
+        }
+    }
+
+    /**
+     * 逐条扫描规则：依次取 品牌+优先级、品牌、优先级、通用 中起始数量不大于qty的最大阶梯
+     */
+    private BigDecimal scan(int qty, String brand, Integer priority) {
+        int slot = priority != null ? priority : 0;
+        int[] bestMin = new int[4];
+        BigDecimal[] best = new BigDecimal[4];
+        for (ProfitTierRule rule : rules) {
+            int min = rule.getMinQuantity();
+            if (min > qty) {
+                continue;
+            }
+            int ruleSlot = rule.getCustomerPriority() != null ? rule.getCustomerPriority() : 0;
+            if (ruleSlot != 0 && ruleSlot != slot) {
+                continue;
+            }
+            int level;
+            if (rule.getBrandCode() == null) {
+                level = ruleSlot != 0 ? 2 : 3;
+            } else if (rule.getBrandCode().equals(brand)) {
+                level = ruleSlot != 0 ? 0 : 1;
+            } else {
+                continue;
+            }
+            // 起始数量相同时以后出现的为准
+            if (best[level] == null || min >= bestMin[level]) {
+                bestMin[level] = min;
+                best[level] = rule.getProfitRate();
+            }
+        }
+        for (BigDecimal rate : best) {
+            if (rate != null) {
+                return rate;
+            }
+        }
+        return ProfitTierTable.DEFAULT.lookup(qty, null, null);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProfitTierTableBenchmark.class.getName() + "\\.")
+                .build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+package com.trucktools.product.support;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10000项报价计算基准：原逐项BigDecimal计算链 vs 报价计算引擎
+ * 运行：mvn -pl truck-tools-product -am test -Pbenchmark -Dtest=QuotePricingBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuotePricingBenchmark {
+
+    private static final int ITEMS = 10_000;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    // 原 QuoteServiceImpl.PROFIT_TIERS
+    private static final BigDecimal[][] PROFIT_TIERS = {
+            {BigDecimal.valueOf(1), BigDecimal.valueOf(99), BigDecimal.valueOf(10)},
+            {BigDecimal.valueOf(100), BigDecimal.valueOf(199), BigDecimal.valueOf(6)},
+            {BigDecimal.valueOf(200), BigDecimal.valueOf(499), BigDecimal.valueOf(3)},
+            {BigDecimal.valueOf(500), BigDecimal.valueOf(Integer.MAX_VALUE), BigDecimal.ZERO}
+    };
+
+    private final BigDecimal exchangeRate = new BigDecimal("7.1234");
+    private final BigDecimal taxRate = new BigDecimal("13");
+    private final BigDecimal fobRate = new BigDecimal("15");
+
+    private BigDecimal[] prices;
+    private BigDecimal[] profitRates;
+    private int[] quantities;
+    private Boolean[] fob;
+    private Boolean[] tax;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        prices = new BigDecimal[ITEMS];
+        profitRates = new BigDecimal[ITEMS];
+        quantities = new int[ITEMS];
+        fob = new Boolean[ITEMS];
+        tax = new Boolean[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            prices[i] = BigDecimal.valueOf(100 + random.nextInt(500_000), 2);
+            // 大部分项使用数量阶梯利润率
+            profitRates[i] = random.nextInt(5) == 0 ? BigDecimal.valueOf(5 + random.nextInt(20)) : null;
+            quantities[i] = 1 + random.nextInt(800);
+            fob[i] = random.nextInt(3) == 0;
+            tax[i] = random.nextBoolean();
+        }
+    }
+
+    /**
+     * 原计算方式：每项重新计算乘数，数量阶梯逐个BigDecimal比较
+     */
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (int i = 0; i < ITEMS; i++) {
+            BigDecimal priceUsd = prices[i].divide(exchangeRate, 4, RoundingMode.HALF_UP);
+            BigDecimal profitRate = profitRates[i] != null ? profitRates[i] : legacyProfitRate(quantities[i]);
+            BigDecimal profitMultiplier = BigDecimal.ONE.add(profitRate.divide(HUNDRED, 4, RoundingMode.HALF_UP));
+            BigDecimal afterProfit = priceUsd.multiply(profitMultiplier);
+            BigDecimal price;
+            if (Boolean.TRUE.equals(fob[i])) {
+                price = afterProfit.multiply(BigDecimal.ONE.add(fobRate.divide(HUNDRED, 4, RoundingMode.HALF_UP)));
+            } else if (Boolean.TRUE.equals(tax[i])) {
+                price = afterProfit.multiply(BigDecimal.ONE.add(taxRate.divide(HUNDRED, 4, RoundingMode.HALF_UP)));
+            } else {
+                price = afterProfit;
+            }
+            bh.consume(priceUsd.setScale(2, RoundingMode.HALF_UP));
+            bh.consume(price.setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    /**
+     * 报价计算引擎（每次报价创建一个实例）
+     */
+    @Benchmark
+    public void engine(Blackhole bh) {
+        QuotePricingEngine engine = QuotePricingEngine.of(exchangeRate, taxRate, fobRate, null);
+        for (int i = 0; i < ITEMS; i++) {
+            BigDecimal profitRate = engine.resolveProfitRate(profitRates[i], quantities[i], null);
+            bh.consume(engine.price(prices[i], profitRate, fob[i], tax[i]));
+        }
+    }
+
+    /**
+     * 引擎的BigDecimal回退路径（乘数预先计算，单项仍为BigDecimal运算）
+     */
+    @Benchmark
+    public void engineDecimal(Blackhole bh) {
+        QuotePricingEngine engine = QuotePricingEngine.of(exchangeRate, taxRate, fobRate, null);
+        for (int i = 0; i < ITEMS; i++) {
+            BigDecimal profitRate = engine.resolveProfitRate(profitRates[i], quantities[i], null);
+            bh.consume(engine.priceDecimal(prices[i], profitRate, fob[i], tax[i]));
+        }
+    }
+
+    private static BigDecimal legacyProfitRate(int quantity) {
+        BigDecimal qty = BigDecimal.valueOf(quantity);
+        for (BigDecimal[] tier : PROFIT_TIERS) {
+            if (qty.compareTo(tier[0]) >= 0 && qty.compareTo(tier[1]) <= 0) {
+                return tier[2];
+            }
+        }
+        return BigDecimal.valueOf(10);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QuotePricingBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package com.trucktools.product.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 报价计算引擎：定点计算与BigDecimal计算结果一致
+ */
+class QuotePricingEngineTest {
+
+    private static final int ITEMS = 20_000;
+
+    @Test
+    void fixedPointMatchesDecimalOnRandomItems() {
+        Random random = new Random(20240601L);
+        for (int round = 0; round < 50; round++) {
+            QuotePricingEngine engine = QuotePricingEngine.of(randomRate(random), randomPercent(random, 30),
+                    randomPercent(random, 40), null);
+            for (int i = 0; i < ITEMS / 50; i++) {
+                BigDecimal priceRmb = randomPrice(random);
+                BigDecimal profitRate = randomProfitRate(random);
+                Boolean isFob = random.nextInt(3) == 0 ? null : random.nextBoolean();
+                Boolean includeTax = random.nextInt(3) == 0 ? null : random.nextBoolean();
+
+                QuotePricingEngine.PriceResult expected = engine.priceDecimal(priceRmb, profitRate, isFob, includeTax);
+                assertSame(expected, engine.priceScaled(priceRmb, profitRate, isFob, includeTax));
+                assertSame(expected, engine.price(priceRmb, profitRate, isFob, includeTax));
+            }
+        }
+    }
+
+    @Test
+    void halfUpTiesMatchDecimal() {
+        // 1.00005 / 1 的4位舍入、以及最终2位舍入恰好落在.5上
+        QuotePricingEngine engine = QuotePricingEngine.of(BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO,
+                BigDecimal.ZERO);
+        for (String price : new String[]{"1.00005", "0.005", "0.015", "2.345", "0.00005", "12.34565"}) {
+            BigDecimal priceRmb = new BigDecimal(price);
+            for (String rate : new String[]{"0", "-12.5", "33.33335", "50"}) {
+                BigDecimal profitRate = new BigDecimal(rate);
+                assertSame(engine.priceDecimal(priceRmb, profitRate, true, false),
+                        engine.priceScaled(priceRmb, profitRate, true, false));
+                assertSame(engine.priceDecimal(priceRmb, profitRate, false, false),
+                        engine.priceScaled(priceRmb, profitRate, false, false));
+            }
+        }
+    }
+
+    @Test
+    void overflowingPriceFallsBackToDecimal() {
+        QuotePricingEngine engine = QuotePricingEngine.of(new BigDecimal("7.1234"), null, null, null);
+        BigDecimal priceRmb = new BigDecimal("123456789012345.6789");
+        BigDecimal profitRate = new BigDecimal("25");
+
+        assertThatThrownBy(() -> engine.priceScaled(priceRmb, profitRate, true, false))
+                .isInstanceOf(ArithmeticException.class);
+        assertSame(engine.priceDecimal(priceRmb, profitRate, true, false),
+                engine.price(priceRmb, profitRate, true, false));
+
+        // 价格本身超出long范围
+        BigDecimal hugePrice = new BigDecimal("98765432109876543210.12");
+        assertSame(engine.priceDecimal(hugePrice, profitRate, false, true),
+                engine.price(hugePrice, profitRate, false, true));
+    }
+
+    @Test
+    void unrepresentableRatesFallBackToDecimal() {
+        // 汇率的非标度值超出long范围
+        BigDecimal rate = new BigDecimal("7.12345678901234567890123");
+        QuotePricingEngine engine = QuotePricingEngine.of(rate, null, null, null);
+        BigDecimal priceRmb = new BigDecimal("1234.56");
+        BigDecimal profitRate = new BigDecimal("10");
+        QuotePricingEngine.PriceResult result = engine.price(priceRmb, profitRate, true, false);
+        assertSame(engine.priceDecimal(priceRmb, profitRate, true, false), result);
+        assertThat(result.getPriceUsd()).isEqualByComparingTo("173.31");
+
+        // 税率乘数超出long范围
+        QuotePricingEngine hugeTax = QuotePricingEngine.of(new BigDecimal("7.1"),
+                new BigDecimal("1e20"), null, null);
+        assertSame(hugeTax.priceDecimal(priceRmb, profitRate, false, true),
+                hugeTax.price(priceRmb, profitRate, false, true));
+    }
+
+    private static void assertSame(QuotePricingEngine.PriceResult expected, QuotePricingEngine.PriceResult actual) {
+        // 比较值及标度（toString），保证输出逐位一致
+        assertThat(actual.getPriceUsd().toString()).isEqualTo(expected.getPriceUsd().toString());
+        assertThat(actual.getPrice().toString()).isEqualTo(expected.getPrice().toString());
+    }
+
+    private static BigDecimal randomRate(Random random) {
+        int scale = 1 + random.nextInt(6);
+        long unscaled = (long) ((0.5 + random.nextDouble() * 10) * Math.pow(10, scale));
+        return BigDecimal.valueOf(Math.max(unscaled, 1), scale);
+    }
+
+    private static BigDecimal randomPercent(Random random, int max) {
+        int scale = random.nextInt(3);
+        return BigDecimal.valueOf(random.nextInt(max * (int) Math.pow(10, scale) + 1), scale);
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        int scale = random.nextInt(5);
+        long unscaled = 1 + (long) (random.nextDouble() * 100_000 * Math.pow(10, scale));
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static BigDecimal randomProfitRate(Random random) {
+        int scale = random.nextInt(4);
+        long unscaled = (long) ((random.nextDouble() * 250 - 50) * Math.pow(10, scale));
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+}
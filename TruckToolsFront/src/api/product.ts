@@ -9,6 +9,7 @@ export interface Product {
   oeNo: string
   imagePath?: string
   imageUrl?: string
+  thumbnailUrl?: string
   priceMin?: number
   priceMax?: number
   priceAvg?: number
@@ -27,10 +28,28 @@ export interface ProductListParams {
   sortOrder?: 'asc' | 'desc'
 }
 
+// 批量查找匹配方式: oe=OE号精确匹配, xk=XK号精确匹配, fuzzy=编号包含输入, none=未匹配
+export type LookupMatchType = 'oe' | 'xk' | 'fuzzy' | 'none'
+
+export interface ProductLookupItem {
+  key: string
+  matchType: LookupMatchType
+  products: Product[]
+}
+
+export interface ProductLookupResult {
+  items: Record<string, ProductLookupItem>
+  total: number
+  matched: number
+}
+
 export interface Brand {
   brandCode: string
   brandName: string
   productCount: number
+  imageCount?: number
+  priceMin?: number
+  priceMax?: number
 }
 
 export interface BrandSheetInfo {
@@ -50,17 +69,25 @@ export interface ImportResult {
   previewData: Record<string, any>[]
 }
 
+// 导入方式: insert=仅新增, upsert=新增并更新已有产品
+export type ImportMode = 'insert' | 'upsert'
+
 export interface ImportStatus {
   importId: string
   status: 'pending' | 'processing' | 'completed' | 'failed'
   totalRows: number
+  mode?: ImportMode
   successCount: number
+  updatedCount?: number
+  unchangedCount?: number
   failedCount: number
   skippedCount: number
+  rowsPerSecond?: number
   progress: number
   startedAt?: string
   completedAt?: string
   errorMessage?: string
+  diffAvailable?: boolean
 }
 
 export interface QuoteItem {
@@ -91,6 +118,7 @@ export interface QuoteRequest {
   fobRate?: number
   includeTax?: boolean
   isFob?: boolean
+  customerPriority?: number
 }
 
 export interface QuoteResult {
@@ -129,6 +157,7 @@ export interface QuoteImportItem {
 }
 
 export interface QuoteImportResult {
+  importId?: string
   totalRows: number
   matchedCount: number
   unmatchedCount: number
@@ -150,6 +179,49 @@ export interface QuoteImportRequest {
   includeTax?: boolean
   isFob?: boolean
   customerCurrency?: 'USD' | 'RMB'
+  customerPriority?: number
+}
+
+export interface QuoteImportRowOverride {
+  rowIndex: number
+  quantity?: number
+  profitRate?: number
+  includeTax?: boolean
+  isFob?: boolean
+}
+
+// 基于导入会话重新计算：只传变化的参数和调整的行
+export interface QuoteImportRecalcRequest {
+  priceMode?: 'min' | 'avg' | 'max'
+  exchangeRate?: number
+  defaultProfitRate?: number
+  resetProfitRate?: boolean
+  taxRate?: number
+  fobRate?: number
+  includeTax?: boolean
+  isFob?: boolean
+  customerPriority?: number
+  overrides?: QuoteImportRowOverride[]
+}
+
+// 利润率阶梯规则：brandCode/customerPriority 为空表示适用全部
+export interface ProfitTierRule {
+  brandCode?: string
+  customerPriority?: number
+  minQuantity: number
+  profitRate: number
+}
+
+export interface ExportJob {
+  jobId: string
+  status: 'pending' | 'processing' | 'completed' | 'failed'
+  totalRows: number
+  rowsDone: number
+  progress: number
+  fileName: string
+  createdAt?: string
+  completedAt?: string
+  errorMessage?: string
 }
 
 export const productApi = {
@@ -198,6 +270,11 @@ export const productApi = {
     return http.get<Product[]>('/products/search', { params: { oe } })
   },
 
+  // 批量查找产品（按输入编号返回匹配结果）
+  lookup(data: { keys?: string[]; text?: string }) {
+    return http.post<ProductLookupResult>('/products/lookup', data)
+  },
+
   // ===================== Excel导入相关 =====================
 
   // 下载产品导入模板
@@ -210,9 +287,19 @@ export const productApi = {
     return http.upload<ImportResult>('/products/import/upload', formData)
   },
 
+  // 上传CSV+图片压缩包
+  uploadImportBundle(formData: FormData) {
+    return http.upload<ImportResult>('/products/import/upload-bundle', formData)
+  },
+
   // 执行导入
-  executeImport(importId: string) {
-    return http.post<ImportStatus>(`/products/import/${importId}/execute`)
+  executeImport(importId: string, mode: ImportMode = 'insert') {
+    return http.post<ImportStatus>(`/products/import/${importId}/execute`, undefined, { params: { mode } })
+  },
+
+  // 下载导入变更明细
+  downloadImportDiff(importId: string) {
+    return http.get(`/products/import/${importId}/diff`, { responseType: 'blob' })
   },
 
   // 查询导入状态
@@ -233,8 +320,20 @@ export const productApi = {
   },
 
   // 获取推荐利润率
-  getProfitRate(quantity: number) {
-    return http.get<{ quantity: number; profitRate: number }>('/products/quote/profit-rate', { params: { quantity } })
+  getProfitRate(quantity: number, brandCode?: string, customerPriority?: number) {
+    return http.get<{ quantity: number; profitRate: number }>('/products/quote/profit-rate', {
+      params: { quantity, brandCode, customerPriority }
+    })
+  },
+
+  // 获取利润率阶梯规则
+  getProfitTiers() {
+    return http.get<ProfitTierRule[]>('/products/quote/profit-tiers')
+  },
+
+  // 保存利润率阶梯规则（整体替换）
+  saveProfitTiers(rules: ProfitTierRule[]) {
+    return http.put<void>('/products/quote/profit-tiers', rules)
   },
 
   // ===================== 报价导入相关 =====================
@@ -252,6 +351,63 @@ export const productApi = {
   // 导出报价对比Excel
   exportQuoteCompare(data: QuoteImportRequest) {
     return http.post('/products/quote/import/export', data, { responseType: 'blob' })
+  },
+
+  // 基于导入会话重新计算（只返回有变化的行）
+  recalculateQuoteImportSession(importId: string, data: QuoteImportRecalcRequest) {
+    return http.post<QuoteImportResult>(`/products/quote/import/${importId}/recalculate`, data)
+  },
+
+  // 基于导入会话导出报价对比Excel
+  exportQuoteCompareSession(importId: string) {
+    return http.post(`/products/quote/import/${importId}/export`, undefined, { responseType: 'blob' })
+  },
+
+  // 基于导入会话导出简洁格式报价单（只导出已匹配的行）
+  exportQuoteSession(importId: string) {
+    return http.post(`/products/quote/import/${importId}/export-quote`, undefined, { responseType: 'blob' })
+  },
+
+  // ===================== 导出任务 =====================
+
+  // 查询导出任务状态
+  getExportJob(jobId: string) {
+    return http.get<ExportJob>(`/products/quote/export/jobs/${jobId}`)
+  },
+
+  // 下载导出任务文件
+  downloadExportJob(jobId: string) {
+    return http.get(`/products/quote/export/jobs/${jobId}/download`, { responseType: 'blob' })
+  },
+
+  // 获取导出文件：行数较多时后端返回导出任务，轮询完成后再下载
+  async resolveExportFile(res: Blob): Promise<Blob> {
+    if (!res.type || !res.type.includes('application/json')) {
+      return res
+    }
+    const body = JSON.parse(await res.text())
+    if (body.code !== 200) {
+      throw new Error(body.message || '导出失败')
+    }
+    let job: ExportJob = body.data
+    while (job.status !== 'completed') {
+      if (job.status === 'failed') {
+        throw new Error(job.errorMessage || '导出失败')
+      }
+      await new Promise(resolve => setTimeout(resolve, 1000))
+      job = (await productApi.getExportJob(job.jobId)).data
+    }
+    return await productApi.downloadExportJob(job.jobId) as any
   }
 }
 
+
+/**
+ * 上传图片按宽度缩放后的地址（非上传目录的图片原样返回）
+ */
+export const resizedImageUrl = (url: string, width: number) => {
+  if (!url || !url.includes('/uploads/')) {
+    return url
+  }
+  return url + (url.includes('?') ? '&' : '?') + 'w=' + width
+}